@@ -1,27 +1,131 @@
 package com.hunter_connect.config;
 
+import com.google.auth.oauth2.AccessToken;
 import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.firestore.FirestoreOptions;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 import io.github.cdimascio.dotenv.Dotenv; // Import Dotenv
 import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+/**
+ * Initializes the Firebase Admin SDK.
+ *
+ * hunter.firebase.init-mode:
+ *   - eager (default): in @PostConstruct on the main thread, as before.
+ *   - async: on a background thread while the rest of the context starts; FirebaseWarmup
+ *     waits for it before the web server opens its port.
+ *   - lazy: on first use. Meant for build-time runs (AOT, the CDS training run) that
+ *     start the context without credentials.
+ *
+ * Code that reaches Firestore during startup goes through awaitReady() (FirestoreGateway
+ * does), so it never sees an uninitialized FirebaseApp.
+ *
+ * With hunter.firestore.emulator-host (or FIRESTORE_EMULATOR_HOST) set, Firestore is the
+ * in-memory emulator instead of a Firebase project, and no credentials are needed. Used
+ * for local runs and the load tests.
+ */
 @Configuration
 public class FirebaseConfig {
 
+    public enum InitMode { EAGER, ASYNC, LAZY }
+
+    // Completed once FirebaseApp exists; null before initialize() and, in lazy mode, until first use
+    private static volatile CompletableFuture<FirebaseApp> ready;
+
+    // Static like `ready`: lazy initialization may happen outside this bean
+    private static volatile String emulatorHost = "";
+    private static volatile String emulatorProjectId = "demo-hunter-connect";
+    private static volatile boolean emulated;
+
+    private final InitMode initMode;
+
+    public FirebaseConfig(@Value("${hunter.firebase.init-mode:eager}") String initMode,
+                          @Value("${hunter.firestore.emulator-host:}") String emulatorHost,
+                          @Value("${hunter.firestore.emulator-project-id:demo-hunter-connect}") String emulatorProjectId) {
+        this.initMode = InitMode.valueOf(initMode.trim().toUpperCase());
+        FirebaseConfig.emulatorHost = emulatorHost.trim();
+        FirebaseConfig.emulatorProjectId = emulatorProjectId;
+    }
+
     @PostConstruct
     public void initialize() {
+        switch (initMode) {
+            case EAGER -> ready = CompletableFuture.completedFuture(initializeApp());
+            case ASYNC -> {
+                CompletableFuture<FirebaseApp> future = new CompletableFuture<>();
+                ready = future;
+                Thread.ofPlatform().name("firebase-init").daemon().start(() -> {
+                    try {
+                        future.complete(initializeApp());
+                    } catch (Throwable t) {
+                        future.completeExceptionally(t);
+                    }
+                });
+            }
+            case LAZY -> ready = null;
+        }
+        System.out.println("Firebase init mode: " + initMode);
+    }
+
+    public InitMode getInitMode() {
+        return initMode;
+    }
+
+    /**
+     * True if the initialized app talks to the Firestore emulator rather than a Firebase project.
+     */
+    public static boolean isEmulated() {
+        return emulated;
+    }
+
+    /**
+     * Blocks until FirebaseApp is initialized (initializing it now in lazy mode).
+     *
+     * @throws IllegalStateException if initialization failed
+     */
+    public static FirebaseApp awaitReady() {
+        CompletableFuture<FirebaseApp> future = ready;
+        if (future == null) {
+            synchronized (FirebaseConfig.class) {
+                if (ready == null) {
+                    try {
+                        ready = CompletableFuture.completedFuture(initializeApp());
+                    } catch (RuntimeException e) {
+                        // Leave it unset so the next call retries
+                        throw new IllegalStateException("Firebase is not initialized: " + e.getMessage(), e);
+                    }
+                }
+                future = ready;
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Firebase initialization failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static FirebaseApp initializeApp() {
         try {
             // 1. Load the .env file
             // This looks for a .env file in the project root
             Dotenv dotenv = Dotenv.configure().ignoreIfMissing().load();
 
+            String emulator = !emulatorHost.isEmpty() ? emulatorHost : dotenv.get("FIRESTORE_EMULATOR_HOST");
+            if (emulator != null && !emulator.isEmpty()) {
+                return initializeEmulatedApp(emulator);
+            }
+
             // 2. Get the JSON content (Checks actual Env Vars first, then .env file)
             String serviceAccountJson = dotenv.get("FIREBASE_CREDENTIALS_JSON");
 
@@ -43,12 +147,38 @@ public class FirebaseConfig {
 
             // 4. Initialize Firebase
             if (FirebaseApp.getApps().isEmpty()) {
-                FirebaseApp.initializeApp(options);
+                FirebaseApp app = FirebaseApp.initializeApp(options);
                 System.out.println("Firebase Admin SDK initialized successfully.");
+                return app;
             }
+            return FirebaseApp.getInstance();
         } catch (IOException e) {
             e.printStackTrace();
             throw new RuntimeException("Failed to initialize Firebase: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * The emulator accepts any credentials, so a placeholder token stands in for the
+     * service account. Token verification still goes to Firebase Auth unless
+     * FIREBASE_AUTH_EMULATOR_HOST is set as well.
+     */
+    private static FirebaseApp initializeEmulatedApp(String host) {
+        FirebaseOptions options = FirebaseOptions.builder()
+                .setProjectId(emulatorProjectId)
+                .setCredentials(GoogleCredentials.create(new AccessToken("owner", null)))
+                .setFirestoreOptions(FirestoreOptions.newBuilder()
+                        .setProjectId(emulatorProjectId)
+                        .setEmulatorHost(host)
+                        .build())
+                .build();
+
+        emulated = true;
+        if (FirebaseApp.getApps().isEmpty()) {
+            FirebaseApp app = FirebaseApp.initializeApp(options);
+            System.out.println("Firebase Admin SDK initialized against the Firestore emulator at " + host);
+            return app;
+        }
+        return FirebaseApp.getInstance();
+    }
+}
@@ -0,0 +1,69 @@
+package com.hunter_connect.config;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Map;
+
+/**
+ * Authenticates the WebSocket handshake for /ws/chat.
+ *
+ * Browser and React Native WebSocket clients cannot always set headers, so the
+ * Firebase ID token is taken from the Authorization header if present, otherwise
+ * from the "token" query parameter. The verified UID is stored in the session
+ * attributes under UID_ATTRIBUTE.
+ */
+@Component
+public class FirebaseHandshakeInterceptor implements HandshakeInterceptor {
+
+    public static final String UID_ATTRIBUTE = "uid";
+
+    private final VerifiedTokenCache tokenCache;
+
+    public FirebaseHandshakeInterceptor(VerifiedTokenCache tokenCache) {
+        this.tokenCache = tokenCache;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        String idToken = extractToken(request);
+        if (idToken == null) {
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+
+        try {
+            String uid = tokenCache.verify(idToken);
+            if (uid == null) {
+                response.setStatusCode(HttpStatus.UNAUTHORIZED);
+                return false;
+            }
+            attributes.put(UID_ATTRIBUTE, uid);
+            return true;
+        } catch (Exception e) {
+            // Token is invalid
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    private static String extractToken(ServerHttpRequest request) {
+        String authorizationHeader = request.getHeaders().getFirst("Authorization");
+        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
+            return authorizationHeader.substring(7);
+        }
+        String token = UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().getFirst("token");
+        return token != null && !token.isBlank() ? token : null;
+    }
+}
@@ -1,7 +1,5 @@
 package com.hunter_connect.config;
 
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.FirebaseToken;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -18,6 +16,12 @@ import java.util.ArrayList;
 @Component
 public class FirebaseSecurityFilter extends OncePerRequestFilter {
 
+    private final VerifiedTokenCache tokenCache;
+
+    public FirebaseSecurityFilter(VerifiedTokenCache tokenCache) {
+        this.tokenCache = tokenCache;
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
@@ -33,9 +37,8 @@ public class FirebaseSecurityFilter extends OncePerRequestFilter {
         String idToken = authorizationHeader.substring(7); // Extract the token
 
         try {
-            // Verify the ID token using Firebase Admin SDK
-            FirebaseToken decodedToken = FirebaseAuth.getInstance().verifyIdToken(idToken);
-            String uid = decodedToken.getUid();
+            // Verify the ID token using Firebase Admin SDK (skipped if we verified it recently)
+            String uid = tokenCache.verify(idToken);
 
             // If token is valid, set the authentication in Spring's SecurityContext
             if (uid != null) {
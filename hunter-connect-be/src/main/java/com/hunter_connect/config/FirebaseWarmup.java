@@ -0,0 +1,133 @@
+package com.hunter_connect.config;
+
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthException;
+import com.hunter_connect.services.FirestoreGateway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Holds back the web server until Firebase is usable, so the first request after a
+ * (scale-out) start is not the one that pays for setup.
+ *
+ * Runs as a lifecycle phase before the embedded server starts listening: it waits for
+ * FirebaseConfig (in async mode) and then, in parallel,
+ *   - opens the Firestore gRPC channel with a single document read, and
+ *   - makes FirebaseAuth fetch and cache Google's public signing keys.
+ * Neither step may hold startup longer than hunter.firebase.warmup-timeout-seconds;
+ * a warm-up that fails or times out is logged and the request path pays as before.
+ * Nothing happens in lazy mode; against the emulator only the channel is opened.
+ */
+@Component
+public class FirebaseWarmup implements SmartLifecycle {
+
+    private final FirebaseConfig firebaseConfig;
+    private final FirestoreGateway firestore;
+    private final boolean enabled;
+    private final long timeoutSeconds;
+
+    private volatile boolean running;
+
+    public FirebaseWarmup(FirebaseConfig firebaseConfig, FirestoreGateway firestore,
+                          @Value("${hunter.firebase.warmup:true}") boolean enabled,
+                          @Value("${hunter.firebase.warmup-timeout-seconds:10}") long timeoutSeconds) {
+        this.firebaseConfig = firebaseConfig;
+        this.firestore = firestore;
+        this.enabled = enabled;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (firebaseConfig.getInitMode() == FirebaseConfig.InitMode.LAZY) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        // Fails startup if initialization failed, as eager mode always did
+        FirebaseApp app = FirebaseConfig.awaitReady();
+        long initialized = System.nanoTime();
+
+        if (enabled) {
+            try {
+                CompletableFuture.allOf(
+                        CompletableFuture.runAsync(this::openChannel),
+                        FirebaseConfig.isEmulated()
+                                ? CompletableFuture.completedFuture(null)
+                                : CompletableFuture.runAsync(() -> fetchSigningKeys(app))
+                ).get(timeoutSeconds, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                System.out.println("Firebase warm-up still running after " + timeoutSeconds + "s, starting anyway");
+            } catch (ExecutionException e) {
+                System.out.println("Firebase warm-up failed: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        System.out.println("Firebase ready: waited " + TimeUnit.NANOSECONDS.toMillis(initialized - start)
+                + " ms for init, " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - initialized) + " ms warming up");
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Well before the web server's start/stop lifecycle, which opens the port.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    // ----------- internals -----------
+
+    private void openChannel() {
+        try {
+            // Any RPC will do; a missing document costs a single read
+            firestore.await("users", "warmup", () -> firestore.collection("users").document("_warmup").get());
+        } catch (Exception e) {
+            throw new IllegalStateException("Firestore: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The Admin SDK only downloads the signing keys when it checks a signature, so it is
+     * handed a well-formed ID token (right audience and issuer, not expired) with a bogus
+     * signature. The check fails, but the keys are cached for the real tokens.
+     */
+    private void fetchSigningKeys(FirebaseApp app) {
+        String projectId = firestore.db().getOptions().getProjectId();
+        long now = System.currentTimeMillis() / 1000L;
+        String header = "{\"alg\":\"RS256\",\"kid\":\"warmup\",\"typ\":\"JWT\"}";
+        String payload = "{\"aud\":\"" + projectId + "\",\"iss\":\"https://securetoken.google.com/" + projectId
+                + "\",\"sub\":\"warmup\",\"iat\":" + (now - 60) + ",\"auth_time\":" + (now - 60)
+                + ",\"exp\":" + (now + 300) + "}";
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String token = encoder.encodeToString(header.getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(new byte[256]);
+        try {
+            FirebaseAuth.getInstance(app).verifyIdToken(token);
+        } catch (FirebaseAuthException expected) {
+            // Signature mismatch, as intended
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.hunter_connect.config;
+
+import com.hunter_connect.services.FirestoreRequestStats;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.function.HandlerFilterFunction;
+import org.springframework.web.servlet.function.HandlerFunction;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.io.IOException;
+
+/**
+ * Collects the Firestore calls a handler makes (through FirestoreGateway) and reports
+ * them in a Server-Timing header, so the browser dev tools show how much of a request
+ * was spent waiting on Firestore.
+ *
+ * Registered after HandlerExecutionFilter so it runs on the same thread as the handler
+ * in both execution modes. Streamed list responses only report the calls made before
+ * the body started; the streamed query itself shows up in /api/metrics/firestore.
+ */
+@Component
+public class FirestoreTimingFilter implements HandlerFilterFunction<ServerResponse, ServerResponse> {
+
+    public static final String HEADER = "Server-Timing";
+
+    @Override
+    public ServerResponse filter(ServerRequest request, HandlerFunction<ServerResponse> next) throws Exception {
+        FirestoreRequestStats stats = FirestoreRequestStats.begin();
+        try {
+            ServerResponse response = next.handle(request);
+            return stats.getCalls() > 0 ? new TimedResponse(response, stats.toServerTiming()) : response;
+        } finally {
+            FirestoreRequestStats.end();
+        }
+    }
+
+    /**
+     * Built responses have read-only headers, so the header is added to the servlet
+     * response just before the wrapped response writes itself.
+     */
+    private record TimedResponse(ServerResponse delegate, String serverTiming) implements ServerResponse {
+
+        @Override
+        public HttpStatusCode statusCode() {
+            return delegate.statusCode();
+        }
+
+        @Override
+        @Deprecated
+        @SuppressWarnings("removal")
+        public int rawStatusCode() {
+            return delegate.statusCode().value();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return delegate.headers();
+        }
+
+        @Override
+        public MultiValueMap<String, Cookie> cookies() {
+            return delegate.cookies();
+        }
+
+        @Override
+        public ModelAndView writeTo(HttpServletRequest request, HttpServletResponse response, Context context)
+                throws ServletException, IOException {
+            response.addHeader(HEADER, serverTiming);
+            return delegate.writeTo(request, response, context);
+        }
+    }
+}
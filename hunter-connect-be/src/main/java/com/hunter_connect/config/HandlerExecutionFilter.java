@@ -0,0 +1,82 @@
+package com.hunter_connect.config;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.function.HandlerFilterFunction;
+import org.springframework.web.servlet.function.HandlerFunction;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Decides which thread runs the handler methods.
+ *
+ * hunter.handlers.execution-mode:
+ *   - blocking (default): handlers run on the Tomcat worker thread, as before.
+ *   - virtual: each request is handed to a fresh virtual thread and answered with an
+ *     async ServerResponse, so Tomcat's worker is released while the handler waits on
+ *     ApiFuture.get(). Blocking on Firestore I/O then only parks a cheap virtual thread.
+ *
+ * (spring.threads.virtual.enabled=true is the alternative that moves Tomcat itself
+ * onto virtual threads; this filter only covers the /api routes.)
+ */
+@Component
+public class HandlerExecutionFilter implements HandlerFilterFunction<ServerResponse, ServerResponse> {
+
+    public enum Mode { BLOCKING, VIRTUAL }
+
+    private final Mode mode;
+    private final ExecutorService executor;
+
+    public HandlerExecutionFilter(@Value("${hunter.handlers.execution-mode:blocking}") String mode) {
+        this.mode = Mode.valueOf(mode.trim().toUpperCase());
+        this.executor = this.mode == Mode.VIRTUAL
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("handler-", 0).factory())
+                : null;
+        System.out.println("Handler execution mode: " + this.mode);
+    }
+
+    @Override
+    public ServerResponse filter(ServerRequest request, HandlerFunction<ServerResponse> next) throws Exception {
+        if (mode == Mode.BLOCKING) {
+            return next.handle(request);
+        }
+        return ServerResponse.async(submit(request, next));
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Runs the handler on a virtual thread. The SecurityContext is thread-local, so it is
+     * copied over; otherwise request.principal() would come back empty inside the handler.
+     */
+    CompletableFuture<ServerResponse> submit(ServerRequest request, HandlerFunction<ServerResponse> next) {
+        SecurityContext context = SecurityContextHolder.getContext();
+        return CompletableFuture.supplyAsync(() -> {
+            SecurityContextHolder.setContext(context);
+            try {
+                return next.handle(request);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        }, executor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.hunter_connect.config;
+
+import com.hunter_connect.services.FirestoreGateway;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-caller rate limits on the write routes, and load shedding while Firestore is
+ * backed up. Runs in the security chain right after FirebaseSecurityFilter, so the
+ * caller is the verified UID (or the client IP on public routes). The budgets and the
+ * low-priority routes are declared in SecurityConfig.
+ *
+ * Each (route, caller) pair has a token bucket of `burst` tokens refilled at
+ * `permits` per `period`. It is stored as a single AtomicLong: the time at which the
+ * bucket would be full again (the "theoretical arrival time" of GCRA, which is the
+ * same limit as a token bucket). Taking a token is one compare-and-set, no locks.
+ * A request over budget gets 429 with Retry-After. Full buckets are swept now and then;
+ * the sweep retires a bucket with a compare-and-set too, so a request that took a token
+ * at the same moment either wins (and the bucket stays) or sees it retired and looks
+ * the bucket up again.
+ *
+ * Shedding looks at FirestoreGateway.getInFlight(): above lowPriorityAt the
+ * low-priority reads (list endpoints the client can retry) get 503, above allAt every
+ * rate-limited or low-priority route does. Other routes are never shed.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    // Full buckets are dropped after this many new ones were created
+    private static final int SWEEP_EVERY = 1024;
+    // Refill time of a bucket the sweep removed from the map
+    private static final long RETIRED = Long.MIN_VALUE;
+
+    private final FirestoreGateway firestore;
+    private final int lowPriorityAt;
+    private final int allAt;
+
+    private final List<Rule> rules = new ArrayList<>();
+    private final List<Route> lowPriority = new ArrayList<>();
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong created = new AtomicLong();
+
+    private final LongAdder shedLowPriority = new LongAdder();
+    private final LongAdder shedAll = new LongAdder();
+
+    /**
+     * @param lowPriorityAt in-flight Firestore calls from which low-priority reads are shed
+     * @param allAt         in-flight Firestore calls from which limited routes are shed too
+     */
+    public RateLimitFilter(FirestoreGateway firestore, int lowPriorityAt, int allAt) {
+        this.firestore = firestore;
+        this.lowPriorityAt = lowPriorityAt;
+        this.allAt = allAt;
+    }
+
+    /**
+     * Allows `permits` requests per `period` per caller, with bursts of up to `burst`.
+     */
+    public RateLimitFilter limit(HttpMethod method, String pattern, int permits, Duration period, int burst) {
+        rules.add(new Rule(rules.size(), new Route(method, PathPatternParser.defaultInstance.parse(pattern)),
+                period.toNanos() / permits, burst));
+        return this;
+    }
+
+    /**
+     * Marks a route as the first to be shed when Firestore is backed up.
+     */
+    public RateLimitFilter lowPriority(HttpMethod method, String pattern) {
+        lowPriority.add(new Route(method, PathPatternParser.defaultInstance.parse(pattern)));
+        return this;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        PathContainer path = PathContainer.parsePath(request.getRequestURI());
+        Rule rule = null;
+        for (Rule candidate : rules) {
+            if (candidate.route.matches(request.getMethod(), path)) {
+                rule = candidate;
+                break;
+            }
+        }
+        boolean low = false;
+        for (Route route : lowPriority) {
+            if (route.matches(request.getMethod(), path)) {
+                low = true;
+                break;
+            }
+        }
+
+        // 1. Shed load while Firestore is backed up, cheap reads first
+        if (rule != null || low) {
+            int inFlight = firestore.getInFlight();
+            if (inFlight >= allAt || (low && inFlight >= lowPriorityAt)) {
+                (low ? shedLowPriority : shedAll).increment();
+                reject(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, 1, "Server busy, try again shortly");
+                return;
+            }
+        }
+
+        // 2. Per-caller budget
+        if (rule != null) {
+            String key = rule.id + "|" + caller(request);
+            long waitNanos;
+            do {
+                waitNanos = rule.acquire(bucket(key), System.nanoTime());
+            } while (waitNanos < 0);
+            if (waitNanos > 0) {
+                rule.limited.increment();
+                long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+                reject(response, 429, retryAfter, "Too many requests");
+                return;
+            }
+            rule.allowed.increment();
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Allowed/limited per rule and shedding counters, for GET /api/metrics/limits.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> limits = new LinkedHashMap<>();
+        for (Rule rule : rules) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("perSecond", 1_000_000_000.0 / rule.intervalNanos);
+            entry.put("burst", rule.burst);
+            entry.put("allowed", rule.allowed.sum());
+            entry.put("limited", rule.limited.sum());
+            limits.put(rule.route.toString(), entry);
+        }
+
+        Map<String, Object> shedding = new LinkedHashMap<>();
+        shedding.put("firestoreInFlight", firestore.getInFlight());
+        shedding.put("lowPriorityAt", lowPriorityAt);
+        shedding.put("allAt", allAt);
+        shedding.put("shedLowPriority", shedLowPriority.sum());
+        shedding.put("shedAll", shedAll.sum());
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("limits", limits);
+        body.put("buckets", buckets.size());
+        body.put("shedding", shedding);
+        return body;
+    }
+
+    // ----------- internals -----------
+
+    private AtomicLong bucket(String key) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(System.nanoTime()));
+        if (created.incrementAndGet() % SWEEP_EVERY == 0) {
+            sweep(System.nanoTime());
+        }
+        return bucket;
+    }
+
+    /**
+     * Drops the buckets whose refill time has passed: they are full, the same as a new one.
+     * Only a bucket still idle at the compare-and-set is retired and removed.
+     */
+    private void sweep(long now) {
+        buckets.forEach((key, bucket) -> {
+            long full = bucket.get();
+            if (full != RETIRED && full - now <= 0 && bucket.compareAndSet(full, RETIRED)) {
+                buckets.remove(key, bucket);
+            }
+        });
+    }
+
+    /**
+     * The verified UID, or the client IP for anonymous requests. Behind the load balancer
+     * getRemoteAddr() is the client from X-Forwarded-For (server.forward-headers-strategy),
+     * not the balancer, so anonymous callers do not share one bucket.
+     */
+    private static String caller(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return authentication.getName();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private static void reject(HttpServletResponse response, int status, long retryAfterSeconds, String message)
+            throws IOException {
+        response.setStatus(status);
+        response.setHeader("Retry-After", Long.toString(retryAfterSeconds));
+        response.setContentType("text/plain");
+        response.getWriter().write(message);
+    }
+
+    private record Route(HttpMethod method, PathPattern pattern) {
+        boolean matches(String requestMethod, PathContainer path) {
+            return method.matches(requestMethod) && pattern.matches(path);
+        }
+
+        @Override
+        public String toString() {
+            return method.name() + " " + pattern.getPatternString();
+        }
+    }
+
+    private static final class Rule {
+        final int id;
+        final Route route;
+        final long intervalNanos;
+        final int burst;
+        final LongAdder allowed = new LongAdder();
+        final LongAdder limited = new LongAdder();
+
+        Rule(int id, Route route, long intervalNanos, int burst) {
+            this.id = id;
+            this.route = route;
+            this.intervalNanos = intervalNanos;
+            this.burst = burst;
+        }
+
+        /**
+         * Takes one token. Returns 0 on success, -1 if the bucket was retired by the sweep
+         * (look it up again), otherwise how long until a token is available.
+         * The bucket holds the time it is full again; each token pushes that time out by
+         * one interval, and the bucket is empty once it lies burst intervals ahead.
+         */
+        long acquire(AtomicLong bucket, long now) {
+            while (true) {
+                long full = bucket.get();
+                if (full == RETIRED) {
+                    return -1;
+                }
+                long from = full - now < 0 ? now : full;
+                long next = from + intervalNanos;
+                long over = next - now - burst * intervalNanos;
+                if (over > 0) {
+                    return over;
+                }
+                if (bucket.compareAndSet(full, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
@@ -1,46 +1,72 @@
 package com.hunter_connect.config;
 
+import com.hunter_connect.services.RequestMetrics;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
 
 import java.io.IOException;
 
 /**
- * A global filter that logs the Method, URI, Status, and Duration of every request.
+ * A global filter that times every request and hands the result to RequestMetrics,
+ * which keeps per-route histograms and writes the access log off the request thread.
  */
 @Component
 public class RequestLoggingFilter extends OncePerRequestFilter {
 
+    private final RequestMetrics requestMetrics;
+
+    public RequestLoggingFilter(RequestMetrics requestMetrics) {
+        this.requestMetrics = requestMetrics;
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
 
         // 1. Record Start Time
-        long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
 
         try {
             // 2. Allow the request to proceed to your Security Config and Handlers
             filterChain.doFilter(request, response);
         } finally {
-            // 3. This block runs AFTER the request is finished (successfully or failed)
-            long duration = System.currentTimeMillis() - startTime;
-            int status = response.getStatus();
-            String method = request.getMethod();
-            String uri = request.getRequestURI();
-
-            // 4. Log to Console
-            // Format: [METHOD] /path | Status: 200 | Time: 15ms
-            System.out.println(String.format(
-                    "LOG: [%s] %s | Status: %d | Time: %dms",
-                    method,
-                    uri,
-                    status,
-                    duration
-            ));
+            // 3. Async handlers (virtual-thread mode) finish later; record when they complete
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(request, response, startNanos);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {}
+
+                    @Override
+                    public void onError(AsyncEvent event) {}
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {}
+                });
+            } else {
+                record(request, response, startNanos);
+            }
         }
     }
-}
\ No newline at end of file
+
+    private void record(HttpServletRequest request, HttpServletResponse response, long startNanos) {
+        long duration = System.nanoTime() - startNanos;
+
+        // Set by the router once a route matched, e.g. "/api/events/{id}"
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String route = pattern != null ? pattern.toString() : RequestMetrics.UNMATCHED_ROUTE;
+
+        requestMetrics.record(request.getMethod(), route, request.getRequestURI(), response.getStatus(), duration);
+    }
+}
@@ -1,10 +1,14 @@
 package com.hunter_connect.config;
 
 import com.hunter_connect.handlers.EventHandler;
+import com.hunter_connect.handlers.MetricsHandler;
 import com.hunter_connect.handlers.PostHandler;
+import com.hunter_connect.handlers.SearchHandler;
 import com.hunter_connect.handlers.UserHandler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.servlet.function.RouterFunction;
 import org.springframework.web.servlet.function.ServerRequest;
@@ -20,41 +24,96 @@ import static org.springframework.web.servlet.function.RouterFunctions.route;
 public class RouterFunctionConfig {
 
     @Bean
-    public RouterFunction<ServerResponse> userRoutes(UserHandler userHandler) {
+    public RouterFunction<ServerResponse> userRoutes(UserHandler userHandler, HandlerExecutionFilter executionFilter,
+                                                     FirestoreTimingFilter timingFilter) {
         return route()
                 .path("/api/users", builder -> builder
                         // Public Routes
-                        .GET("", userHandler::getAllUsers)
+                        .GET("", userHandler::getAllUsers) // ?pageSize=&cursor= or ?ids=&fields=
                         .POST("", userHandler::createUser)
 
                         // Protected Routes
                         .PUT("", userHandler::updateUser)
+                        .GET("/suggestions", userHandler::getFriendSuggestions) // must precede /{id}
                         .GET("/{id}", userHandler::getUserById)
-                ).build();
+                        .GET("/{id}/mutual", userHandler::getMutualFriends)
+                )
+                .filter(executionFilter)
+                .filter(timingFilter) // inner: runs on the handler's thread
+                .build();
     }
 
     @Bean
-    public RouterFunction<ServerResponse> postRoutes(PostHandler postHandler) {
+    public RouterFunction<ServerResponse> postRoutes(PostHandler postHandler, HandlerExecutionFilter executionFilter,
+                                                     FirestoreTimingFilter timingFilter) {
         return route()
                 .path("/api/posts", builder -> builder
-                        .GET("", postHandler::getAllPosts)
+                        .GET("", postHandler::getAllPosts) // ?pageSize=&cursor=
+                        .GET("/feed", postHandler::getFeed) // must precede /{id}
                         .GET("/{id}", postHandler::getPostById)
+                        .POST("/{id}/like", postHandler::likePost)
+                        .DELETE("/{id}/like", postHandler::unlikePost)
                         .POST("", postHandler::createPost)
+                        .POST("/batch", postHandler::createPostsBatch)
                         .PUT("", postHandler::updatePost)
-                ).build();
+                )
+                .filter(executionFilter)
+                .filter(timingFilter) // inner: runs on the handler's thread
+                .build();
     }
 
     @Bean
-    public RouterFunction<ServerResponse> eventRoutes(EventHandler eventHandler) {
+    public RouterFunction<ServerResponse> eventRoutes(EventHandler eventHandler, HandlerExecutionFilter executionFilter,
+                                                      FirestoreTimingFilter timingFilter) {
         return route()
                 .path("/api/events", builder -> builder
-                        .GET("", eventHandler::getAllEvents)
+                        .GET("", eventHandler::getAllEvents) // ?pageSize=&cursor=
+                        .GET("/now", eventHandler::getEventsNow) // must precede /{id}
+                        .GET("/range", eventHandler::getEventsInRange) // ?from=&to=
                         .GET("/{id}", eventHandler::getEventById)
+                        .GET("/{id}/friends", eventHandler::getFriendsAttending)
                         .POST("", eventHandler::createEvent)
+                        .POST("/batch", eventHandler::createEventsBatch)
                         .POST("/{id}/subscribe", eventHandler::toggleSubscribe)
                         .PUT("", eventHandler::updateEvent)
+                )
+                .filter(executionFilter)
+                .filter(timingFilter) // inner: runs on the handler's thread
+                .build();
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> searchRoutes(SearchHandler searchHandler, HandlerExecutionFilter executionFilter,
+                                                       FirestoreTimingFilter timingFilter) {
+        return route()
+                .GET("/api/search", searchHandler::search) // ?q=&type=posts|events&limit=
+                .filter(executionFilter)
+                .filter(timingFilter)
+                .build();
+    }
+
+    /**
+     * Server-Sent Events streams. Kept out of the filtered routes above: the stream
+     * manages its own threads, and it has to be matched before the /{id} routes.
+     */
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public RouterFunction<ServerResponse> liveRoutes(PostHandler postHandler, EventHandler eventHandler) {
+        return route()
+                .GET("/api/posts/live", postHandler::streamPosts) // Last-Event-ID or ?lastEventId=
+                .GET("/api/events/live", eventHandler::streamEvents)
+                .build();
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> metricsRoutes(MetricsHandler metricsHandler) {
+        return route()
+                .path("/api/metrics", builder -> builder
+                        .GET("/latency", metricsHandler::getLatency)
+                        .GET("/firestore", metricsHandler::getFirestore)
+                        .GET("/caches", metricsHandler::getCaches)
+                        .GET("/limits", metricsHandler::getLimits)
                 ).build();
     }
 
 }
-
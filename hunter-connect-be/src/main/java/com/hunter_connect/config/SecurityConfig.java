@@ -1,6 +1,9 @@
 package com.hunter_connect.config;
 
+import com.hunter_connect.services.FirestoreGateway;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod; // Import HttpMethod
@@ -13,6 +16,7 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.time.Duration;
 import java.util.List;
 
 @Configuration
@@ -22,13 +26,55 @@ public class SecurityConfig {
     @Autowired
     private FirebaseSecurityFilter firebaseSecurityFilter;
 
+    /**
+     * Per-caller write budgets (keyed by UID, or IP on public routes) and the reads that
+     * are shed first while Firestore is backed up. See RateLimitFilter.
+     */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public RateLimitFilter rateLimitFilter(FirestoreGateway firestore,
+                                           @Value("${hunter.shedding.low-priority-at:64}") int lowPriorityAt,
+                                           @Value("${hunter.shedding.all-at:256}") int allAt) {
+        Duration minute = Duration.ofMinutes(1);
+        return new RateLimitFilter(firestore, lowPriorityAt, allAt)
+                .limit(HttpMethod.POST, "/api/users", 10, minute, 5) // public: per IP
+                .limit(HttpMethod.PUT, "/api/users", 20, minute, 5)
+                .limit(HttpMethod.POST, "/api/posts", 20, minute, 5)
+                .limit(HttpMethod.PUT, "/api/posts", 30, minute, 10)
+                .limit(HttpMethod.POST, "/api/posts/batch", 5, minute, 2)
+                .limit(HttpMethod.POST, "/api/posts/{id}/like", 120, minute, 20)
+                .limit(HttpMethod.DELETE, "/api/posts/{id}/like", 120, minute, 20)
+                .limit(HttpMethod.POST, "/api/events", 20, minute, 5)
+                .limit(HttpMethod.PUT, "/api/events/**", 30, minute, 10)
+                .limit(HttpMethod.POST, "/api/events/batch", 5, minute, 2)
+                .limit(HttpMethod.POST, "/api/events/{id}/subscribe", 60, minute, 10)
+                .lowPriority(HttpMethod.GET, "/api/users")
+                .lowPriority(HttpMethod.GET, "/api/users/suggestions")
+                .lowPriority(HttpMethod.GET, "/api/posts")
+                .lowPriority(HttpMethod.GET, "/api/events")
+                .lowPriority(HttpMethod.GET, "/api/events/{id}/friends");
+    }
+
+    /**
+     * RateLimitFilter is a bean (MetricsHandler reads its counters), so Spring Boot would
+     * also register it as a servlet filter and run it outside the security chain, before
+     * the caller's UID is known. It only belongs in the chain.
+     */
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilterRegistration(RateLimitFilter rateLimitFilter) {
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(rateLimitFilter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
+    @Bean
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, RateLimitFilter rateLimitFilter) throws Exception {
         http
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .csrf(csrf -> csrf.disable())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .addFilterBefore(firebaseSecurityFilter, UsernamePasswordAuthenticationFilter.class)
+                // Needs the UID set by firebaseSecurityFilter
+                .addFilterAfter(rateLimitFilter, FirebaseSecurityFilter.class)
 
                 // This is the new, robust security logic
                 .authorizeHttpRequests(auth -> auth
@@ -36,10 +82,16 @@ public class SecurityConfig {
                         // Public Routes
                         // Allow "create user" (POST) without auth
                         .requestMatchers(HttpMethod.POST, "/api/users").permitAll()
+                        // The feed is personalized, so it needs a token even though /{id} is public
+                        .requestMatchers(HttpMethod.GET, "/api/posts/feed").authenticated()
+                        // Same for the live stream, which holds a connection open
+                        .requestMatchers(HttpMethod.GET, "/api/posts/live").authenticated()
                         .requestMatchers(HttpMethod.GET, "/api/posts").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/posts/{id}").permitAll()
                         .requestMatchers(HttpMethod.POST, "/api/posts").permitAll()
                         .requestMatchers(HttpMethod.PUT, "/api/posts").permitAll()
+                        // The chat handshake checks the token itself (FirebaseHandshakeInterceptor)
+                        .requestMatchers("/ws/chat").permitAll()
 
                         // Secure Routes
                         .requestMatchers("/api/users/**").authenticated()
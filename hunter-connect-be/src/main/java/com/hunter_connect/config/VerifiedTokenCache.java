@@ -0,0 +1,146 @@
+package com.hunter_connect.config;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthException;
+import com.google.firebase.auth.FirebaseToken;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers Firebase ID tokens that already passed verifyIdToken() so the same
+ * token is not signature-checked on every request.
+ *
+ * Entries are keyed by a SHA-256 of the token (the raw token is never stored)
+ * and are dropped as soon as the token's "exp" claim is reached.
+ *
+ * Hits are a plain map lookup. Entries are also queued in insertion order, which is
+ * close to expiry order since every Firebase ID token lives for an hour. A miss trims
+ * the head of that queue: expired entries, then the oldest live ones while the cache is
+ * over maxEntries. Each entry is queued and dequeued once, so eviction is O(1) amortized
+ * instead of a scan of the whole map.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    /** UID and expiry ("exp", in epoch millis; 0 if absent) of a token that passed verification. */
+    public record VerifiedToken(String uid, long expiresAtMillis) {}
+
+    /** Checks a token's signature and expiry; FirebaseAuth.verifyIdToken() outside of tests. */
+    @FunctionalInterface
+    public interface TokenVerifier {
+        VerifiedToken verify(String idToken) throws FirebaseAuthException;
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Every entry put into the map, oldest first; entries replaced or removed since stay until trim() reaches them
+    private final Queue<Queued> order = new ConcurrentLinkedQueue<>();
+    private final int maxEntries;
+    private final TokenVerifier verifier;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public VerifiedTokenCache(@Value("${hunter.auth.token-cache.max-entries:10000}") int maxEntries) {
+        this(maxEntries, VerifiedTokenCache::verifyWithFirebase);
+    }
+
+    public VerifiedTokenCache(int maxEntries, TokenVerifier verifier) {
+        this.maxEntries = maxEntries;
+        this.verifier = verifier;
+    }
+
+    /**
+     * Returns the UID for the token, verifying it with Firebase only on a cache miss.
+     * @throws FirebaseAuthException if the token is invalid or expired
+     */
+    public String verify(String idToken) throws FirebaseAuthException {
+        String key = hash(idToken);
+        long now = System.currentTimeMillis();
+
+        Entry cached = entries.get(key);
+        if (cached != null) {
+            if (now < cached.expiresAtMillis) {
+                hits.increment();
+                return cached.uid;
+            }
+            // Expired: never serve it, fall through and let Firebase reject it
+            if (entries.remove(key, cached)) {
+                evictions.increment();
+            }
+        }
+        misses.increment();
+
+        VerifiedToken verified = verifier.verify(idToken);
+        if (verified.uid() != null) {
+            remember(key, verified.uid(), verified.expiresAtMillis(), now);
+        }
+        return verified.uid();
+    }
+
+    private static VerifiedToken verifyWithFirebase(String idToken) throws FirebaseAuthException {
+        FirebaseToken decodedToken = FirebaseAuth.getInstance(FirebaseConfig.awaitReady()).verifyIdToken(idToken);
+        Object exp = decodedToken.getClaims().get("exp");
+        return new VerifiedToken(decodedToken.getUid(), exp instanceof Number expSeconds ? expSeconds.longValue() * 1000L : 0);
+    }
+
+    private void remember(String key, String uid, long expiresAtMillis, long now) {
+        if (now < expiresAtMillis) {
+            Entry entry = new Entry(uid, expiresAtMillis);
+            entries.put(key, entry);
+            order.add(new Queued(key, entry));
+            trim(now);
+        }
+    }
+
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+    public int size() { return entries.size(); }
+
+    /**
+     * Drops queued entries from the head while they are stale (already replaced or
+     * removed), expired, or the cache is over maxEntries. Stops at the first entry that
+     * may stay, so a call only touches the entries it removes.
+     */
+    private synchronized void trim(long now) {
+        Queued head;
+        while ((head = order.peek()) != null) {
+            boolean current = entries.get(head.key) == head.entry;
+            if (current && now < head.entry.expiresAtMillis && entries.size() <= maxEntries) {
+                return;
+            }
+            order.poll();
+            if (current && entries.remove(head.key, head.entry)) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private static String hash(String idToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] bytes = digest.digest(idToken.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM is required to ship SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Entry(String uid, long expiresAtMillis) {}
+
+    private record Queued(String key, Entry entry) {}
+}
@@ -0,0 +1,28 @@
+package com.hunter_connect.config;
+
+import com.hunter_connect.handlers.ChatHandler;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final ChatHandler chatHandler;
+    private final FirebaseHandshakeInterceptor handshakeInterceptor;
+
+    public WebSocketConfig(ChatHandler chatHandler, FirebaseHandshakeInterceptor handshakeInterceptor) {
+        this.chatHandler = chatHandler;
+        this.handshakeInterceptor = handshakeInterceptor;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(chatHandler, "/ws/chat")
+                .addInterceptors(handshakeInterceptor)
+                // Same policy as corsConfigurationSource(); the token check replaces an origin check
+                .setAllowedOriginPatterns("*");
+    }
+}
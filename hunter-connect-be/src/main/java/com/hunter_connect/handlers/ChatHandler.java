@@ -1,4 +1,101 @@
 package com.hunter_connect.handlers;
 
-public class ChatHandler {
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hunter_connect.config.FirebaseHandshakeInterceptor;
+import com.hunter_connect.services.ChatService;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+/**
+ * WebSocket endpoint for chat (/ws/chat).
+ *
+ * Client frames:
+ *   { "type": "send", "conversationId": "...", "text": "...", "clientId": "..." }
+ *   { "type": "history", "conversationId": "...", "cursor": "...", "limit": 50 }
+ *
+ * Server frames:
+ *   { "type": "message", "message": {...}, "clientId": "..." }   (to every participant, including the sender)
+ *   { "type": "history", "conversationId": "...", "messages": [...], "nextCursor": "..." }
+ *   { "type": "error", "clientId": "...", "message": "..." }
+ */
+@Component
+public class ChatHandler extends TextWebSocketHandler {
+
+    private final ObjectMapper objectMapper;
+    private final ChatService chatService;
+
+    public ChatHandler(ObjectMapper objectMapper, ChatService chatService) {
+        this.objectMapper = objectMapper;
+        this.chatService = chatService;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        chatService.connect(uid(session), session);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        chatService.disconnect(uid(session), session);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        ChatFrame frame;
+        try {
+            frame = objectMapper.readValue(message.getPayload(), ChatFrame.class);
+        } catch (Exception e) {
+            sendError(session, null, "Malformed frame: " + e.getMessage());
+            return;
+        }
+
+        String uid = uid(session);
+        String type = frame.type() != null ? frame.type() : "";
+        switch (type) {
+            case "send" -> chatService.send(uid, frame.conversationId(), frame.text(), frame.clientId())
+                    .exceptionally(e -> {
+                        sendError(session, frame.clientId(), "Error sending message: " + cause(e).getMessage());
+                        return null;
+                    });
+            case "history" -> chatService.history(uid, frame.conversationId(), frame.cursor(),
+                            frame.limit() != null ? frame.limit() : ChatService.DEFAULT_HISTORY_SIZE)
+                    .whenComplete((page, e) -> {
+                        if (e != null) {
+                            sendError(session, frame.clientId(), "Error fetching history: " + cause(e).getMessage());
+                        } else {
+                            chatService.reply(session, page);
+                        }
+                    });
+            default -> sendError(session, frame.clientId(), "Unknown frame type: " + type);
+        }
+    }
+
+    private void sendError(WebSocketSession session, String clientId, String message) {
+        Map<String, Object> frame = new LinkedHashMap<>();
+        frame.put("type", "error");
+        frame.put("clientId", clientId);
+        frame.put("message", message);
+        chatService.reply(session, frame);
+    }
+
+    private static String uid(WebSocketSession session) {
+        return (String) session.getAttributes().get(FirebaseHandshakeInterceptor.UID_ATTRIBUTE);
+    }
+
+    private static Throwable cause(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    /**
+     * Any client frame; fields that do not apply to the type are null.
+     */
+    public record ChatFrame(String type, String conversationId, String text, String clientId,
+                            String cursor, Integer limit) {}
 }
@@ -1,28 +1,74 @@
 package com.hunter_connect.handlers;
 
-import com.google.api.core.ApiFuture;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.*;
-import com.google.firebase.cloud.FirestoreClient;
 import com.hunter_connect.models.Event;
+import com.hunter_connect.services.AttendanceCoalescer;
+import com.hunter_connect.services.CollectionVersions;
+import com.hunter_connect.services.EventIntervalIndex;
+import com.hunter_connect.services.FirestoreGateway;
+import com.hunter_connect.services.FriendGraph;
+import com.hunter_connect.services.LiveFeed;
+import com.hunter_connect.services.ResponseCache;
+import com.hunter_connect.services.SearchIndex;
+import com.hunter_connect.services.UserProfileCache;
+import com.hunter_connect.util.EventFilter;
+import com.hunter_connect.util.StreamingQueryResponse;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.function.ServerRequest;
 import org.springframework.web.servlet.function.ServerResponse;
 
 import java.net.URI;
 import java.security.Principal;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 @Component
 public class EventHandler {
 
     private static final String COLLECTION_NAME = "events";
 
+    // Firestore caps a WriteBatch at 500 writes
+    private static final int MAX_BATCH_SIZE = 500;
+
+    // Bounds for /now?next= (minutes) and /range
+    private static final int MAX_NEXT_MINUTES = 24 * 60;
+    private static final long MAX_RANGE_DAYS = 366;
+
+    private final ObjectMapper objectMapper;
+    private final FirestoreGateway firestore;
+    private final UserProfileCache userProfileCache;
+    private final FriendGraph friendGraph;
+    private final AttendanceCoalescer attendanceCoalescer;
+    private final LiveFeed liveFeed;
+    private final CollectionVersions versions;
+    private final ResponseCache responseCache;
+    private final SearchIndex searchIndex;
+    private final EventIntervalIndex intervalIndex;
+
+    public EventHandler(ObjectMapper objectMapper, FirestoreGateway firestore, UserProfileCache userProfileCache,
+                        FriendGraph friendGraph, AttendanceCoalescer attendanceCoalescer, LiveFeed liveFeed,
+                        CollectionVersions versions, ResponseCache responseCache, SearchIndex searchIndex,
+                        EventIntervalIndex intervalIndex) {
+        this.objectMapper = objectMapper;
+        this.firestore = firestore;
+        this.userProfileCache = userProfileCache;
+        this.friendGraph = friendGraph;
+        this.attendanceCoalescer = attendanceCoalescer;
+        this.liveFeed = liveFeed;
+        this.versions = versions;
+        this.responseCache = responseCache;
+        this.searchIndex = searchIndex;
+        this.intervalIndex = intervalIndex;
+    }
+
     /**
      * Handles POST /api/events
      * Creates a new event with an auto-generated ID.
@@ -39,38 +85,19 @@ public class EventHandler {
             Event newEvent = request.body(Event.class);
 
             // 3. Server-side validation/defaults
-            Firestore db = FirestoreClient.getFirestore();
-
-            // MIGRATED LOGIC: Fetch the user's name server-side
-            DocumentSnapshot userDoc = db.collection("users").document(creatorUid).get().get();
-            String creatorName = "Unknown";
-            if (userDoc.exists()) {
-                String first = userDoc.getString("firstName");
-                String last = userDoc.getString("lastName");
-                creatorName = (first != null ? first : "") + " " + (last != null ? last : "");
-                creatorName = creatorName.trim();
-            }
-
-            newEvent.setCreatedBy(creatorUid);
-            newEvent.setCreatorName(creatorName);
-            newEvent.setCreatedAt(Timestamp.now());
-
-            // Ensure lists are initialized if null
-            if (newEvent.getAttendees() == null) newEvent.setAttendees(List.of());
+            // MIGRATED LOGIC: Fetch the user's name server-side (served from the profile cache when warm)
+            String creatorName = userProfileCache.getDisplayName(creatorUid);
 
             // 4. Save to Firestore
+            // The ID is generated client-side so the 'id' field is part of the one and only write
+            DocumentReference docRef = firestore.collection(COLLECTION_NAME).document();
+            prepareNewEvent(newEvent, docRef.getId(), creatorUid, creatorName);
 
-            // We use .add() to let Firestore generate a random Document ID
-            ApiFuture<DocumentReference> future = db.collection(COLLECTION_NAME).add(newEvent);
-
-            DocumentReference docRef = future.get();
+            WriteResult result = firestore.await(COLLECTION_NAME, "create", () -> docRef.create(newEvent));
             String newEventId = docRef.getId();
-
-            // This ensures the 'id' field exists inside the document data
-            docRef.update("id", newEventId);
-
-            // Also update our local object so the response is correct (optional but good practice)
-            newEvent.setId(newEventId);
+            searchIndex.index(newEvent);
+            intervalIndex.index(newEvent);
+            versions.changed(COLLECTION_NAME, newEventId, result.getUpdateTime());
 
             System.out.println("Created event " + newEventId + " by " + creatorName);
 
@@ -84,25 +111,115 @@ public class EventHandler {
         }
     }
 
+    /**
+     * Handles POST /api/events/batch
+     * Imports a JSON array of events in a single atomic WriteBatch.
+     */
+    public ServerResponse createEventsBatch(ServerRequest request) {
+        try {
+            Principal principal = request.principal()
+                    .orElseThrow(() -> new SecurityException("No auth token found"));
+            String creatorUid = principal.getName();
+
+            List<Event> newEvents = request.body(new ParameterizedTypeReference<List<Event>>() {});
+            if (newEvents.isEmpty() || newEvents.size() > MAX_BATCH_SIZE) {
+                return ServerResponse.badRequest().body("Batch must contain between 1 and " + MAX_BATCH_SIZE + " events");
+            }
+
+            Firestore db = firestore.db();
+            String creatorName = userProfileCache.getDisplayName(creatorUid);
+
+            WriteBatch batch = db.batch();
+            List<String> ids = new ArrayList<>(newEvents.size());
+            for (Event newEvent : newEvents) {
+                DocumentReference docRef = db.collection(COLLECTION_NAME).document();
+                prepareNewEvent(newEvent, docRef.getId(), creatorUid, creatorName);
+                batch.create(docRef, newEvent);
+                ids.add(docRef.getId());
+            }
+
+            // One commit for the whole import; either every event is written or none is
+            List<WriteResult> results = firestore.await(COLLECTION_NAME, "batch", batch::commit);
+            for (int i = 0; i < ids.size(); i++) {
+                searchIndex.index(newEvents.get(i));
+                intervalIndex.index(newEvents.get(i));
+                versions.changed(COLLECTION_NAME, ids.get(i), results.get(i).getUpdateTime());
+            }
+
+            System.out.println("Created " + ids.size() + " events by " + creatorName);
+
+            return ServerResponse.status(201).body(Map.of("ids", ids, "message", "Events created successfully"));
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ServerResponse.badRequest().body("Error creating events: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Fills in the server-managed fields of an event that is about to be created.
+     */
+    private static void prepareNewEvent(Event newEvent, String id, String creatorUid, String creatorName) {
+        newEvent.setId(id);
+        newEvent.setCreatedBy(creatorUid);
+        newEvent.setCreatorName(creatorName);
+        newEvent.setCreatedAt(Timestamp.now());
+
+        // Ensure lists are initialized if null
+        if (newEvent.getAttendees() == null) newEvent.setAttendees(List.of());
+    }
+
+    /**
+     * Rebuilds the event as stored after a merge write, from the pre-update snapshot
+     * and the non-null fields of the request body.
+     */
+    private static Event applyUpdates(DocumentSnapshot existingDoc, Event updates) {
+        Event event = existingDoc.toObject(Event.class);
+        if (event.getId() == null) {
+            event.setId(existingDoc.getId());
+        }
+        if (updates.getTitle() != null) event.setTitle(updates.getTitle());
+        if (updates.getDescription() != null) event.setDescription(updates.getDescription());
+        if (updates.getLocation() != null) event.setLocation(updates.getLocation());
+        if (updates.getDate() != null) event.setDate(updates.getDate());
+        if (updates.getStartTime() != null) event.setStartTime(updates.getStartTime());
+        if (updates.getEndTime() != null) event.setEndTime(updates.getEndTime());
+        if (updates.getTags() != null) event.setTags(updates.getTags());
+        if (updates.getAttendees() != null) event.setAttendees(updates.getAttendees());
+        return event;
+    }
+
     /**
      * Handles GET /api/events
-     * Fetches ALL events.
-     * Logic Update: Filtering has been removed. The frontend will decide what to display.
+     * Streams events to the client as Firestore returns them.
+     * Optional filters (from, to, course, tag, createdBy, attending=me) are applied
+     * server-side; see EventFilter for which ones Firestore evaluates.
+     * Optional ?pageSize=&cursor= switch to cursor-based paging (see StreamingQueryResponse).
      */
     public ServerResponse getAllEvents(ServerRequest request) {
         try {
-            Firestore db = FirestoreClient.getFirestore();
-
-            // Fetch all documents from the collection
-            ApiFuture<QuerySnapshot> future = db.collection(COLLECTION_NAME).get();
-            List<QueryDocumentSnapshot> documents = future.get().getDocuments();
+            String callerUid = request.principal().map(Principal::getName).orElse(null);
+            EventFilter filter = EventFilter.fromRequest(request, callerUid);
+            EventFilter.Plan plan = filter.plan(firestore.collection(COLLECTION_NAME), StreamingQueryResponse.isPaged(request));
+
+            // Filters are in the query string and attending=me depends on the caller; both are part of the ETag
+            boolean perCaller = request.param("attending").isPresent();
+            String eTag = versions.listTag(COLLECTION_NAME, request, perCaller);
+            Optional<ServerResponse> notModified = eTag != null ? request.checkNotModified(eTag) : Optional.empty();
+            if (notModified.isPresent()) {
+                return notModified.get();
+            }
 
-            // Convert to Event POJOs
-            List<Event> events = documents.stream()
-                    .map(doc -> doc.toObject(Event.class))
-                    .collect(Collectors.toList());
+            String cacheKey = ResponseCache.key(COLLECTION_NAME, request, perCaller);
+            ServerResponse cached = responseCache.get(cacheKey, eTag, request);
+            if (cached != null) {
+                return cached;
+            }
 
-            return ServerResponse.ok().body(events);
+            return StreamingQueryResponse.of(request, objectMapper, plan.query(), 0, doc -> {
+                Event event = doc.toObject(Event.class);
+                return event != null && plan.residual().test(event) ? event : null;
+            }, firestore.observeStream(COLLECTION_NAME), eTag, responseCache.fill(cacheKey, eTag));
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -110,19 +227,91 @@ public class EventHandler {
         }
     }
 
+    /**
+     * Handles GET /api/events/now
+     * Events in progress right now, from the in-memory EventIntervalIndex.
+     * ?next=N (minutes, max 1440) also includes events starting within the next N minutes.
+     */
+    public ServerResponse getEventsNow(ServerRequest request) {
+        try {
+            int next = request.param("next").map(Integer::parseInt).orElse(0);
+            if (next < 0 || next > MAX_NEXT_MINUTES) {
+                return ServerResponse.badRequest().body("next must be between 0 and " + MAX_NEXT_MINUTES);
+            }
+
+            Timestamp now = Timestamp.now();
+            Timestamp until = Timestamp.ofTimeSecondsAndNanos(now.getSeconds() + next * 60L, 0);
+            return ServerResponse.ok().body(intervalIndex.overlapping(now, until));
+
+        } catch (Exception e) {
+            return ServerResponse.badRequest().body("Error fetching current events: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles GET /api/events/range?from=&to=
+     * Events overlapping [from, to] (ISO-8601 or epoch millis), ordered by start time.
+     * Served from EventIntervalIndex, so from may not lie before the retention window.
+     */
+    public ServerResponse getEventsInRange(ServerRequest request) {
+        try {
+            Timestamp from = EventFilter.parseTime(request.param("from")
+                    .orElseThrow(() -> new IllegalArgumentException("'from' is required")));
+            Timestamp to = EventFilter.parseTime(request.param("to")
+                    .orElseThrow(() -> new IllegalArgumentException("'to' is required")));
+            if (from.compareTo(to) > 0) {
+                return ServerResponse.badRequest().body("'from' must not be after 'to'");
+            }
+            if (to.getSeconds() - from.getSeconds() > MAX_RANGE_DAYS * 24 * 3600) {
+                return ServerResponse.badRequest().body("Range must not exceed " + MAX_RANGE_DAYS + " days");
+            }
+
+            return ServerResponse.ok().body(intervalIndex.overlapping(from, to));
+
+        } catch (Exception e) {
+            return ServerResponse.badRequest().body("Error fetching events in range: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles GET /api/events/live
+     * Server-Sent Events stream of event changes ("added", "modified", "removed"),
+     * each carrying {"id": ..., "data": Event}. Resumes from Last-Event-ID; see LiveFeed.
+     */
+    public ServerResponse streamEvents(ServerRequest request) {
+        try {
+            return liveFeed.subscribe(request, COLLECTION_NAME, document -> {
+                Event event = document.toObject(Event.class);
+                if (event != null && event.getId() == null) {
+                    event.setId(document.getId());
+                }
+                return event;
+            });
+
+        } catch (Exception e) {
+            return ServerResponse.badRequest().body("Error opening event stream: " + e.getMessage());
+        }
+    }
+
     /**
      * Handles GET /api/events/{id}
      */
     public ServerResponse getEventById(ServerRequest request) {
         try {
             String eventId = request.pathVariable("id");
-            Firestore db = FirestoreClient.getFirestore();
 
-            DocumentSnapshot document = db.collection(COLLECTION_NAME).document(eventId).get().get();
+            String eTag = versions.documentTag(COLLECTION_NAME, eventId);
+            Optional<ServerResponse> notModified = eTag != null ? request.checkNotModified(eTag) : Optional.empty();
+            if (notModified.isPresent()) {
+                return notModified.get();
+            }
+
+            DocumentSnapshot document = firestore.await(COLLECTION_NAME, "get",
+                    () -> firestore.collection(COLLECTION_NAME).document(eventId).get());
 
             if (document.exists()) {
                 Event event = document.toObject(Event.class);
-                return ServerResponse.ok().body(event);
+                return eTag != null ? ServerResponse.ok().eTag(eTag).body(event) : ServerResponse.ok().body(event);
             } else {
                 return ServerResponse.notFound().build();
             }
@@ -132,6 +321,35 @@ public class EventHandler {
         }
     }
 
+    /**
+     * Handles GET /api/events/{id}/friends
+     * Which of the caller's friends are attending the event (from the in-memory FriendGraph).
+     */
+    public ServerResponse getFriendsAttending(ServerRequest request) {
+        try {
+            String eventId = request.pathVariable("id");
+
+            Principal principal = request.principal()
+                    .orElseThrow(() -> new SecurityException("No auth token found"));
+
+            DocumentSnapshot document = firestore.await(COLLECTION_NAME, "get",
+                    () -> firestore.collection(COLLECTION_NAME).document(eventId).get());
+            if (!document.exists()) {
+                return ServerResponse.notFound().build();
+            }
+
+            List<String> attendees = (List<String>) document.get("attendees");
+            if (attendees == null) attendees = List.of();
+
+            List<String> friends = friendGraph.friendsAmong(principal.getName(), attendees);
+            return ServerResponse.ok().body(Map.of("count", friends.size(), "uids", friends));
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ServerResponse.badRequest().body("Error fetching friends attending: " + e.getMessage());
+        }
+    }
+
     /**
      * Handles PUT /api/events/{id}
      * Updates an event, but ONLY if the requester is the creator.
@@ -145,11 +363,10 @@ public class EventHandler {
                     .orElseThrow(() -> new SecurityException("No auth token found"));
             String requesterUid = principal.getName();
 
-            Firestore db = FirestoreClient.getFirestore();
-            DocumentReference eventRef = db.collection(COLLECTION_NAME).document(eventId);
+            DocumentReference eventRef = firestore.collection(COLLECTION_NAME).document(eventId);
 
             // 2. SECURITY CHECK: Fetch existing doc to verify ownership
-            DocumentSnapshot existingDoc = eventRef.get().get();
+            DocumentSnapshot existingDoc = firestore.await(COLLECTION_NAME, "get", eventRef::get);
 
             if (!existingDoc.exists()) {
                 return ServerResponse.notFound().build();
@@ -177,7 +394,11 @@ public class EventHandler {
             if (updates.getAttendees() != null) dataToUpdate.put("attendees", updates.getAttendees());
 
             // 4. Update
-            eventRef.set(dataToUpdate, SetOptions.merge()).get();
+            WriteResult result = firestore.await(COLLECTION_NAME, "merge", dataToUpdate, () -> eventRef.set(dataToUpdate, SetOptions.merge()));
+            Event updated = applyUpdates(existingDoc, updates);
+            searchIndex.index(updated);
+            intervalIndex.index(updated);
+            versions.changed(COLLECTION_NAME, eventId, result.getUpdateTime());
 
             return ServerResponse.ok().body(dataToUpdate);
 
@@ -190,6 +411,10 @@ public class EventHandler {
      * Handles POST /api/events/{id}/subscribe
      * Toggles subscription (attendance) for the authenticated user.
      * Logic Migrated: Replaces arrayUnion/arrayRemove logic from frontend.
+     * Writes go through AttendanceCoalescer instead of a per-request transaction.
+     * Joining an event that overlaps one the caller already attends answers 409 with the
+     * clashing events (checked against EventIntervalIndex); ?force=true joins anyway.
+     * Leaving is never refused.
      */
     public ServerResponse toggleSubscribe(ServerRequest request) {
         try {
@@ -200,30 +425,27 @@ public class EventHandler {
                     .orElseThrow(() -> new SecurityException("No auth token found"));
             String uid = principal.getName();
 
-            Firestore db = FirestoreClient.getFirestore();
-            DocumentReference eventRef = db.collection(COLLECTION_NAME).document(eventId);
-
-            // 2. Run Transaction to safely toggle
-            String resultMessage = db.runTransaction(transaction -> {
-                DocumentSnapshot snapshot = transaction.get(eventRef).get();
-                if (!snapshot.exists()) {
-                    throw new IllegalArgumentException("Event not found");
+            // 2. Queue the toggle; concurrent toggles on the same event share one write.
+            // Once the coalescer knows it is a join (from the stored or queued attendance),
+            // refuse it if it clashes with an event the caller attends, unless ?force=true
+            boolean force = request.param("force").map(Boolean::parseBoolean).orElse(false);
+            List<Event> conflicts = new ArrayList<>();
+            CompletableFuture<Boolean> toggled = attendanceCoalescer.toggle(eventId, uid, () -> {
+                if (!force) {
+                    conflicts.addAll(intervalIndex.conflicts(eventId, uid));
                 }
+                return conflicts.isEmpty();
+            });
+            if (toggled == null) {
+                return ServerResponse.status(409).body(Map.of("status", "Conflict", "conflicts", conflicts));
+            }
 
-                // We safely cast the field to a List
-                List<String> attendees = (List<String>) snapshot.get("attendees");
-                if (attendees == null) attendees = List.of();
-
-                if (attendees.contains(uid)) {
-                    // Remove user
-                    transaction.update(eventRef, "attendees", FieldValue.arrayRemove(uid));
-                    return "Unsubscribed";
-                } else {
-                    // Add user
-                    transaction.update(eventRef, "attendees", FieldValue.arrayUnion(uid));
-                    return "Subscribed";
-                }
-            }).get();
+            // 3. Wait for the write
+            boolean subscribed = toggled.get();
+            intervalIndex.setAttending(eventId, uid, subscribed);
+            // Written by now; the exact update time arrives with the next listener snapshot
+            versions.changed(COLLECTION_NAME, eventId, null);
+            String resultMessage = subscribed ? "Subscribed" : "Unsubscribed";
 
             return ServerResponse.ok().body(Map.of("status", resultMessage, "userId", uid));
 
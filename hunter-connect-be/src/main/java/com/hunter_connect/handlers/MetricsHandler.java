@@ -0,0 +1,101 @@
+package com.hunter_connect.handlers;
+
+import com.hunter_connect.config.RateLimitFilter;
+import com.hunter_connect.config.VerifiedTokenCache;
+import com.hunter_connect.services.FirestoreGateway;
+import com.hunter_connect.services.RequestMetrics;
+import com.hunter_connect.services.ResponseCache;
+import com.hunter_connect.services.UserProfileCache;
+import com.hunter_connect.services.UserUpdateCoalescer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read-only view of the in-process metrics: request latency per route, Firestore calls
+ * and cache hit rates.
+ */
+@Component
+public class MetricsHandler {
+
+    private final RequestMetrics requestMetrics;
+    private final VerifiedTokenCache tokenCache;
+    private final UserProfileCache userProfileCache;
+    private final FirestoreGateway firestore;
+    private final ResponseCache responseCache;
+    private final RateLimitFilter rateLimitFilter;
+    private final UserUpdateCoalescer userUpdates;
+
+    public MetricsHandler(RequestMetrics requestMetrics, VerifiedTokenCache tokenCache,
+                          UserProfileCache userProfileCache, FirestoreGateway firestore,
+                          ResponseCache responseCache, RateLimitFilter rateLimitFilter,
+                          UserUpdateCoalescer userUpdates) {
+        this.requestMetrics = requestMetrics;
+        this.tokenCache = tokenCache;
+        this.userProfileCache = userProfileCache;
+        this.firestore = firestore;
+        this.responseCache = responseCache;
+        this.rateLimitFilter = rateLimitFilter;
+        this.userUpdates = userUpdates;
+    }
+
+    /**
+     * Handles GET /api/metrics/latency
+     * Percentiles in milliseconds for every "METHOD /route/{template}" seen since startup.
+     */
+    public ServerResponse getLatency(ServerRequest request) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("routes", requestMetrics.snapshot());
+        body.put("droppedLogLines", requestMetrics.getDroppedLogLines());
+        return ServerResponse.ok().body(body);
+    }
+
+    /**
+     * Handles GET /api/metrics/firestore
+     * Calls, documents, approximate bytes and latency per "collection operation".
+     */
+    public ServerResponse getFirestore(ServerRequest request) {
+        return ServerResponse.ok().body(firestore.snapshot());
+    }
+
+    /**
+     * Handles GET /api/metrics/limits
+     * Allowed/limited requests per rate-limited route, and load-shedding counters.
+     */
+    public ServerResponse getLimits(ServerRequest request) {
+        return ServerResponse.ok().body(rateLimitFilter.snapshot());
+    }
+
+    /**
+     * Handles GET /api/metrics/caches
+     */
+    public ServerResponse getCaches(ServerRequest request) {
+        Map<String, Object> tokens = new LinkedHashMap<>();
+        tokens.put("size", tokenCache.size());
+        tokens.put("hits", tokenCache.getHits());
+        tokens.put("misses", tokenCache.getMisses());
+        tokens.put("evictions", tokenCache.getEvictions());
+
+        Map<String, Object> profiles = new LinkedHashMap<>();
+        profiles.put("size", userProfileCache.size());
+        profiles.put("hits", userProfileCache.getHits());
+        profiles.put("misses", userProfileCache.getMisses());
+        profiles.put("hitRate", userProfileCache.getHitRate());
+
+        Map<String, Object> responses = new LinkedHashMap<>();
+        responses.put("size", responseCache.size());
+        responses.put("hits", responseCache.getHits());
+        responses.put("misses", responseCache.getMisses());
+        responses.put("bytes", responseCache.getBytes());
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("verifiedTokens", tokens);
+        body.put("userProfiles", profiles);
+        body.put("listResponses", responses);
+        body.put("userWriteBehind", userUpdates.snapshot());
+        return ServerResponse.ok().body(body);
+    }
+}
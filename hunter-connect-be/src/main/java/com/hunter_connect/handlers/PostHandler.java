@@ -1,10 +1,20 @@
 package com.hunter_connect.handlers;
 
-import com.google.api.core.ApiFuture;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.*;
-import com.google.firebase.cloud.FirestoreClient;
 import com.hunter_connect.models.Post;
+import com.hunter_connect.models.User;
+import com.hunter_connect.services.CollectionVersions;
+import com.hunter_connect.services.FirestoreGateway;
+import com.hunter_connect.services.LiveFeed;
+import com.hunter_connect.services.PostFeedIndex;
+import com.hunter_connect.services.PostLikeCounter;
+import com.hunter_connect.services.ResponseCache;
+import com.hunter_connect.services.SearchIndex;
+import com.hunter_connect.services.UserProfileCache;
+import com.hunter_connect.util.StreamingQueryResponse;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.function.ServerRequest;
 import org.springframework.web.servlet.function.ServerResponse;
@@ -14,7 +24,7 @@ import java.security.Principal;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Optional;
 
 /**
  * Handles the business logic for post-related requests.
@@ -22,38 +32,70 @@ import java.util.stream.Collectors;
 @Component
 public class PostHandler {
 
-    public PostHandler() {
+    // Number of posts returned when the client does not ask for a page
+    private static final int LEGACY_LIMIT = 50;
+
+    // Firestore caps a WriteBatch at 500 writes
+    private static final int MAX_BATCH_SIZE = 500;
+
+    // Upper bound for ?limit= on the feed
+    private static final int MAX_FEED_SIZE = 50;
+
+    private final ObjectMapper objectMapper;
+    private final FirestoreGateway firestore;
+    private final PostFeedIndex feedIndex;
+    private final UserProfileCache userProfileCache;
+    private final PostLikeCounter likeCounter;
+    private final LiveFeed liveFeed;
+    private final CollectionVersions versions;
+    private final ResponseCache responseCache;
+    private final SearchIndex searchIndex;
+
+    public PostHandler(ObjectMapper objectMapper, FirestoreGateway firestore, PostFeedIndex feedIndex,
+                       UserProfileCache userProfileCache, PostLikeCounter likeCounter, LiveFeed liveFeed,
+                       CollectionVersions versions, ResponseCache responseCache, SearchIndex searchIndex) {
+        this.objectMapper = objectMapper;
+        this.firestore = firestore;
+        this.feedIndex = feedIndex;
+        this.userProfileCache = userProfileCache;
+        this.likeCounter = likeCounter;
+        this.liveFeed = liveFeed;
+        this.versions = versions;
+        this.responseCache = responseCache;
+        this.searchIndex = searchIndex;
     }
 
     /**
      * Handles GET /api/posts
-     * Fetches ALL posts from the Firestore collection.
+     * Streams posts from the Firestore collection as they arrive.
+     * Without paging params this keeps the old behaviour of returning the first 50 posts;
+     * ?pageSize=&cursor= walk the whole collection page by page.
+     * If-None-Match with the current ETag answers 304 without reading; otherwise an
+     * unchanged list is served from ResponseCache.
      */
     public ServerResponse getAllPosts(ServerRequest request) {
         try {
-            Firestore db = FirestoreClient.getFirestore();
-
-            // 1. Get the entire collection
-            // In production, consider adding .limit(50) here!
-            ApiFuture<QuerySnapshot> future = db.collection("posts").limit(50).get();
+            String eTag = versions.listTag("posts", request, false);
+            Optional<ServerResponse> notModified = eTag != null ? request.checkNotModified(eTag) : Optional.empty();
+            if (notModified.isPresent()) {
+                return notModified.get();
+            }
 
-            // 2. Wait for the query to complete
-            List<QueryDocumentSnapshot> documents = future.get().getDocuments();
+            String cacheKey = ResponseCache.key("posts", request, false);
+            ServerResponse cached = responseCache.get(cacheKey, eTag, request);
+            if (cached != null) {
+                return cached;
+            }
 
-            // 3. Convert Firestore documents to Post objects
-            List<Post> postList = documents.stream()
-                    .map(document -> {
+            return StreamingQueryResponse.of(request, objectMapper, firestore.collection("posts"), LEGACY_LIMIT,
+                    document -> {
                         Post p = document.toObject(Post.class);
                         // Ensure the ID is set on the object from the doc ID if missing
                         if (p.getPostID() == null) {
                             p.setPostID(document.getId());
                         }
-                        return p;
-                    })
-                    .collect(Collectors.toList());
-
-            // 4. Return the list
-            return ServerResponse.ok().body(postList);
+                        return likeCounter.applyPending(p);
+                    }, firestore.observeStream("posts"), eTag, responseCache.fill(cacheKey, eTag));
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -61,6 +103,57 @@ public class PostHandler {
         }
     }
 
+    /**
+     * Handles GET /api/posts/live
+     * Server-Sent Events stream of post changes ("added", "modified", "removed"),
+     * each carrying {"id": ..., "data": Post}. Resumes from Last-Event-ID; see LiveFeed.
+     */
+    public ServerResponse streamPosts(ServerRequest request) {
+        try {
+            return liveFeed.subscribe(request, "posts", document -> {
+                Post p = document.toObject(Post.class);
+                if (p != null && p.getPostID() == null) {
+                    p.setPostID(document.getId());
+                }
+                return p;
+            });
+
+        } catch (Exception e) {
+            return ServerResponse.badRequest().body("Error opening post stream: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles GET /api/posts/feed
+     * Recent posts ranked by how many of their tags match the caller's preferences
+     * (courses, interests, skills) and by recency. Served from PostFeedIndex.
+     */
+    public ServerResponse getFeed(ServerRequest request) {
+        try {
+            Principal principal = request.principal()
+                    .orElseThrow(() -> new SecurityException("No auth token found"));
+            String authenticatedUid = principal.getName();
+
+            int limit = request.param("limit").map(Integer::parseInt).orElse(20);
+            if (limit < 1 || limit > MAX_FEED_SIZE) {
+                return ServerResponse.badRequest().body("limit must be between 1 and " + MAX_FEED_SIZE);
+            }
+
+            User.Preferences preferences = userProfileCache.get(authenticatedUid)
+                    .map(User::getPreferences)
+                    .orElse(null);
+
+            List<Post> feed = feedIndex.feed(preferences, limit).stream()
+                    .map(likeCounter::applyPending)
+                    .toList();
+            return ServerResponse.ok().body(feed);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ServerResponse.badRequest().body("Error building feed: " + e.getMessage());
+        }
+    }
+
     /**
      * Handles GET /api/posts/{id}
      * Fetches a single post document by ID.
@@ -68,14 +161,19 @@ public class PostHandler {
     public ServerResponse getPostById(ServerRequest request) {
         try {
             String targetUid = request.pathVariable("id");
-            Firestore db = FirestoreClient.getFirestore();
 
-            ApiFuture<DocumentSnapshot> future = db.collection("posts").document(targetUid).get();
-            DocumentSnapshot document = future.get();
+            String eTag = versions.documentTag("posts", targetUid);
+            Optional<ServerResponse> notModified = eTag != null ? request.checkNotModified(eTag) : Optional.empty();
+            if (notModified.isPresent()) {
+                return notModified.get();
+            }
+
+            DocumentSnapshot document = firestore.await("posts", "get",
+                    () -> firestore.collection("posts").document(targetUid).get());
 
             if (document.exists()) {
-                Post post = document.toObject(Post.class);
-                return ServerResponse.ok().body(post);
+                Post post = likeCounter.applyPending(document.toObject(Post.class));
+                return eTag != null ? ServerResponse.ok().eTag(eTag).body(post) : ServerResponse.ok().body(post);
             } else {
                 return ServerResponse.notFound().build();
             }
@@ -101,27 +199,17 @@ public class PostHandler {
             // 2. Deserialize the JSON body
             Post newPost = request.body(Post.class);
 
-            // 3. Set server-side managed fields
-            newPost.setUserID(authenticatedUid);
-            // If timestamp wasn't sent, set it to now
-            if (newPost.getTimestamp() == null) {
-                newPost.setTimestamp(Timestamp.now());
-            }
-
-            Firestore db = FirestoreClient.getFirestore();
+            // 3. Generate the ID client-side and set server-side managed fields,
+            // so the document (including 'postID') is stored with a single write
+            DocumentReference docRef = firestore.collection("posts").document();
+            prepareNewPost(newPost, docRef.getId(), authenticatedUid);
 
             // 4. Save to Firestore
-            // Use .add() to generate a random ID for the post, OR .document().set() if ID is provided
-            // Assuming we want a new random ID for each post:
-            ApiFuture<DocumentReference> future = db.collection("posts").add(newPost);
-
-            DocumentReference docRef = future.get();
+            WriteResult result = firestore.await("posts", "create", () -> docRef.create(newPost));
             String newPostId = docRef.getId();
-
-            // Update the object with its new ID so we can return it correctly
-            newPost.setPostID(newPostId);
-            // Optionally write the ID back to the doc if your data model requires 'postID' field inside the doc
-            docRef.update("postID", newPostId);
+            feedIndex.index(newPost);
+            searchIndex.index(newPost);
+            versions.changed("posts", newPostId, result.getUpdateTime());
 
             return ServerResponse.created(URI.create("/api/posts/" + newPostId))
                     .body(newPost);
@@ -132,6 +220,93 @@ public class PostHandler {
         }
     }
 
+    /**
+     * Handles POST /api/posts/batch
+     * Imports a JSON array of posts in a single atomic WriteBatch.
+     */
+    public ServerResponse createPostsBatch(ServerRequest request) {
+        try {
+            Principal principal = request.principal()
+                    .orElseThrow(() -> new SecurityException("No auth token found"));
+            String authenticatedUid = principal.getName();
+
+            List<Post> newPosts = request.body(new ParameterizedTypeReference<List<Post>>() {});
+            if (newPosts.isEmpty() || newPosts.size() > MAX_BATCH_SIZE) {
+                return ServerResponse.badRequest().body("Batch must contain between 1 and " + MAX_BATCH_SIZE + " posts");
+            }
+
+            Firestore db = firestore.db();
+            WriteBatch batch = db.batch();
+            for (Post newPost : newPosts) {
+                DocumentReference docRef = db.collection("posts").document();
+                prepareNewPost(newPost, docRef.getId(), authenticatedUid);
+                batch.create(docRef, newPost);
+            }
+
+            // One commit for the whole import; either every post is written or none is
+            List<WriteResult> results = firestore.await("posts", "batch", batch::commit);
+            for (int i = 0; i < newPosts.size(); i++) {
+                feedIndex.index(newPosts.get(i));
+                searchIndex.index(newPosts.get(i));
+                versions.changed("posts", newPosts.get(i).getPostID(), results.get(i).getUpdateTime());
+            }
+
+            return ServerResponse.status(201).body(newPosts);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ServerResponse.badRequest().body("Error creating posts: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Fills in the server-managed fields of a post that is about to be created.
+     */
+    private static void prepareNewPost(Post newPost, String postId, String authenticatedUid) {
+        newPost.setPostID(postId);
+        newPost.setUserID(authenticatedUid);
+        // Likes only change through the like endpoints
+        newPost.setLikes(0);
+        newPost.setLikedBy(List.of());
+        // If timestamp wasn't sent, set it to now
+        if (newPost.getTimestamp() == null) {
+            newPost.setTimestamp(Timestamp.now());
+        }
+    }
+
+    /**
+     * Handles POST /api/posts/{id}/like and DELETE /api/posts/{id}/like
+     * Likes or unlikes the post for the caller. Idempotent per user; the count is
+     * buffered in PostLikeCounter and flushed to Firestore in batches.
+     */
+    public ServerResponse likePost(ServerRequest request) {
+        return setLiked(request, true);
+    }
+
+    public ServerResponse unlikePost(ServerRequest request) {
+        return setLiked(request, false);
+    }
+
+    private ServerResponse setLiked(ServerRequest request, boolean liked) {
+        try {
+            Principal principal = request.principal()
+                    .orElseThrow(() -> new SecurityException("No auth token found"));
+            String postId = request.pathVariable("id");
+
+            PostLikeCounter.LikeState state = likeCounter.setLiked(postId, principal.getName(), liked);
+            // Not in Firestore until the next flush, but already part of every response
+            versions.changed("posts", postId, null);
+
+            return ServerResponse.ok().body(Map.of("postID", postId, "liked", state.liked(), "likes", state.likes()));
+
+        } catch (IllegalArgumentException e) {
+            return ServerResponse.notFound().build();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ServerResponse.badRequest().body("Error updating like: " + e.getMessage());
+        }
+    }
+
     /**
      * Handles PUT /api/posts/{id}
      * Updates the post.
@@ -149,12 +324,11 @@ public class PostHandler {
             // 2. Deserialize
             Post updates = request.body(Post.class);
 
-            Firestore db = FirestoreClient.getFirestore();
-            DocumentReference postRef = db.collection("posts").document(postId);
+            DocumentReference postRef = firestore.collection("posts").document(postId);
 
             // 3. Ownership Check (Critical for posts!)
             // We must verify the user owns the post before letting them edit it.
-            DocumentSnapshot existingDoc = postRef.get().get();
+            DocumentSnapshot existingDoc = firestore.await("posts", "get", postRef::get);
             if (!existingDoc.exists()) {
                 return ServerResponse.notFound().build();
             }
@@ -186,11 +360,16 @@ public class PostHandler {
             System.out.println("Updating post " + postId + " fields: " + dataToUpdate.keySet());
 
             // 5. Save with Merge
-            ApiFuture<WriteResult> future = postRef.set(dataToUpdate, SetOptions.merge());
-
-            WriteResult result = future.get();
+            WriteResult result = firestore.await("posts", "merge", dataToUpdate,
+                    () -> postRef.set(dataToUpdate, SetOptions.merge()));
             System.out.println("Update successful at: " + result.getUpdateTime());
 
+            // Keep the feed and search indexes in step with the stored document
+            Post updated = applyUpdates(existingDoc, dataToUpdate);
+            feedIndex.index(updated);
+            searchIndex.index(updated);
+            versions.changed("posts", postId, result.getUpdateTime());
+
             return ServerResponse.ok().body(dataToUpdate);
 
         } catch (Exception e) {
@@ -198,4 +377,20 @@ public class PostHandler {
             return ServerResponse.badRequest().body("Error updating post: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Rebuilds the post as stored after a merge write, from the pre-update snapshot
+     * and the fields that were written.
+     */
+    private static Post applyUpdates(DocumentSnapshot existingDoc, Map<String, Object> dataToUpdate) {
+        Post post = existingDoc.toObject(Post.class);
+        if (post.getPostID() == null) {
+            post.setPostID(existingDoc.getId());
+        }
+        if (dataToUpdate.containsKey("content")) post.setContent((String) dataToUpdate.get("content"));
+        if (dataToUpdate.containsKey("title")) post.setTitle((String) dataToUpdate.get("title"));
+        if (dataToUpdate.containsKey("location")) post.setLocation((String) dataToUpdate.get("location"));
+        if (dataToUpdate.containsKey("tags")) post.setTags((Post.Tags) dataToUpdate.get("tags"));
+        return post;
+    }
+}
@@ -0,0 +1,143 @@
+package com.hunter_connect.handlers;
+
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.hunter_connect.models.Event;
+import com.hunter_connect.models.Post;
+import com.hunter_connect.services.FirestoreGateway;
+import com.hunter_connect.services.PostLikeCounter;
+import com.hunter_connect.services.SearchIndex;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Full-text search over posts and events, ranked by SearchIndex. The index only holds
+ * terms, so the posts and events of the returned page are read with one getAll() per
+ * collection.
+ */
+@Component
+public class SearchHandler {
+
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 50;
+
+    // Longer queries are cut off; nobody types this much into a search box
+    private static final int MAX_QUERY_LENGTH = 200;
+
+    private final SearchIndex searchIndex;
+    private final PostLikeCounter likeCounter;
+    private final FirestoreGateway firestore;
+
+    public SearchHandler(SearchIndex searchIndex, PostLikeCounter likeCounter, FirestoreGateway firestore) {
+        this.searchIndex = searchIndex;
+        this.likeCounter = likeCounter;
+        this.firestore = firestore;
+    }
+
+    /**
+     * Handles GET /api/search?q=
+     * Posts and events ranked by relevance. Optional type=posts|events and limit (max 50).
+     * Words also match as prefixes, so results can follow the user's typing.
+     */
+    public ServerResponse search(ServerRequest request) {
+        try {
+            String query = request.param("q").orElse("").trim();
+            if (query.isEmpty()) {
+                return ServerResponse.badRequest().body("q is required");
+            }
+            if (query.length() > MAX_QUERY_LENGTH) {
+                query = query.substring(0, MAX_QUERY_LENGTH);
+            }
+
+            int limit = request.param("limit").map(Integer::parseInt).orElse(DEFAULT_LIMIT);
+            if (limit < 1 || limit > MAX_LIMIT) {
+                return ServerResponse.badRequest().body("limit must be between 1 and " + MAX_LIMIT);
+            }
+
+            SearchIndex.Kind kind = null;
+            String type = request.param("type").orElse(null);
+            if ("posts".equals(type)) {
+                kind = SearchIndex.Kind.POST;
+            } else if ("events".equals(type)) {
+                kind = SearchIndex.Kind.EVENT;
+            } else if (type != null) {
+                return ServerResponse.badRequest().body("type must be posts or events");
+            }
+
+            long start = System.nanoTime();
+            List<SearchIndex.Hit> hits = searchIndex.search(query, kind, limit);
+            long tookMicros = (System.nanoTime() - start) / 1000;
+
+            Map<String, Object> posts = read("posts", hits, SearchIndex.Kind.POST);
+            Map<String, Object> events = read("events", hits, SearchIndex.Kind.EVENT);
+
+            List<Map<String, Object>> results = new ArrayList<>(hits.size());
+            for (SearchIndex.Hit hit : hits) {
+                Object item = (hit.kind() == SearchIndex.Kind.POST ? posts : events).get(hit.id());
+                if (item == null) {
+                    // Deleted after the index was last updated
+                    continue;
+                }
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("type", hit.kind() == SearchIndex.Kind.POST ? "post" : "event");
+                result.put("id", hit.id());
+                result.put("score", hit.score());
+                result.put("item", item);
+                results.add(result);
+            }
+
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("results", results);
+            body.put("tookMicros", tookMicros);
+            return ServerResponse.ok().body(body);
+
+        } catch (NumberFormatException e) {
+            return ServerResponse.badRequest().body("limit must be a number");
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ServerResponse.badRequest().body("Error searching: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the hits of one kind in a single round trip, by document ID. Posts get their
+     * unflushed likes applied.
+     */
+    private Map<String, Object> read(String collection, List<SearchIndex.Hit> hits, SearchIndex.Kind kind)
+            throws Exception {
+        List<DocumentReference> refs = new ArrayList<>();
+        for (SearchIndex.Hit hit : hits) {
+            if (hit.kind() == kind) {
+                refs.add(firestore.collection(collection).document(hit.id()));
+            }
+        }
+        Map<String, Object> items = new HashMap<>();
+        if (refs.isEmpty()) {
+            return items;
+        }
+        List<DocumentSnapshot> docs = firestore.await(collection, "getAll",
+                () -> firestore.db().getAll(refs.toArray(new DocumentReference[0])));
+        for (DocumentSnapshot doc : docs) {
+            if (!doc.exists()) {
+                continue;
+            }
+            if (kind == SearchIndex.Kind.POST) {
+                Post post = doc.toObject(Post.class);
+                post.setPostID(doc.getId());
+                items.put(doc.getId(), likeCounter.applyPending(post));
+            } else {
+                Event event = doc.toObject(Event.class);
+                event.setId(doc.getId());
+                items.put(doc.getId(), event);
+            }
+        }
+        return items;
+    }
+}
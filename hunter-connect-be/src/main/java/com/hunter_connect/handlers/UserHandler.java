@@ -1,9 +1,15 @@
 package com.hunter_connect.handlers;
 
-import com.google.api.core.ApiFuture;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.cloud.firestore.*;
-import com.google.firebase.cloud.FirestoreClient;
 import com.hunter_connect.models.User;
+import com.hunter_connect.services.CollectionVersions;
+import com.hunter_connect.services.FirestoreGateway;
+import com.hunter_connect.services.FriendGraph;
+import com.hunter_connect.services.UserProfileCache;
+import com.hunter_connect.services.UserUpdateCoalescer;
+import com.hunter_connect.util.StreamingQueryResponse;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.function.ServerRequest;
 import org.springframework.web.servlet.function.ServerResponse;
@@ -11,31 +17,62 @@ import org.springframework.web.servlet.function.ServerResponse;
 import java.net.URI;
 import java.security.Principal;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.Set;
 
 @Component
 public class UserHandler {
-    public UserHandler() {
-
+    private static final int MAX_SUGGESTIONS = 50;
+
+    // Upper bound for ?ids= on GET /api/users
+    private static final int MAX_IDS = 100;
+
+    private static final TypeReference<Map<String, Object>> FIELDS = new TypeReference<>() {};
+
+    private final ObjectMapper objectMapper;
+    private final FirestoreGateway firestore;
+    private final UserProfileCache userProfileCache;
+    private final FriendGraph friendGraph;
+    private final CollectionVersions versions;
+    private final UserUpdateCoalescer userUpdates;
+
+    public UserHandler(ObjectMapper objectMapper, FirestoreGateway firestore,
+                       UserProfileCache userProfileCache, FriendGraph friendGraph, CollectionVersions versions,
+                       UserUpdateCoalescer userUpdates) {
+        this.objectMapper = objectMapper;
+        this.firestore = firestore;
+        this.userProfileCache = userProfileCache;
+        this.friendGraph = friendGraph;
+        this.versions = versions;
+        this.userUpdates = userUpdates;
     }
+
     /* ============================================================
-     * GET /api/users — return ALL users
+     * GET /api/users — stream ALL users
+     * ?pageSize=&cursor= return one page at a time instead
+     * ?ids=a,b,c[&fields=firstName,lastName] returns a UID -> profile map
+     * If-None-Match with the current ETag answers 304 without reading
      * ============================================================ */
     public ServerResponse getAllUsers(ServerRequest request) {
         try {
-            Firestore db = FirestoreClient.getFirestore();
-            ApiFuture<QuerySnapshot> future = db.collection("users").get();
-
-            List<QueryDocumentSnapshot> documents = future.get().getDocuments();
+            String eTag = versions.listTag("users", request, false);
+            Optional<ServerResponse> notModified = eTag != null ? request.checkNotModified(eTag) : Optional.empty();
+            if (notModified.isPresent()) {
+                return notModified.get();
+            }
 
-            List<User> users = documents
-                    .stream()
-                    .map(doc -> doc.toObject(User.class))
-                    .toList();
+            Optional<String> ids = request.param("ids");
+            if (ids.isPresent()) {
+                Map<String, Object> users = getUsersByIds(ids.get(), request.param("fields").orElse(null));
+                return eTag != null ? ServerResponse.ok().eTag(eTag).body(users) : ServerResponse.ok().body(users);
+            }
 
-            return ServerResponse.ok().body(users);
+            return StreamingQueryResponse.of(request, objectMapper, firestore.collection("users"), 0,
+                    doc -> doc.toObject(User.class), firestore.observeStream("users"), eTag, null);
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -43,6 +80,55 @@ public class UserHandler {
         }
     }
 
+    /**
+     * Resolves many UIDs at once (attendees, friends, requests): cached profiles are
+     * used as they are, the rest come from one Firestore getAll(). UIDs without a
+     * profile are left out. With fields, each profile is cut down to those properties.
+     */
+    private Map<String, Object> getUsersByIds(String idsParam, String fieldsParam) throws Exception {
+        Set<String> ids = splitParam(idsParam);
+        if (ids.isEmpty() || ids.size() > MAX_IDS) {
+            throw new IllegalArgumentException("ids must list between 1 and " + MAX_IDS + " UIDs");
+        }
+        Set<String> fields = fieldsParam != null ? splitParam(fieldsParam) : null;
+
+        Map<String, User> users = userProfileCache.getAll(ids);
+
+        // Keep the order the client asked in
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String id : ids) {
+            User user = users.get(id);
+            if (user == null) {
+                continue;
+            }
+            if (fields == null) {
+                result.put(id, user);
+            } else {
+                Map<String, Object> projected = new LinkedHashMap<>();
+                projected.put("uid", id);
+                Map<String, Object> all = objectMapper.convertValue(user, FIELDS);
+                for (String field : fields) {
+                    if (all.containsKey(field)) {
+                        projected.put(field, all.get(field));
+                    }
+                }
+                result.put(id, projected);
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> splitParam(String value) {
+        Set<String> parts = new LinkedHashSet<>();
+        for (String part : value.split(",")) {
+            String trimmed = part.trim();
+            if (!trimmed.isEmpty()) {
+                parts.add(trimmed);
+            }
+        }
+        return parts;
+    }
+
     /* ============================================================
      * GET /api/users/{id} — get a single user document
      * ============================================================ */
@@ -50,17 +136,18 @@ public class UserHandler {
         try {
             String uid = request.pathVariable("id");
 
-            Firestore db = FirestoreClient.getFirestore();
-            ApiFuture<DocumentSnapshot> future = db.collection("users")
-                    .document(uid)
-                    .get();
+            // Unchanged since the client's copy: no cache lookup, no body
+            String eTag = versions.documentTag("users", uid);
+            Optional<ServerResponse> notModified = eTag != null ? request.checkNotModified(eTag) : Optional.empty();
+            if (notModified.isPresent()) {
+                return notModified.get();
+            }
 
-            DocumentSnapshot doc = future.get();
+            // Served from the profile cache; only a miss goes to Firestore
+            Optional<User> user = userProfileCache.get(uid);
 
-            if(doc.exists()) {
-                User user = doc.toObject(User.class);
-                assert user != null;
-                return ServerResponse.ok().body(user);
+            if(user.isPresent()) {
+                return eTag != null ? ServerResponse.ok().eTag(eTag).body(user.get()) : ServerResponse.ok().body(user.get());
             } else {
                 return ServerResponse.notFound().build();
             }
@@ -88,17 +175,21 @@ public class UserHandler {
             // **Always enforce UID from token**
             user.setUid(authenticatedUid);
 
+            // The full document replaces anything still queued for it
+            userUpdates.discard(authenticatedUid);
+
             // Initialize empty lists if null — Firestore requires non-null arrays
             if (user.getIncomingRequests() == null) user.setIncomingRequests(List.of());
             if (user.getOutgoingRequests() == null) user.setOutgoingRequests(List.of());
             if (user.getFriends() == null) user.setFriends(List.of());
 
-            Firestore db = FirestoreClient.getFirestore();
-
-            ApiFuture<WriteResult> future =
-                    db.collection("users").document(authenticatedUid).set(user);
+            WriteResult result = firestore.await("users", "set",
+                    () -> firestore.collection("users").document(authenticatedUid).set(user)); // wait for write
 
-            future.get(); // wait for write
+            // The full document was just written, so it can go straight into the cache
+            userProfileCache.put(user);
+            versions.changed("users", authenticatedUid, result.getUpdateTime());
+            friendGraph.setFriends(authenticatedUid, user.getFriends());
 
             return ServerResponse.created(URI.create("/api/users/" + authenticatedUid))
                     .body(user);
@@ -112,6 +203,7 @@ public class UserHandler {
     /* ============================================================
      * PUT /api/users — Update profile safely using MERGE
      * Only overwrites fields sent in the request
+     * With hunter.users.write-behind.enabled the merge is queued (UserUpdateCoalescer)
      * ============================================================ */
     public ServerResponse updateUser(ServerRequest request) {
         try {
@@ -150,15 +242,29 @@ public class UserHandler {
                 updateMap.put("friends", updates.getFriends());
 
             // ----- UPDATE -----
-            Firestore db = FirestoreClient.getFirestore();
-            ApiFuture<WriteResult> future =
-                    db.collection("users")
-                            .document(authenticatedUid)
-                            .set(updateMap, SetOptions.merge());
+            if (userUpdates.isEnabled()) {
+                // Write-behind: merged with other pending updates and written within the window;
+                // reads of this user already see it
+                userUpdates.merge(authenticatedUid, updateMap);
+                if (updates.getFriends() != null) {
+                    friendGraph.setFriends(authenticatedUid, updates.getFriends());
+                }
+                return ServerResponse.ok().body(updateMap);
+            }
 
-            WriteResult result = future.get();
+            WriteResult result = firestore.await("users", "merge", updateMap,
+                    () -> firestore.collection("users")
+                            .document(authenticatedUid)
+                            .set(updateMap, SetOptions.merge()));
             System.out.println("Update successful at: " + result.getUpdateTime());
 
+            // Merge write: we don't hold the full document, so drop the cached copy
+            userProfileCache.invalidate(authenticatedUid);
+            versions.changed("users", authenticatedUid, result.getUpdateTime());
+            if (updates.getFriends() != null) {
+                friendGraph.setFriends(authenticatedUid, updates.getFriends());
+            }
+
             return ServerResponse.ok().body(updateMap);
 
         } catch (Exception e) {
@@ -166,4 +272,46 @@ public class UserHandler {
             return ServerResponse.badRequest().body("Error updating user: " + e.getMessage());
         }
     }
+
+    /* ============================================================
+     * GET /api/users/{id}/mutual — friends shared with the caller
+     * Answered from the in-memory FriendGraph
+     * ============================================================ */
+    public ServerResponse getMutualFriends(ServerRequest request) {
+        try {
+            Principal principal = request.principal()
+                    .orElseThrow(() -> new SecurityException("Missing authentication token"));
+
+            String otherUid = request.pathVariable("id");
+            List<String> mutual = friendGraph.mutualFriends(principal.getName(), otherUid);
+
+            return ServerResponse.ok().body(Map.of("count", mutual.size(), "uids", mutual));
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ServerResponse.badRequest().body("Error fetching mutual friends: " + e.getMessage());
+        }
+    }
+
+    /* ============================================================
+     * GET /api/users/suggestions — "people you may know"
+     * Friends of friends ranked by mutual friend count
+     * ============================================================ */
+    public ServerResponse getFriendSuggestions(ServerRequest request) {
+        try {
+            Principal principal = request.principal()
+                    .orElseThrow(() -> new SecurityException("Missing authentication token"));
+
+            int limit = request.param("limit").map(Integer::parseInt).orElse(10);
+            if (limit < 1 || limit > MAX_SUGGESTIONS) {
+                return ServerResponse.badRequest().body("limit must be between 1 and " + MAX_SUGGESTIONS);
+            }
+
+            return ServerResponse.ok().body(friendGraph.suggestions(principal.getName(), limit));
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ServerResponse.badRequest().body("Error fetching suggestions: " + e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,61 @@
+package com.hunter_connect.models;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.google.cloud.Timestamp;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One chat message, as stored in conversations/{conversationId}/messages/{id}
+ * and as sent to WebSocket clients. Mirrors the frontend Message interface.
+ */
+public class ChatMessage {
+    private String id;
+    private String conversationId; // not stored, implied by the document path
+    private String senderId;
+    private String text;
+
+    @JsonDeserialize(using = FirestoreTimestampDeserializer.class)
+    @JsonSerialize(using = FirestoreTimestampSerializer.class)
+    private Timestamp timestamp;
+
+    public ChatMessage() {}
+
+    public ChatMessage(String id, String conversationId, String senderId, String text, Timestamp timestamp) {
+        this.id = id;
+        this.conversationId = conversationId;
+        this.senderId = senderId;
+        this.text = text;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Fields written to the message document.
+     */
+    public Map<String, Object> toDocument() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("text", text);
+        data.put("senderId", senderId);
+        data.put("timestamp", timestamp);
+        return data;
+    }
+
+    // --- Getters and Setters ---
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getConversationId() { return conversationId; }
+    public void setConversationId(String conversationId) { this.conversationId = conversationId; }
+
+    public String getSenderId() { return senderId; }
+    public void setSenderId(String senderId) { this.senderId = senderId; }
+
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+
+    public Timestamp getTimestamp() { return timestamp; }
+    public void setTimestamp(Timestamp timestamp) { this.timestamp = timestamp; }
+}
@@ -1,12 +1,8 @@
 package com.hunter_connect.models;
 
-import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.databind.DeserializationContext;
-import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.google.cloud.Timestamp;
-import java.io.IOException;
 import java.util.List;
 
 /**
@@ -17,24 +13,28 @@ public class Event {
     private String id; // Added ID field as it's useful for the frontend
     private List<String> attendees;
 
-    // We use the custom deserializer to handle the { seconds, nanoseconds } JSON from frontend
+    // Timestamps travel as { seconds, nanoseconds } both ways (ISO strings and epoch millis are also accepted)
     @JsonDeserialize(using = FirestoreTimestampDeserializer.class)
+    @JsonSerialize(using = FirestoreTimestampSerializer.class)
     private Timestamp createdAt;
 
     private String createdBy;
     private String creatorName;
 
     @JsonDeserialize(using = FirestoreTimestampDeserializer.class)
+    @JsonSerialize(using = FirestoreTimestampSerializer.class)
     private Timestamp date;
 
     private String description;
 
     @JsonDeserialize(using = FirestoreTimestampDeserializer.class)
+    @JsonSerialize(using = FirestoreTimestampSerializer.class)
     private Timestamp endTime;
 
     private String location;
 
     @JsonDeserialize(using = FirestoreTimestampDeserializer.class)
+    @JsonSerialize(using = FirestoreTimestampSerializer.class)
     private Timestamp startTime;
 
     private Tags tags;
@@ -117,29 +117,4 @@ public class Event {
         public List<String> getGeneral() { return general; }
         public void setGeneral(List<String> general) { this.general = general; }
     }
-
-    /**
-     * Custom Deserializer to convert Frontend JSON { "seconds": 123, "nanoseconds": 456 }
-     * into the Java com.google.cloud.Timestamp object.
-     */
-    public static class FirestoreTimestampDeserializer extends JsonDeserializer<Timestamp> {
-        @Override
-        public Timestamp deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
-            JsonNode node = p.getCodec().readTree(p);
-
-            // Check if we received the object format { seconds, nanoseconds }
-            if (node.has("seconds") && node.has("nanoseconds")) {
-                long seconds = node.get("seconds").asLong();
-                int nanos = node.get("nanoseconds").asInt();
-                return Timestamp.ofTimeSecondsAndNanos(seconds, nanos);
-            }
-
-            // Fallback for ISO Strings if you switch formats later
-            if (node.isTextual()) {
-                return Timestamp.parseTimestamp(node.asText());
-            }
-
-            return null;
-        }
-    }
-}
\ No newline at end of file
+}
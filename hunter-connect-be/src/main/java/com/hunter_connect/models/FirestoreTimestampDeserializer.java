@@ -0,0 +1,76 @@
+package com.hunter_connect.models;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.JsonTokenId;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.google.cloud.Timestamp;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+
+/**
+ * Reads a com.google.cloud.Timestamp from any of the shapes the clients send:
+ *   - { "seconds": 123, "nanoseconds": 456 }  (Firestore JS SDK, Timestamp.toJSON())
+ *   - { "seconds": 123, "nanos": 456 }        (Java SDK / older responses of this API)
+ *   - "2025-10-09T14:30:00Z"                  (ISO-8601 / RFC 3339 string)
+ *   - 1760020200000                           (epoch milliseconds)
+ *
+ * Works on the token stream directly instead of building a JsonNode tree, so the only
+ * object allocated per field is the Timestamp itself. Unknown object fields are skipped.
+ */
+public class FirestoreTimestampDeserializer extends StdDeserializer<Timestamp> {
+
+    public FirestoreTimestampDeserializer() {
+        super(Timestamp.class);
+    }
+
+    @Override
+    public Timestamp deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        try {
+            switch (p.currentTokenId()) {
+                case JsonTokenId.ID_START_OBJECT:
+                case JsonTokenId.ID_FIELD_NAME:
+                    return readObject(p);
+                case JsonTokenId.ID_STRING:
+                    String text = p.getText().trim();
+                    return text.isEmpty() ? null : Timestamp.parseTimestamp(text);
+                case JsonTokenId.ID_NUMBER_INT:
+                    return ofEpochMillis(p.getLongValue());
+                case JsonTokenId.ID_NUMBER_FLOAT:
+                    return Timestamp.ofTimeMicroseconds(Math.round(p.getDoubleValue() * 1_000));
+                default:
+                    return (Timestamp) ctxt.handleUnexpectedToken(Timestamp.class, p);
+            }
+        } catch (IllegalArgumentException | DateTimeException e) {
+            // Out-of-range nanos or an unparseable string
+            throw JsonMappingException.from(p, "Invalid timestamp: " + e.getMessage(), e);
+        }
+    }
+
+    private static Timestamp readObject(JsonParser p) throws IOException {
+        long seconds = 0;
+        int nanos = 0;
+        boolean hasSeconds = false;
+
+        String name = p.currentToken() == JsonToken.START_OBJECT ? p.nextFieldName() : p.currentName();
+        for (; name != null; name = p.nextFieldName()) {
+            p.nextToken();
+            switch (name) {
+                case "seconds", "_seconds" -> {
+                    seconds = p.getValueAsLong();
+                    hasSeconds = true;
+                }
+                case "nanoseconds", "nanos", "_nanoseconds" -> nanos = p.getValueAsInt();
+                default -> p.skipChildren();
+            }
+        }
+        return hasSeconds ? Timestamp.ofTimeSecondsAndNanos(seconds, nanos) : null;
+    }
+
+    private static Timestamp ofEpochMillis(long millis) {
+        return Timestamp.ofTimeSecondsAndNanos(Math.floorDiv(millis, 1_000L), (int) Math.floorMod(millis, 1_000L) * 1_000_000);
+    }
+}
@@ -0,0 +1,34 @@
+package com.hunter_connect.models;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.google.cloud.Timestamp;
+
+import java.io.IOException;
+
+/**
+ * Writes a Timestamp as { "seconds": 123, "nanoseconds": 456 }, the same shape the
+ * Firestore JS SDK produces and FirestoreTimestampDeserializer reads back.
+ */
+public class FirestoreTimestampSerializer extends StdSerializer<Timestamp> {
+
+    // Pre-encoded field names, reused for every value
+    private static final SerializedString SECONDS = new SerializedString("seconds");
+    private static final SerializedString NANOSECONDS = new SerializedString("nanoseconds");
+
+    public FirestoreTimestampSerializer() {
+        super(Timestamp.class);
+    }
+
+    @Override
+    public void serialize(Timestamp value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject();
+        gen.writeFieldName(SECONDS);
+        gen.writeNumber(value.getSeconds());
+        gen.writeFieldName(NANOSECONDS);
+        gen.writeNumber(value.getNanos());
+        gen.writeEndObject();
+    }
+}
@@ -1,12 +1,8 @@
 package com.hunter_connect.models;
 
-import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.databind.DeserializationContext;
-import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.google.cloud.Timestamp;
-import java.io.IOException;
 import java.util.List;
 
 /**
@@ -20,9 +16,11 @@ public class Post {
     private String content;
     private String location;
     private int likes;
+    private List<String> likedBy; // UIDs that liked the post, keeps likes idempotent per user
 
-    // Custom deserializer handles { "seconds": ..., "nanoseconds": ... } from frontend
+    // Read and written as { "seconds": ..., "nanoseconds": ... }, like the frontend SDK
     @JsonDeserialize(using = FirestoreTimestampDeserializer.class)
+    @JsonSerialize(using = FirestoreTimestampSerializer.class)
     private Timestamp timestamp;
 
     private Tags tags;
@@ -66,6 +64,9 @@ public class Post {
     public int getLikes() { return likes; }
     public void setLikes(int likes) { this.likes = likes; }
 
+    public List<String> getLikedBy() { return likedBy; }
+    public void setLikedBy(List<String> likedBy) { this.likedBy = likedBy; }
+
     public Timestamp getTimestamp() { return timestamp; }
     public void setTimestamp(Timestamp timestamp) { this.timestamp = timestamp; }
 
@@ -92,27 +93,4 @@ public class Post {
         public List<String> getGeneral() { return general; }
         public void setGeneral(List<String> general) { this.general = general; }
     }
-
-    /**
-     * Custom Deserializer to convert Frontend JSON Timestamp to Java Google Cloud Timestamp
-     */
-    public static class FirestoreTimestampDeserializer extends JsonDeserializer<Timestamp> {
-        @Override
-        public Timestamp deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
-            JsonNode node = p.getCodec().readTree(p);
-
-            if (node.has("seconds") && (node.has("nanoseconds") || node.has("nanos"))) {
-                long seconds = node.get("seconds").asLong();
-                // Handle both 'nanoseconds' (JS SDK) and 'nanos' (Java SDK) just in case
-                int nanos = node.has("nanoseconds") ? node.get("nanoseconds").asInt() : node.get("nanos").asInt();
-                return Timestamp.ofTimeSecondsAndNanos(seconds, nanos);
-            }
-
-            if (node.isTextual()) {
-                return Timestamp.parseTimestamp(node.asText());
-            }
-
-            return null;
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,317 @@
+package com.hunter_connect.services;
+
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.WriteBatch;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Merges attendance toggles for the same event into a single write.
+ *
+ * The old toggle ran a Firestore transaction per request on the event document, so a
+ * popular event serialized every subscriber and retried on contention. Here a toggle
+ * reads the event without a transaction (or uses the state of a write we haven't
+ * flushed yet), queues an add or remove, and waits for the next flush. Every
+ * flushWindowMillis the queued changes are written as arrayUnion/arrayRemove transforms,
+ * one pair per event, in a WriteBatch. The transforms are applied atomically by
+ * Firestore, so no transaction is needed.
+ *
+ * If the batch fails, each event is written again on its own, so an event deleted in
+ * the meantime (or any other bad event) only fails the toggles queued for it.
+ *
+ * Once shutdown() has started nothing is queued any more: a toggle waits for the last
+ * flush to land and then reads and writes its event directly, one toggle at a time.
+ */
+@Component
+public class AttendanceCoalescer {
+
+    private static final String COLLECTION_NAME = "events";
+    private static final int MAX_BATCH_WRITES = 500;
+
+    public enum Op { ADD, REMOVE }
+
+    /** Adds and removes for one event within one flush. */
+    public record Delta(Set<String> adds, Set<String> removes) {}
+
+    /** Returns the current attendees of an event, or null if the event does not exist. */
+    @FunctionalInterface
+    public interface AttendeeReader {
+        List<String> attendees(String eventId) throws Exception;
+    }
+
+    /** Durably applies one flush worth of changes, all or nothing. */
+    @FunctionalInterface
+    public interface DeltaWriter {
+        void write(Map<String, Delta> deltasByEvent) throws Exception;
+    }
+
+    private final AttendeeReader reader;
+    private final DeltaWriter writer;
+    private final long flushWindowMillis;
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "attendance-flusher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Object lock = new Object();
+    // eventId -> uid -> op queued for the next flush
+    private Map<String, Map<String, Op>> pending = new HashMap<>();
+    // the flush currently being written, still visible to readers
+    private Map<String, Map<String, Op>> inFlight = Map.of();
+    // completes with the events whose changes could not be written, and why
+    private CompletableFuture<Map<String, Exception>> nextFlush = new CompletableFuture<>();
+    private boolean flushScheduled;
+    private long completedFlushes;
+    // set by shutdown(); toggles are written through from then on
+    private boolean closed;
+
+    @Autowired
+    public AttendanceCoalescer(FirestoreGateway firestore,
+                               @Value("${hunter.attendance.flush-window-millis:25}") long flushWindowMillis) {
+        this(eventId -> readAttendees(firestore, eventId), deltas -> writeDeltas(firestore, deltas), flushWindowMillis);
+    }
+
+    public AttendanceCoalescer(AttendeeReader reader, DeltaWriter writer, long flushWindowMillis) {
+        this.reader = reader;
+        this.writer = writer;
+        this.flushWindowMillis = flushWindowMillis;
+    }
+
+    /**
+     * Toggles the user's attendance. The future completes once the change is stored,
+     * with true if the user is now subscribed.
+     * @throws IllegalArgumentException if the event does not exist
+     */
+    public CompletableFuture<Boolean> toggle(String eventId, String uid) throws Exception {
+        return toggle(eventId, uid, () -> true);
+    }
+
+    /**
+     * Like toggle(eventId, uid), but when the toggle turns out to be a join, mayJoin is
+     * asked first (once, under the coalescer's lock, so keep it cheap). If it answers
+     * false nothing is queued and null is returned.
+     */
+    public CompletableFuture<Boolean> toggle(String eventId, String uid, BooleanSupplier mayJoin) throws Exception {
+        while (true) {
+            long flushesBeforeRead;
+            synchronized (lock) {
+                if (closed) {
+                    break;
+                }
+                Op known = queuedOp(eventId, uid);
+                if (known != null) {
+                    return decideLocked(eventId, uid, known == Op.ADD ? Op.REMOVE : Op.ADD, mayJoin);
+                }
+                flushesBeforeRead = completedFlushes;
+            }
+
+            List<String> attendees = reader.attendees(eventId);
+            if (attendees == null) {
+                throw new IllegalArgumentException("Event not found");
+            }
+
+            synchronized (lock) {
+                if (closed) {
+                    break;
+                }
+                Op known = queuedOp(eventId, uid);
+                if (known != null) {
+                    return decideLocked(eventId, uid, known == Op.ADD ? Op.REMOVE : Op.ADD, mayJoin);
+                }
+                // A flush landed while we were reading; the snapshot may predate it
+                if (completedFlushes != flushesBeforeRead) {
+                    continue;
+                }
+                return decideLocked(eventId, uid, attendees.contains(uid) ? Op.REMOVE : Op.ADD, mayJoin);
+            }
+        }
+        return writeThrough(eventId, uid, mayJoin);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Write out anything still queued before the JVM goes away. Set under the lock,
+        // so every toggle either lands in that last flush or is written through
+        synchronized (lock) {
+            closed = true;
+        }
+        flusher.execute(this::flush);
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    // ----------- internals -----------
+
+    /**
+     * Toggles without the flusher, for requests still arriving after shutdown() started.
+     * The lock is held across the read and the write so toggles of the same user cannot
+     * interleave; slow, but only for the last few requests before the context closes.
+     */
+    private CompletableFuture<Boolean> writeThrough(String eventId, String uid, BooleanSupplier mayJoin) throws Exception {
+        // Queued toggles must land first, or this write could be overtaken by an older one
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        synchronized (lock) {
+            List<String> attendees = reader.attendees(eventId);
+            if (attendees == null) {
+                throw new IllegalArgumentException("Event not found");
+            }
+            Op op = attendees.contains(uid) ? Op.REMOVE : Op.ADD;
+            if (op == Op.ADD && !mayJoin.getAsBoolean()) {
+                return null;
+            }
+            Delta delta = op == Op.ADD ? new Delta(Set.of(uid), Set.of()) : new Delta(Set.of(), Set.of(uid));
+            Exception error = write(Map.of(eventId, delta)).get(eventId);
+            if (error != null) {
+                throw FirestoreGateway.isNotFound(error) ? new IllegalArgumentException("Event not found") : error;
+            }
+            return CompletableFuture.completedFuture(op == Op.ADD);
+        }
+    }
+
+    private Op queuedOp(String eventId, String uid) {
+        Map<String, Op> ops = pending.get(eventId);
+        Op op = ops != null ? ops.get(uid) : null;
+        if (op == null) {
+            ops = inFlight.get(eventId);
+            op = ops != null ? ops.get(uid) : null;
+        }
+        return op;
+    }
+
+    private CompletableFuture<Boolean> decideLocked(String eventId, String uid, Op op, BooleanSupplier mayJoin) {
+        if (op == Op.ADD && !mayJoin.getAsBoolean()) {
+            return null;
+        }
+        return enqueueLocked(eventId, uid, op);
+    }
+
+    private CompletableFuture<Boolean> enqueueLocked(String eventId, String uid, Op op) {
+        pending.computeIfAbsent(eventId, k -> new HashMap<>()).put(uid, op);
+        if (!flushScheduled) {
+            flushScheduled = true;
+            flusher.schedule(this::flush, flushWindowMillis, TimeUnit.MILLISECONDS);
+        }
+        return nextFlush.thenApply(failed -> {
+            Exception error = failed.get(eventId);
+            if (error == null) {
+                return op == Op.ADD;
+            }
+            throw new CompletionException(FirestoreGateway.isNotFound(error)
+                    ? new IllegalArgumentException("Event not found") : error);
+        });
+    }
+
+    private void flush() {
+        Map<String, Map<String, Op>> batch;
+        CompletableFuture<Map<String, Exception>> done;
+        synchronized (lock) {
+            batch = pending;
+            done = nextFlush;
+            pending = new HashMap<>();
+            inFlight = batch;
+            nextFlush = new CompletableFuture<>();
+            flushScheduled = false;
+        }
+        if (batch.isEmpty()) {
+            done.complete(Map.of());
+            return;
+        }
+
+        try {
+            Map<String, Delta> deltas = new HashMap<>();
+            batch.forEach((eventId, ops) -> {
+                Delta delta = new Delta(new LinkedHashSet<>(), new LinkedHashSet<>());
+                ops.forEach((uid, op) -> (op == Op.ADD ? delta.adds() : delta.removes()).add(uid));
+                deltas.put(eventId, delta);
+            });
+            done.complete(write(deltas));
+        } finally {
+            synchronized (lock) {
+                inFlight = Map.of();
+                completedFlushes++;
+            }
+        }
+    }
+
+    /**
+     * Writes the whole flush; if that fails, writes event by event to find the failing ones.
+     */
+    private Map<String, Exception> write(Map<String, Delta> deltas) {
+        try {
+            writer.write(deltas);
+            return Map.of();
+        } catch (Exception e) {
+            if (deltas.size() == 1) {
+                return Map.of(deltas.keySet().iterator().next(), e);
+            }
+        }
+        Map<String, Exception> failed = new HashMap<>();
+        deltas.forEach((eventId, delta) -> {
+            try {
+                writer.write(Map.of(eventId, delta));
+            } catch (Exception e) {
+                failed.put(eventId, e);
+            }
+        });
+        return failed;
+    }
+
+    // ----------- Firestore-backed defaults -----------
+
+    @SuppressWarnings("unchecked")
+    private static List<String> readAttendees(FirestoreGateway firestore, String eventId) throws Exception {
+        DocumentSnapshot snapshot = firestore.await(COLLECTION_NAME, "get",
+                () -> firestore.collection(COLLECTION_NAME).document(eventId).get());
+        if (!snapshot.exists()) {
+            return null;
+        }
+        List<String> attendees = (List<String>) snapshot.get("attendees");
+        return attendees != null ? attendees : List.of();
+    }
+
+    private static void writeDeltas(FirestoreGateway firestore, Map<String, Delta> deltasByEvent) throws Exception {
+        Firestore db = firestore.db();
+        WriteBatch batch = db.batch();
+        int writes = 0;
+        for (Map.Entry<String, Delta> entry : deltasByEvent.entrySet()) {
+            DocumentReference eventRef = db.collection(COLLECTION_NAME).document(entry.getKey());
+            Delta delta = entry.getValue();
+
+            // arrayUnion and arrayRemove can't share one update, so each gets its own write
+            if (!delta.adds().isEmpty()) {
+                batch.update(eventRef, "attendees", FieldValue.arrayUnion(delta.adds().toArray()));
+                writes++;
+            }
+            if (!delta.removes().isEmpty()) {
+                batch.update(eventRef, "attendees", FieldValue.arrayRemove(delta.removes().toArray()));
+                writes++;
+            }
+            if (writes >= MAX_BATCH_WRITES - 1) {
+                firestore.await(COLLECTION_NAME, "batch", batch::commit);
+                batch = db.batch();
+                writes = 0;
+            }
+        }
+        if (writes > 0) {
+            firestore.await(COLLECTION_NAME, "batch", batch::commit);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.hunter_connect.services;
+
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.WriteBatch;
+import com.hunter_connect.models.ChatMessage;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind persistence for chat messages.
+ *
+ * Messages are delivered to connected clients first and queued here; every
+ * flushIntervalMillis (or as soon as flushThreshold messages are waiting) the queue
+ * goes out as one WriteBatch: one document per message plus a single update per
+ * conversation for lastMessage, lastMessageAt and the unread counters, instead of
+ * one message write and one conversation update per message.
+ *
+ * Message documents use set() with a pre-generated ID, so retrying a batch after
+ * a failed commit cannot create duplicates. When a batch fails, its conversations are
+ * retried one by one so a single bad one cannot hold up the rest: messages of a
+ * conversation that no longer exists are dropped, other failures are queued again.
+ *
+ * At most hunter.chat.max-queued messages wait at a time; beyond that enqueue() refuses
+ * new messages until Firestore catches up.
+ */
+@Component
+public class ChatMessageWriter {
+
+    private static final String COLLECTION_NAME = "conversations";
+    private static final String MESSAGES = "messages";
+
+    // Each message is one write and each conversation adds one more; 250 messages
+    // always fit in Firestore's 500-write batch limit
+    private static final int MAX_MESSAGES_PER_BATCH = 250;
+
+    private final FirestoreGateway firestore;
+    private final int flushThreshold;
+    private final int maxQueued;
+
+    private final Object lock = new Object();
+    private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+    private final Map<String, Integer> pendingByConversation = new HashMap<>();
+    private boolean flushRequested;
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "chat-flusher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public ChatMessageWriter(FirestoreGateway firestore,
+                             @Value("${hunter.chat.flush-interval-millis:250}") long flushIntervalMillis,
+                             @Value("${hunter.chat.flush-threshold:200}") int flushThreshold,
+                             @Value("${hunter.chat.max-queued:10000}") int maxQueued) {
+        this.firestore = firestore;
+        this.flushThreshold = flushThreshold;
+        this.maxQueued = maxQueued;
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues a message for the next batch. Participants are needed for the unread counters.
+     *
+     * @return false if the queue is full; the message was not queued
+     */
+    public boolean enqueue(ChatMessage message, List<String> participants) {
+        synchronized (lock) {
+            if (queue.size() >= maxQueued) {
+                return false;
+            }
+            queue.add(new Pending(message, participants));
+            pendingByConversation.merge(message.getConversationId(), 1, Integer::sum);
+            if (queue.size() >= flushThreshold && !flushRequested) {
+                flushRequested = true;
+                flusher.execute(this::flushQuietly);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * True while messages of the conversation are still waiting to be written.
+     */
+    public boolean hasPending(String conversationId) {
+        synchronized (lock) {
+            return pendingByConversation.containsKey(conversationId);
+        }
+    }
+
+    public int getPending() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Writes everything queued so far. Runs on the flusher thread, and once more on shutdown.
+     */
+    void flush() throws Exception {
+        while (true) {
+            List<Pending> drained = new ArrayList<>();
+            synchronized (lock) {
+                flushRequested = false;
+                while (!queue.isEmpty() && drained.size() < MAX_MESSAGES_PER_BATCH) {
+                    drained.add(queue.poll());
+                }
+            }
+            if (drained.isEmpty()) {
+                return;
+            }
+
+            List<Pending> failed = new ArrayList<>();
+            Exception failure = null;
+            try {
+                write(drained);
+            } catch (Exception e) {
+                // Retry conversation by conversation to find the one(s) that fail
+                for (List<Pending> messages : byConversation(drained).values()) {
+                    try {
+                        write(messages);
+                    } catch (Exception single) {
+                        if (FirestoreGateway.isNotFound(single)) {
+                            System.out.println("Dropping " + messages.size() + " chat messages of deleted conversation "
+                                    + messages.get(0).message.getConversationId());
+                        } else {
+                            failed.addAll(messages);
+                            failure = single;
+                        }
+                    }
+                }
+            }
+
+            synchronized (lock) {
+                for (Pending p : drained) {
+                    if (!failed.contains(p)) {
+                        pendingByConversation.computeIfPresent(p.message.getConversationId(),
+                                (id, count) -> count > 1 ? count - 1 : null);
+                    }
+                }
+                // Put the failed messages back in front, in order, so the next flush retries them
+                for (int i = failed.size() - 1; i >= 0; i--) {
+                    queue.addFirst(failed.get(i));
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws Exception {
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        flush();
+    }
+
+    // ----------- internals -----------
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            System.out.println("Chat flush failed, will retry: " + e.getMessage());
+        }
+    }
+
+    private static Map<String, List<Pending>> byConversation(List<Pending> drained) {
+        Map<String, List<Pending>> byConversation = new LinkedHashMap<>();
+        for (Pending p : drained) {
+            byConversation.computeIfAbsent(p.message.getConversationId(), id -> new ArrayList<>()).add(p);
+        }
+        return byConversation;
+    }
+
+    private void write(List<Pending> drained) throws Exception {
+        Firestore db = firestore.db();
+        WriteBatch batch = db.batch();
+        for (Map.Entry<String, List<Pending>> entry : byConversation(drained).entrySet()) {
+            DocumentReference convoRef = db.collection(COLLECTION_NAME).document(entry.getKey());
+            List<Pending> messages = entry.getValue();
+
+            for (Pending p : messages) {
+                batch.set(convoRef.collection(MESSAGES).document(p.message.getId()), p.message.toDocument());
+            }
+
+            ChatMessage last = messages.get(messages.size() - 1).message;
+            Map<String, Object> update = new HashMap<>();
+            update.put("lastMessage", last.getText());
+            update.put("lastMessageAt", last.getTimestamp());
+            update.putAll(unreadUpdates(messages));
+            batch.update(convoRef, update);
+        }
+
+        firestore.await(COLLECTION_NAME, "batch", batch::commit);
+    }
+
+    /**
+     * Same result as the frontend's per-message update (sender's counter reset to 0,
+     * everyone else's incremented), folded into one update per conversation:
+     * a participant who sent something in this batch gets the number of messages
+     * that came after their last one; everyone else gets an increment.
+     */
+    private static Map<String, Object> unreadUpdates(List<Pending> messages) {
+        Map<String, Object> updates = new HashMap<>();
+        List<String> participants = messages.get(messages.size() - 1).participants;
+        for (String uid : participants) {
+            boolean sent = false;
+            int unreadAfter = 0;
+            for (Pending p : messages) {
+                if (uid.equals(p.message.getSenderId())) {
+                    sent = true;
+                    unreadAfter = 0;
+                } else {
+                    unreadAfter++;
+                }
+            }
+            if (sent) {
+                updates.put("unread." + uid, unreadAfter);
+            } else if (unreadAfter > 0) {
+                updates.put("unread." + uid, FieldValue.increment(unreadAfter));
+            }
+        }
+        return updates;
+    }
+
+    private record Pending(ChatMessage message, List<String> participants) {}
+}
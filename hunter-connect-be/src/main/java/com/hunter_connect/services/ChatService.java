@@ -0,0 +1,574 @@
+package com.hunter_connect.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.hunter_connect.models.ChatMessage;
+import com.hunter_connect.util.PageCursor;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory side of the WebSocket chat.
+ *
+ * Keeps the open sessions per user and a "room" per active conversation (participants
+ * plus the most recent messages). A sent message is stamped, appended to the room,
+ * pushed to every connected session of every participant and handed to
+ * ChatMessageWriter; nothing waits for Firestore on the send path.
+ *
+ * Rooms are loaded on first use by two snapshot listeners, one on the conversation
+ * document and one on its newest messages, which stay attached while the room is in
+ * memory. Messages the frontend writes directly or that other instances accept arrive
+ * through them, are merged into the room and pushed to this server's sessions, and
+ * participant changes are picked up the same way. History pages near the end of a
+ * conversation are served from memory and only older pages query Firestore. Idle rooms
+ * are dropped together with their listeners; a failed listener drops its room so the
+ * next request loads it again.
+ *
+ * Before a room is created, the caller's membership is checked with a plain read of the
+ * conversation, so non-members cannot make the server attach listeners to arbitrary
+ * conversations. A load that fails or takes longer than LOAD_TIMEOUT_SECONDS drops the
+ * room as well.
+ *
+ * Work runs on virtual threads; Firestore reads are chained on their futures instead
+ * of blocking.
+ */
+@Component
+public class ChatService {
+
+    public static final int DEFAULT_HISTORY_SIZE = 50;
+    public static final int MAX_HISTORY_SIZE = 100;
+
+    private static final String COLLECTION_NAME = "conversations";
+    private static final String MESSAGES = "messages";
+    private static final String OUTBOUND_ATTRIBUTE = ChatService.class.getName() + ".outbound";
+    private static final long LOAD_TIMEOUT_SECONDS = 30;
+
+    // Per-session outbound buffer; a client that falls further behind is disconnected
+    // and catches up through history when it reconnects
+    private static final int SEND_TIME_LIMIT_MILLIS = 5_000;
+    private static final int SEND_BUFFER_LIMIT_BYTES = 512 * 1024;
+
+    private final FirestoreGateway firestore;
+    private final ChatMessageWriter writer;
+    private final ObjectMapper objectMapper;
+    private final int recentPerConversation;
+    private final int maxMessageLength;
+    private final long roomIdleNanos;
+
+    private final Map<String, Set<WebSocketSession>> sessionsByUid = new ConcurrentHashMap<>();
+    private final Map<String, Room> rooms = new ConcurrentHashMap<>();
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("chat-", 0).factory());
+    private final ScheduledExecutorService janitor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "chat-janitor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public ChatService(FirestoreGateway firestore, ChatMessageWriter writer, ObjectMapper objectMapper,
+                       @Value("${hunter.chat.recent-per-conversation:200}") int recentPerConversation,
+                       @Value("${hunter.chat.max-message-length:4000}") int maxMessageLength,
+                       @Value("${hunter.chat.room-idle-minutes:10}") long roomIdleMinutes) {
+        this.firestore = firestore;
+        this.writer = writer;
+        this.objectMapper = objectMapper;
+        this.recentPerConversation = recentPerConversation;
+        this.maxMessageLength = maxMessageLength;
+        this.roomIdleNanos = TimeUnit.MINUTES.toNanos(roomIdleMinutes);
+        janitor.scheduleWithFixedDelay(this::evictIdleRooms, 1, 1, TimeUnit.MINUTES);
+    }
+
+    // ----------- sessions -----------
+
+    public void connect(String uid, WebSocketSession session) {
+        WebSocketSession outbound = new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MILLIS, SEND_BUFFER_LIMIT_BYTES);
+        session.getAttributes().put(OUTBOUND_ATTRIBUTE, outbound);
+        sessionsByUid.computeIfAbsent(uid, k -> ConcurrentHashMap.newKeySet()).add(outbound);
+    }
+
+    public void disconnect(String uid, WebSocketSession session) {
+        Object outbound = session.getAttributes().get(OUTBOUND_ATTRIBUTE);
+        sessionsByUid.computeIfPresent(uid, (k, sessions) -> {
+            sessions.remove(outbound);
+            return sessions.isEmpty() ? null : sessions;
+        });
+    }
+
+    public int getConnectedUsers() {
+        return sessionsByUid.size();
+    }
+
+    public int getActiveRooms() {
+        return rooms.size();
+    }
+
+    /**
+     * Sends a frame to one session (serialized as JSON). Safe to call from any thread.
+     */
+    public void reply(WebSocketSession session, Map<String, Object> frame) {
+        Object outbound = session.getAttributes().get(OUTBOUND_ATTRIBUTE);
+        if (outbound instanceof WebSocketSession s) {
+            deliver(s, toText(frame));
+        }
+    }
+
+    // ----------- messages -----------
+
+    /**
+     * Stamps and fans out a message, then queues it for persistence.
+     * Completes with the stored message; fails with IllegalArgumentException for an
+     * empty/oversized text or unknown conversation, SecurityException for non-members.
+     */
+    public CompletableFuture<ChatMessage> send(String uid, String conversationId, String text, String clientId) {
+        String trimmed = text != null ? text.trim() : "";
+        if (trimmed.isEmpty() || trimmed.length() > maxMessageLength) {
+            return CompletableFuture.failedFuture(
+                    new IllegalArgumentException("Message must be between 1 and " + maxMessageLength + " characters"));
+        }
+
+        return room(conversationId, uid).thenApplyAsync(room -> {
+            ChatMessage message;
+            synchronized (room) {
+                message = new ChatMessage(newMessageId(conversationId), conversationId, uid, trimmed, room.nextTimestamp());
+                if (!writer.enqueue(message, room.participants)) {
+                    throw new IllegalStateException("Too many messages waiting to be stored, try again shortly");
+                }
+                room.append(message, recentPerConversation);
+            }
+            fanOut(room, message, clientId);
+            return message;
+        }, executor);
+    }
+
+    /**
+     * Pushes a message to every connected session of every participant.
+     */
+    private void fanOut(Room room, ChatMessage message, String clientId) {
+        // Serialized once, written to every participant's sessions
+        Map<String, Object> frame = new LinkedHashMap<>();
+        frame.put("type", "message");
+        frame.put("message", message);
+        frame.put("clientId", clientId);
+        TextMessage payload = toText(frame);
+        for (String participant : room.participants) {
+            Set<WebSocketSession> sessions = sessionsByUid.get(participant);
+            if (sessions != null) {
+                sessions.forEach(s -> deliver(s, payload));
+            }
+        }
+    }
+
+    /**
+     * One page of history, newest page first; messages inside the page are oldest first.
+     * cursor comes from the previous page's nextCursor (null for the latest messages).
+     */
+    public CompletableFuture<Map<String, Object>> history(String uid, String conversationId, String cursor, int limit) {
+        if (limit < 1 || limit > MAX_HISTORY_SIZE) {
+            return CompletableFuture.failedFuture(
+                    new IllegalArgumentException("limit must be between 1 and " + MAX_HISTORY_SIZE));
+        }
+        Timestamp decoded;
+        try {
+            decoded = cursor != null ? decodeCursor(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        Timestamp before = decoded;
+
+        return room(conversationId, uid).thenComposeAsync(room -> {
+            // 1. Newest messages come from the room
+            List<ChatMessage> page = new ArrayList<>(limit);
+            boolean wholeConversationInMemory;
+            synchronized (room) {
+                Iterator<ChatMessage> it = room.recent.descendingIterator();
+                while (it.hasNext() && page.size() < limit) {
+                    ChatMessage m = it.next();
+                    if (before == null || m.getTimestamp().compareTo(before) < 0) {
+                        page.add(m);
+                    }
+                }
+                wholeConversationInMemory = room.complete;
+            }
+            if (page.size() == limit || wholeConversationInMemory) {
+                boolean more = page.size() == limit && !(wholeConversationInMemory && noneOlder(room, page));
+                return CompletableFuture.completedFuture(historyPage(conversationId, page, more));
+            }
+
+            // 2. Older than anything in memory: ask Firestore for the rest (+1 to detect another page)
+            Timestamp startAfter = page.isEmpty() ? before : page.get(page.size() - 1).getTimestamp();
+            Query query = messages(conversationId).orderBy("timestamp", Query.Direction.DESCENDING);
+            if (startAfter != null) {
+                query = query.startAfter(startAfter);
+            }
+            int missing = limit - page.size();
+            Query older = query.limit(missing + 1);
+            return firestore.async(COLLECTION_NAME, "history", older::get)
+                    .thenApplyAsync(snapshot -> {
+                        List<QueryDocumentSnapshot> docs = snapshot.getDocuments();
+                        for (int i = 0; i < Math.min(missing, docs.size()); i++) {
+                            page.add(toMessage(conversationId, docs.get(i)));
+                        }
+                        return historyPage(conversationId, page, docs.size() > missing);
+                    }, executor);
+        }, executor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        janitor.shutdown();
+        rooms.values().forEach(Room::detach);
+        rooms.clear();
+        executor.shutdown();
+    }
+
+    // ----------- rooms -----------
+
+    /**
+     * The loaded room, once uid is known to be a participant. A room that is not in
+     * memory yet is only created after a read of the conversation shows the membership.
+     */
+    private CompletableFuture<Room> room(String conversationId, String uid) {
+        if (conversationId == null || conversationId.isBlank()) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("conversationId is required"));
+        }
+        Room existing = rooms.get(conversationId);
+        if (existing != null) {
+            existing.lastUsedNanos = System.nanoTime();
+            return existing.loaded.thenApply(room -> requireMember(room, uid));
+        }
+
+        DocumentReference convoRef = firestore.collection(COLLECTION_NAME).document(conversationId);
+        return firestore.async(COLLECTION_NAME, "get", convoRef::get).thenComposeAsync(doc -> {
+            if (!doc.exists()) {
+                throw new IllegalArgumentException("Conversation not found");
+            }
+            Object participants = doc.get("participants");
+            if (!(participants instanceof List<?> list) || !list.contains(uid)) {
+                throw new SecurityException("Not a participant of this conversation");
+            }
+            Room room = rooms.computeIfAbsent(conversationId, id -> {
+                Room created = new Room(id);
+                load(created);
+                return created;
+            });
+            room.lastUsedNanos = System.nanoTime();
+            return room.loaded.thenApply(loaded -> requireMember(loaded, uid));
+        }, executor);
+    }
+
+    /**
+     * Attaches the conversation and newest-messages listeners; the room is loaded once
+     * both have delivered their first snapshot.
+     */
+    private void load(Room room) {
+        DocumentReference convoRef = firestore.collection(COLLECTION_NAME).document(room.id);
+        Query latest = messages(room.id).orderBy("timestamp", Query.Direction.DESCENDING).limit(recentPerConversation);
+        CompletableFuture<Void> convoLoaded = new CompletableFuture<>();
+        CompletableFuture<Void> messagesLoaded = new CompletableFuture<>();
+
+        try {
+            synchronized (room) {
+                room.convoListener = convoRef.addSnapshotListener((doc, error) ->
+                        onConversation(room, doc, error, convoLoaded));
+                room.messagesListener = latest.addSnapshotListener((snapshot, error) ->
+                        onMessages(room, snapshot, error, messagesLoaded));
+            }
+        } catch (RuntimeException e) {
+            // Not from inside rooms.computeIfAbsent(), which is still running
+            executor.execute(() -> {
+                convoLoaded.completeExceptionally(e);
+                messagesLoaded.completeExceptionally(e);
+            });
+        }
+
+        CompletableFuture.allOf(convoLoaded, messagesLoaded)
+                .orTimeout(LOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .whenComplete((v, e) -> {
+                    if (e != null) {
+                        // Failed or stuck: forget the room so the next request retries the load
+                        drop(room);
+                        room.loaded.completeExceptionally(e);
+                    } else {
+                        room.loaded.complete(room);
+                    }
+                });
+    }
+
+    private void onConversation(Room room, DocumentSnapshot doc, FirestoreException error, CompletableFuture<Void> first) {
+        if (error != null || doc == null || !doc.exists()) {
+            if (first.isDone()) {
+                // Deleted or listener failed after loading
+                drop(room);
+            } else {
+                first.completeExceptionally(error != null ? error : new IllegalArgumentException("Conversation not found"));
+            }
+            return;
+        }
+        firestore.record(COLLECTION_NAME, "listen", 0, 1, firestore.measure(doc));
+
+        @SuppressWarnings("unchecked")
+        List<String> participants = (List<String>) doc.get("participants");
+        room.participants = participants != null ? List.copyOf(participants) : List.of();
+        first.complete(null);
+    }
+
+    /**
+     * The first snapshot fills the room; later ones carry messages stored by the frontend,
+     * other instances or this one (already in the room, skipped). REMOVED changes are
+     * ignored: they are mostly messages leaving the newest-N window.
+     */
+    private void onMessages(Room room, QuerySnapshot snapshot, FirestoreException error, CompletableFuture<Void> first) {
+        if (error != null || snapshot == null) {
+            if (first.isDone()) {
+                drop(room);
+            } else {
+                first.completeExceptionally(error != null ? error : new IllegalStateException("No messages snapshot"));
+            }
+            return;
+        }
+
+        List<ChatMessage> arrived = new ArrayList<>();
+        long bytes = 0;
+        List<DocumentChange> changes = snapshot.getDocumentChanges();
+        synchronized (room) {
+            for (DocumentChange change : changes) {
+                if (change.getType() == DocumentChange.Type.REMOVED) {
+                    continue;
+                }
+                bytes += firestore.measure(change.getDocument());
+                ChatMessage message = toMessage(room.id, change.getDocument());
+                if (room.merge(message, recentPerConversation)) {
+                    arrived.add(message);
+                }
+            }
+            if (!first.isDone()) {
+                room.complete = snapshot.size() < recentPerConversation;
+            }
+        }
+        firestore.record(COLLECTION_NAME, "listen", 0, changes.size(), bytes);
+
+        if (!first.isDone()) {
+            first.complete(null);
+            return;
+        }
+        for (ChatMessage message : arrived) {
+            fanOut(room, message, null);
+        }
+    }
+
+    private void drop(Room room) {
+        rooms.remove(room.id, room);
+        room.detach();
+    }
+
+    private void evictIdleRooms() {
+        long now = System.nanoTime();
+        for (Room room : rooms.values()) {
+            if (room.loaded.isDone()
+                    && now - room.lastUsedNanos > roomIdleNanos
+                    // Unwritten messages only exist in the room; keep it until they are stored
+                    && !writer.hasPending(room.id)) {
+                drop(room);
+            }
+        }
+    }
+
+    private static Room requireMember(Room room, String uid) {
+        if (!room.participants.contains(uid)) {
+            throw new SecurityException("Not a participant of this conversation");
+        }
+        return room;
+    }
+
+    // ----------- helpers -----------
+
+    private CollectionReference messages(String conversationId) {
+        return firestore.collection(COLLECTION_NAME).document(conversationId).collection(MESSAGES);
+    }
+
+    private String newMessageId(String conversationId) {
+        // Generated locally, no round trip
+        return messages(conversationId).document().getId();
+    }
+
+    private static ChatMessage toMessage(String conversationId, DocumentSnapshot doc) {
+        Timestamp timestamp = doc.getTimestamp("timestamp");
+        return new ChatMessage(doc.getId(), conversationId, doc.getString("senderId"), doc.getString("text"),
+                timestamp != null ? timestamp : Timestamp.MIN_VALUE);
+    }
+
+    private static boolean noneOlder(Room room, List<ChatMessage> page) {
+        synchronized (room) {
+            ChatMessage oldest = room.recent.peekFirst();
+            return oldest != null && oldest == page.get(page.size() - 1);
+        }
+    }
+
+    private static Map<String, Object> historyPage(String conversationId, List<ChatMessage> newestFirst, boolean more) {
+        List<ChatMessage> messages = new ArrayList<>(newestFirst);
+        Collections.reverse(messages);
+
+        Map<String, Object> frame = new LinkedHashMap<>();
+        frame.put("type", "history");
+        frame.put("conversationId", conversationId);
+        frame.put("messages", messages);
+        frame.put("nextCursor", more && !messages.isEmpty() ? encodeCursor(messages.get(0).getTimestamp()) : null);
+        return frame;
+    }
+
+    private static String encodeCursor(Timestamp timestamp) {
+        return PageCursor.encode(timestamp.getSeconds() + ":" + timestamp.getNanos());
+    }
+
+    private static Timestamp decodeCursor(String cursor) {
+        String[] parts = PageCursor.decode(cursor).split(":");
+        try {
+            return Timestamp.ofTimeSecondsAndNanos(Long.parseLong(parts[0]), Integer.parseInt(parts[1]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private TextMessage toText(Map<String, Object> frame) {
+        try {
+            return new TextMessage(objectMapper.writeValueAsString(frame));
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not serialize chat frame", e);
+        }
+    }
+
+    private static void deliver(WebSocketSession session, TextMessage message) {
+        try {
+            if (session.isOpen()) {
+                session.sendMessage(message);
+            }
+        } catch (Exception e) {
+            // Buffer or time limit exceeded (the decorator closes the session) or the socket died
+            System.out.println("Chat delivery to session " + session.getId() + " failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * A conversation that is in use on this server.
+     */
+    private static final class Room {
+        final String id;
+        final CompletableFuture<Room> loaded = new CompletableFuture<>();
+        final ArrayDeque<ChatMessage> recent = new ArrayDeque<>(); // oldest first
+        final Set<String> recentIds = new HashSet<>();
+        volatile List<String> participants = List.of();
+        boolean complete; // recent holds every message of the conversation
+        volatile long lastUsedNanos = System.nanoTime();
+        Timestamp lastTimestamp = Timestamp.MIN_VALUE;
+        ListenerRegistration convoListener;
+        ListenerRegistration messagesListener;
+
+        Room(String id) {
+            this.id = id;
+        }
+
+        /**
+         * Now, or 1ns after the previous message, so timestamps in a room are unique
+         * and history cursors never skip a message.
+         */
+        Timestamp nextTimestamp() {
+            Timestamp now = Timestamp.now();
+            if (now.compareTo(lastTimestamp) <= 0) {
+                long nanos = lastTimestamp.getNanos() + 1L;
+                now = Timestamp.ofTimeSecondsAndNanos(lastTimestamp.getSeconds() + nanos / 1_000_000_000L,
+                        (int) (nanos % 1_000_000_000L));
+            }
+            lastTimestamp = now;
+            return now;
+        }
+
+        void append(ChatMessage message, int capacity) {
+            recent.addLast(message);
+            recentIds.add(message.getId());
+            if (recent.size() > capacity) {
+                recentIds.remove(recent.removeFirst().getId());
+                complete = false;
+            }
+        }
+
+        /**
+         * Adds a message stored elsewhere at its place in timestamp order.
+         *
+         * @return false if the room already has it or it is older than the window
+         */
+        boolean merge(ChatMessage message, int capacity) {
+            if (recentIds.contains(message.getId())) {
+                return false;
+            }
+            Timestamp timestamp = message.getTimestamp();
+            if (timestamp.compareTo(lastTimestamp) > 0) {
+                // Keep nextTimestamp() after everything in the room
+                lastTimestamp = timestamp;
+            }
+            ChatMessage newest = recent.peekLast();
+            if (newest == null || timestamp.compareTo(newest.getTimestamp()) >= 0) {
+                append(message, capacity);
+                return true;
+            }
+            ChatMessage oldest = recent.peekFirst();
+            if (recent.size() >= capacity && timestamp.compareTo(oldest.getTimestamp()) < 0) {
+                return false;
+            }
+            // Rare: arrived out of order (clock skew between writers)
+            List<ChatMessage> ordered = new ArrayList<>(recent);
+            int i = ordered.size();
+            while (i > 0 && ordered.get(i - 1).getTimestamp().compareTo(timestamp) > 0) {
+                i--;
+            }
+            ordered.add(i, message);
+            recent.clear();
+            recent.addAll(ordered);
+            recentIds.add(message.getId());
+            if (recent.size() > capacity) {
+                recentIds.remove(recent.removeFirst().getId());
+                complete = false;
+            }
+            return true;
+        }
+
+        synchronized void detach() {
+            if (convoListener != null) {
+                convoListener.remove();
+                convoListener = null;
+            }
+            if (messagesListener != null) {
+                messagesListener.remove();
+                messagesListener = null;
+            }
+        }
+    }
+}
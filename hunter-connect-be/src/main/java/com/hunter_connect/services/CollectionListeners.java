@@ -0,0 +1,229 @@
+package com.hunter_connect.services;
+
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.QuerySnapshot;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One Firestore snapshot listener per collection, shared by everything that follows
+ * the collection.
+ *
+ * The in-memory indexes, FriendGraph and LiveFeed all need every change to posts, events
+ * or users, including writes the frontend makes directly and writes from other instances.
+ * Instead of each opening its own listener (and each loading the whole collection at
+ * startup), they register a Consumer here and get the snapshots of a single listener.
+ * CollectionVersions is updated after all consumers have applied a snapshot, so a request
+ * that sees the new version also sees the new data.
+ *
+ * The first snapshot after a listener (re)starts lists every document as ADDED and is
+ * passed with baseline=true; consumers use it as their full load. Consumers added while
+ * the listener is already running only get the snapshots after that. A failed listener is
+ * reported through onError and restarted after hunter.listeners.restart-delay-millis, with
+ * a new baseline.
+ *
+ * Listeners start at ApplicationReadyEvent (or when a consumer is added later) and stop
+ * when their last consumer is removed.
+ *
+ * Memory: a listener holds every document of its collection (the Firestore client keeps
+ * them to compute the changes), so heap grows with the size of users, posts and events,
+ * even though list responses are streamed in chunks (StreamingQueryResponse). That is the
+ * price of following the collections without reading them per request. Consumers keep as
+ * little as they can on top of it: SearchIndex only terms, FriendGraph only friend IDs,
+ * PostFeedIndex only posts inside the feed window and EventIntervalIndex only events
+ * inside the retention window.
+ */
+@Component
+public class CollectionListeners {
+
+    /**
+     * Receives the snapshots of one collection, on Firestore's listener thread.
+     */
+    public interface Consumer {
+        void onSnapshot(QuerySnapshot snapshot, boolean baseline);
+
+        /**
+         * The listener failed; the next snapshot after its restart is a new baseline.
+         */
+        default void onError() {
+        }
+    }
+
+    private final FirestoreGateway firestore;
+    private final CollectionVersions versions;
+    private final long restartDelayMillis;
+
+    private final Map<String, Watch> watches = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService restarter = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "listener-restart");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile boolean started;
+
+    public CollectionListeners(FirestoreGateway firestore, CollectionVersions versions,
+                               @Value("${hunter.listeners.restart-delay-millis:5000}") long restartDelayMillis) {
+        this.firestore = firestore;
+        this.versions = versions;
+        this.restartDelayMillis = restartDelayMillis;
+    }
+
+    /**
+     * Registers a consumer; starts the collection's listener if the application is ready.
+     */
+    public void add(String collection, Consumer consumer) {
+        watches.computeIfAbsent(collection, Watch::new).add(consumer);
+    }
+
+    /**
+     * Unregisters a consumer; the listener stops when it was the last one.
+     */
+    public void remove(String collection, Consumer consumer) {
+        Watch watch = watches.get(collection);
+        if (watch != null) {
+            watch.remove(consumer);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        started = true;
+        watches.values().forEach(Watch::startIfNeeded);
+    }
+
+    @PreDestroy
+    public void stop() {
+        started = false;
+        restarter.shutdownNow();
+        watches.values().forEach(Watch::stop);
+    }
+
+    /**
+     * The listener of one collection and its consumers.
+     */
+    private final class Watch {
+        final String collection;
+        final List<Consumer> consumers = new CopyOnWriteArrayList<>();
+
+        // Guarded by this; generation tells callbacks of a removed listener apart
+        ListenerRegistration registration;
+        long generation;
+        boolean baselinePending;
+
+        Watch(String collection) {
+            this.collection = collection;
+        }
+
+        synchronized void add(Consumer consumer) {
+            consumers.add(consumer);
+            startIfNeeded();
+        }
+
+        synchronized void remove(Consumer consumer) {
+            consumers.remove(consumer);
+            if (consumers.isEmpty()) {
+                stop();
+            }
+        }
+
+        synchronized void startIfNeeded() {
+            if (!started || registration != null || consumers.isEmpty()) {
+                return;
+            }
+            long current = ++generation;
+            baselinePending = true;
+            try {
+                registration = firestore.collection(collection).addSnapshotListener((snapshot, error) -> {
+                    if (error != null || snapshot == null) {
+                        fail(current, error != null ? error.getMessage() : "no snapshot");
+                        return;
+                    }
+                    deliver(current, snapshot);
+                });
+            } catch (Exception e) {
+                System.out.println("Listener for " + collection + " could not start: " + e.getMessage());
+                restartLater();
+            }
+        }
+
+        synchronized void stop() {
+            generation++;
+            if (registration != null) {
+                registration.remove();
+                registration = null;
+            }
+        }
+
+        private void deliver(long current, QuerySnapshot snapshot) {
+            boolean baseline;
+            synchronized (this) {
+                if (current != generation) {
+                    return;
+                }
+                baseline = baselinePending;
+                baselinePending = false;
+            }
+
+            long bytes = 0;
+            List<DocumentChange> changes = snapshot.getDocumentChanges();
+            for (DocumentChange change : changes) {
+                bytes += firestore.measure(change.getDocument());
+            }
+            firestore.record(collection, "listen", 0, changes.size(), bytes);
+
+            for (Consumer consumer : consumers) {
+                try {
+                    consumer.onSnapshot(snapshot, baseline);
+                } catch (RuntimeException e) {
+                    System.out.println("Listener consumer for " + collection + " failed: " + e.getMessage());
+                }
+            }
+            versions.onSnapshot(collection, snapshot, baseline);
+        }
+
+        /**
+         * Firestore does not retry a failed listener; consumers are told and a new one is
+         * started after the restart delay.
+         */
+        private void fail(long current, String message) {
+            synchronized (this) {
+                if (current != generation) {
+                    return;
+                }
+                stop();
+            }
+            System.out.println("Listener for " + collection + " failed, restarting in "
+                    + restartDelayMillis + " ms: " + message);
+            versions.onError(collection);
+            for (Consumer consumer : consumers) {
+                try {
+                    consumer.onError();
+                } catch (RuntimeException e) {
+                    System.out.println("Listener consumer for " + collection + " failed: " + e.getMessage());
+                }
+            }
+            restartLater();
+        }
+
+        private void restartLater() {
+            try {
+                restarter.schedule(this::startIfNeeded, restartDelayMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+            }
+        }
+    }
+}
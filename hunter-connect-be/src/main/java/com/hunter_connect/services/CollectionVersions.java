@@ -0,0 +1,138 @@
+package com.hunter_connect.services;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.function.ServerRequest;
+
+import java.security.Principal;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Knows, without reading Firestore, whether a collection or a document changed.
+ *
+ * Per collection it keeps a version counter and the update time of every document,
+ * both maintained from the shared snapshot listeners (CollectionListeners) and bumped by
+ * the handlers' own writes (so a client sees its write immediately, not after the
+ * listener catches up). The GET handlers turn these into ETags and answer If-None-Match
+ * with 304 before touching Firestore.
+ *
+ * ETags are only produced while the listener is healthy; before the first snapshot
+ * or after a listener error the routes answer 200 as before. Writes made directly
+ * against Firestore (the frontend does some) become visible once the listener
+ * delivers them, usually well under a second.
+ */
+@Component
+public class CollectionVersions {
+
+    private final Map<String, Tracker> trackers = new ConcurrentHashMap<>();
+
+    /**
+     * Applies a listener snapshot. A baseline lists the whole collection: documents it
+     * does not contain were deleted while no listener was running. The first snapshot
+     * marks the collection as tracked.
+     */
+    public void onSnapshot(String collection, QuerySnapshot snapshot, boolean baseline) {
+        Tracker tracker = tracker(collection);
+        if (baseline) {
+            Set<String> present = new HashSet<>();
+            snapshot.getDocuments().forEach(doc -> present.add(doc.getId()));
+            tracker.updateTimes.keySet().retainAll(present);
+        }
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            QueryDocumentSnapshot doc = change.getDocument();
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                tracker.updateTimes.remove(doc.getId());
+            } else {
+                tracker.updateTimes.merge(doc.getId(), doc.getUpdateTime(), CollectionVersions::newer);
+            }
+        }
+        tracker.version.incrementAndGet();
+        tracker.tracking = true;
+    }
+
+    /**
+     * The listener stopped; changes can no longer be proven absent.
+     */
+    public void onError(String collection) {
+        tracker(collection).tracking = false;
+    }
+
+    /**
+     * Called by handlers after writing a document. updateTime comes from the WriteResult;
+     * pass null for changes Firestore does not have yet (e.g. buffered likes).
+     */
+    public void changed(String collection, String documentId, Timestamp updateTime) {
+        Tracker tracker = tracker(collection);
+        if (updateTime != null) {
+            tracker.updateTimes.merge(documentId, updateTime, CollectionVersions::newer);
+        } else {
+            tracker.touches.merge(documentId, 1L, Long::sum);
+        }
+        tracker.version.incrementAndGet();
+    }
+
+    /**
+     * ETag for a list response: the collection version plus the query string (and the
+     * caller when perCaller, e.g. attending=me), since those select what the list contains.
+     * Null when the collection is not tracked.
+     */
+    public String listTag(String collection, ServerRequest request, boolean perCaller) {
+        Tracker tracker = trackers.get(collection);
+        if (tracker == null || !tracker.tracking) {
+            return null;
+        }
+        String query = request.uri().getRawQuery();
+        String caller = perCaller ? request.principal().map(Principal::getName).orElse("") : "";
+        int variant = ((query != null ? query : "") + "|" + caller).hashCode();
+        return collection + "-" + Long.toString(tracker.epoch, 36) + "-" + Long.toString(tracker.version.get(), 36)
+                + "-" + Integer.toHexString(variant);
+    }
+
+    /**
+     * ETag for a single document: its update time, plus a counter for local changes not
+     * visible in Firestore yet (e.g. buffered likes). Null when unknown.
+     */
+    public String documentTag(String collection, String documentId) {
+        Tracker tracker = trackers.get(collection);
+        if (tracker == null || !tracker.tracking) {
+            return null;
+        }
+        Timestamp updateTime = tracker.updateTimes.get(documentId);
+        if (updateTime == null) {
+            return null;
+        }
+        String tag = Long.toString(updateTime.getSeconds(), 36) + "." + Integer.toString(updateTime.getNanos(), 36);
+        Long touches = tracker.touches.get(documentId);
+        return touches != null ? tag + "-" + Long.toString(tracker.epoch, 36) + "." + touches : tag;
+    }
+
+    public long getVersion(String collection) {
+        Tracker tracker = trackers.get(collection);
+        return tracker != null ? tracker.version.get() : 0;
+    }
+
+    // A snapshot can arrive after the handler already recorded its own, newer write
+    private static Timestamp newer(Timestamp a, Timestamp b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
+    private Tracker tracker(String collection) {
+        return trackers.computeIfAbsent(collection, k -> new Tracker());
+    }
+
+    private static final class Tracker {
+        // Distinguishes counters of this process from those of a previous run
+        final long epoch = System.currentTimeMillis();
+        final AtomicLong version = new AtomicLong();
+        final Map<String, Timestamp> updateTimes = new ConcurrentHashMap<>();
+        final Map<String, Long> touches = new ConcurrentHashMap<>();
+        volatile boolean tracking;
+    }
+}
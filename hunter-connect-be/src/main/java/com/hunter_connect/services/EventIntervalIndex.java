@@ -0,0 +1,423 @@
+package com.hunter_connect.services;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.hunter_connect.models.Event;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of event times, for "what is on between from and to" without
+ * reading the events collection.
+ *
+ * Time is cut into hour buckets. Every event gets a dense int ID and is listed in each
+ * bucket its [startTime, endTime] touches, so an overlap query only walks the buckets of
+ * the requested range. Events spanning more than MAX_BUCKETS hours (multi-week
+ * exhibitions and the like) are kept in a separate list that every query checks.
+ *
+ * Events without endTime last until their startTime; events without startTime fall
+ * back to date. Events that ended more than retentionDays ago count as archived: they
+ * are not indexed, are evicted every hour, and queries may not reach back that far.
+ *
+ * The index is loaded from the baseline of the shared events listener
+ * (CollectionListeners) and follows its changes, including events the frontend writes
+ * directly and writes made on other instances. EventHandler also applies its own writes
+ * right away.
+ */
+@Component
+public class EventIntervalIndex {
+
+    private static final long BUCKET_SECONDS = TimeUnit.HOURS.toSeconds(1);
+    private static final long MAX_BUCKETS = TimeUnit.DAYS.toHours(7);
+
+    private final long retentionSeconds;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Dense ID -> event and its interval in epoch seconds (inclusive)
+    private final List<Event> events = new ArrayList<>();
+    private long[] starts = new long[256];
+    private long[] ends = new long[256];
+    private final Map<String, Integer> idByEventId = new HashMap<>();
+    // IDs of removed or archived events, reused before the ID space grows
+    private final ArrayDeque<Integer> freeIds = new ArrayDeque<>();
+
+    // Bucket number -> events touching that hour; sorted so a range is a subMap()
+    private final TreeMap<Long, IntList> buckets = new TreeMap<>();
+    private final IntList longEvents = new IntList();
+    private int indexed;
+
+    private final ScheduledExecutorService janitor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "event-index-janitor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public EventIntervalIndex(CollectionListeners listeners,
+                              @Value("${hunter.events.retention-days:30}") long retentionDays) {
+        this.retentionSeconds = TimeUnit.DAYS.toSeconds(retentionDays);
+        listeners.add("events", this::onSnapshot);
+        janitor.scheduleWithFixedDelay(this::evictArchived, 1, 1, TimeUnit.HOURS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        janitor.shutdownNow();
+    }
+
+    /**
+     * Applies a snapshot of the shared events listener. A baseline lists every event, so
+     * indexed events missing from it were deleted while no listener was running.
+     */
+    private void onSnapshot(QuerySnapshot snapshot, boolean baseline) {
+        // Decoded before taking the lock; null means removed
+        Map<String, Event> changed = new LinkedHashMap<>();
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            QueryDocumentSnapshot doc = change.getDocument();
+            Event event = null;
+            if (change.getType() != DocumentChange.Type.REMOVED) {
+                event = doc.toObject(Event.class);
+                if (event.getId() == null) {
+                    event.setId(doc.getId());
+                }
+            }
+            changed.put(doc.getId(), event);
+        }
+        Set<String> present = null;
+        if (baseline) {
+            present = new HashSet<>();
+            for (QueryDocumentSnapshot doc : snapshot.getDocuments()) {
+                present.add(doc.getId());
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (present != null) {
+                List<String> gone = new ArrayList<>();
+                for (String eventId : idByEventId.keySet()) {
+                    if (!present.contains(eventId)) {
+                        gone.add(eventId);
+                    }
+                }
+                gone.forEach(this::removeLocked);
+            }
+            changed.forEach((eventId, event) -> {
+                if (event == null) {
+                    removeLocked(eventId);
+                } else {
+                    indexLocked(event);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (baseline) {
+            System.out.println("Event interval index loaded with " + size() + " of " + changed.size() + " events");
+        }
+    }
+
+    /**
+     * Drops events that have ended more than retentionDays ago. Runs every hour.
+     *
+     * @return the number of events dropped
+     */
+    int evictArchived() {
+        lock.writeLock().lock();
+        try {
+            long cutoff = archiveCutoff();
+            List<String> archived = new ArrayList<>();
+            idByEventId.forEach((eventId, id) -> {
+                if (ends[id] < cutoff) {
+                    archived.add(eventId);
+                }
+            });
+            archived.forEach(this::removeLocked);
+            return archived.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds an event or replaces the indexed copy. An event that has no time, or
+     * that moved into the archive, is dropped.
+     */
+    public void index(Event event) {
+        if (event == null || event.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            indexLocked(event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Records a subscribe or unsubscribe on the indexed copy, so conflict checks see it.
+     */
+    public void setAttending(String eventId, String uid, boolean attending) {
+        lock.writeLock().lock();
+        try {
+            Integer id = idByEventId.get(eventId);
+            if (id == null || events.get(id) == null) {
+                return;
+            }
+            Event event = events.get(id);
+            List<String> attendees = new ArrayList<>(event.getAttendees() != null ? event.getAttendees() : List.of());
+            attendees.remove(uid);
+            if (attending) {
+                attendees.add(uid);
+            }
+            // Copy rather than mutate: lists handed out by overlapping() may still be in use
+            events.set(id, copyWithAttendees(event, attendees));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Events overlapping [from, to], ordered by start time.
+     *
+     * @throws IllegalArgumentException if from is further back than the retention window
+     */
+    public List<Event> overlapping(Timestamp from, Timestamp to) {
+        long fromSeconds = from.getSeconds();
+        if (fromSeconds < archiveCutoff()) {
+            throw new IllegalArgumentException("'from' must be within the last " + TimeUnit.SECONDS.toDays(retentionSeconds)
+                    + " days; use GET /api/events?from=&to= for older events");
+        }
+        lock.readLock().lock();
+        try {
+            return collect(fromSeconds, to.getSeconds(), null, null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Events the user attends whose time overlaps the given event's, ordered by start
+     * time. Empty if the event is not indexed (no time, archived or unknown).
+     */
+    public List<Event> conflicts(String eventId, String uid) {
+        lock.readLock().lock();
+        try {
+            Integer id = idByEventId.get(eventId);
+            if (id == null || events.get(id) == null) {
+                return List.of();
+            }
+            long start = starts[id];
+            long end = ends[id];
+            List<Event> overlapping = collect(start, end, uid, eventId);
+            // Back-to-back events (one ends when the next starts) do not clash
+            overlapping.removeIf(other -> {
+                int otherId = idByEventId.get(other.getId());
+                boolean instant = start == end || starts[otherId] == ends[otherId];
+                return !instant && (ends[otherId] == start || starts[otherId] == end);
+            });
+            return overlapping;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return indexed;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ----------- internals (callers hold the lock) -----------
+
+    /**
+     * Walks the buckets of [from, to]. An event listed in several of them is only
+     * taken from the first bucket that lies inside the range, so no set is needed.
+     */
+    private List<Event> collect(long from, long to, String attendee, String excludeId) {
+        List<Integer> hits = new ArrayList<>();
+        long cutoff = archiveCutoff();
+        if (from <= to) {
+            long firstBucket = bucket(from);
+            for (Map.Entry<Long, IntList> entry : buckets.subMap(firstBucket, true, bucket(to), true).entrySet()) {
+                long bucket = entry.getKey();
+                IntList list = entry.getValue();
+                for (int i = 0; i < list.size; i++) {
+                    int id = list.values[i];
+                    if (Math.max(bucket(starts[id]), firstBucket) == bucket && matches(id, from, to, cutoff, attendee, excludeId)) {
+                        hits.add(id);
+                    }
+                }
+            }
+            for (int i = 0; i < longEvents.size; i++) {
+                int id = longEvents.values[i];
+                if (matches(id, from, to, cutoff, attendee, excludeId)) {
+                    hits.add(id);
+                }
+            }
+        }
+
+        hits.sort(Comparator.<Integer>comparingLong(id -> starts[id]).thenComparingLong(id -> ends[id]));
+        List<Event> result = new ArrayList<>(hits.size());
+        for (int id : hits) {
+            result.add(events.get(id));
+        }
+        return result;
+    }
+
+    private boolean matches(int id, long from, long to, long cutoff, String attendee, String excludeId) {
+        if (starts[id] > to || ends[id] < from || ends[id] < cutoff) {
+            return false;
+        }
+        Event event = events.get(id);
+        if (excludeId != null && excludeId.equals(event.getId())) {
+            return false;
+        }
+        return attendee == null || (event.getAttendees() != null && event.getAttendees().contains(attendee));
+    }
+
+    /**
+     * @return true if the event is in the index afterwards
+     */
+    private boolean indexLocked(Event event) {
+        Timestamp start = event.getStartTime() != null ? event.getStartTime() : event.getDate();
+        long startSeconds = start != null ? start.getSeconds() : 0;
+        long endSeconds = event.getEndTime() != null ? Math.max(event.getEndTime().getSeconds(), startSeconds) : startSeconds;
+        if (start == null || endSeconds < archiveCutoff()) {
+            removeLocked(event.getId());
+            return false;
+        }
+
+        Integer existing = idByEventId.get(event.getId());
+        int id;
+        if (existing != null) {
+            id = existing;
+            unlink(id);
+        } else if (!freeIds.isEmpty()) {
+            id = freeIds.pop();
+            idByEventId.put(event.getId(), id);
+        } else {
+            id = events.size();
+            events.add(null);
+            idByEventId.put(event.getId(), id);
+            if (id == starts.length) {
+                starts = Arrays.copyOf(starts, id * 2);
+                ends = Arrays.copyOf(ends, id * 2);
+            }
+        }
+        events.set(id, event);
+        indexed++;
+        starts[id] = startSeconds;
+        ends[id] = endSeconds;
+
+        if (bucket(endSeconds) - bucket(startSeconds) >= MAX_BUCKETS) {
+            longEvents.add(id);
+        } else {
+            for (long b = bucket(startSeconds); b <= bucket(endSeconds); b++) {
+                buckets.computeIfAbsent(b, k -> new IntList()).add(id);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Takes the event out of the index and frees its dense ID.
+     */
+    private void removeLocked(String eventId) {
+        Integer id = idByEventId.remove(eventId);
+        if (id != null) {
+            unlink(id);
+            freeIds.push(id);
+        }
+    }
+
+    /**
+     * Takes the event out of its buckets. The dense ID stays reserved for it.
+     */
+    private void unlink(int id) {
+        if (bucket(ends[id]) - bucket(starts[id]) >= MAX_BUCKETS) {
+            longEvents.remove(id);
+        } else {
+            for (long b = bucket(starts[id]); b <= bucket(ends[id]); b++) {
+                IntList list = buckets.get(b);
+                list.remove(id);
+                if (list.size == 0) buckets.remove(b);
+            }
+        }
+        events.set(id, null);
+        indexed--;
+    }
+
+    private long archiveCutoff() {
+        return System.currentTimeMillis() / 1000L - retentionSeconds;
+    }
+
+    private static long bucket(long seconds) {
+        return Math.floorDiv(seconds, BUCKET_SECONDS);
+    }
+
+    private static Event copyWithAttendees(Event event, List<String> attendees) {
+        Event copy = new Event();
+        copy.setId(event.getId());
+        copy.setCreatedAt(event.getCreatedAt());
+        copy.setCreatedBy(event.getCreatedBy());
+        copy.setCreatorName(event.getCreatorName());
+        copy.setDate(event.getDate());
+        copy.setDescription(event.getDescription());
+        copy.setEndTime(event.getEndTime());
+        copy.setLocation(event.getLocation());
+        copy.setStartTime(event.getStartTime());
+        copy.setTags(event.getTags());
+        copy.setTitle(event.getTitle());
+        copy.setAttendees(attendees);
+        return copy;
+    }
+
+    /**
+     * Growable primitive int array, so buckets don't box every ID.
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void remove(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    values[i] = values[--size];
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.hunter_connect.services;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.firebase.cloud.FirestoreClient;
+import com.hunter_connect.config.FirebaseConfig;
+import com.hunter_connect.util.LatencyHistogram;
+import com.hunter_connect.util.StreamingQueryResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Thin instrumented access point for Firestore.
+ *
+ * Handlers build their references and queries as before, but issue the call through
+ * await() (a supplier of the ApiFuture, e.g. ref::get), which records per collection
+ * and operation:
+ * latency, number of round trips, documents and (opt-in, hunter.firestore.measure-bytes)
+ * approximate payload bytes. Estimating bytes decodes every document once more, so it
+ * is off by default and bytes are reported as 0.
+ * Calls made while a request is being handled are also added to that request's
+ * totals, which FirestoreTimingFilter reports in the Server-Timing header.
+ *
+ * All reads and writes go through here, so this is also where the backing store is
+ * swapped: FirebaseConfig points db() at the Firestore emulator when one is configured.
+ * hunter.firestore.simulated-latency-millis (plus up to simulated-jitter-millis, uniformly
+ * distributed) is then spent before every call made through await()/async() is issued, so
+ * load tests see production-like round trips and writes land as late as they would.
+ * Snapshot listeners and streams are not delayed.
+ */
+@Component
+public class FirestoreGateway {
+
+    // "collection operation" -> stats
+    private final Map<String, OperationStats> stats = new ConcurrentHashMap<>();
+
+    // Calls issued through await()/async() that have not completed yet
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final long latencyNanos;
+    private final long jitterNanos;
+    private final boolean measureBytes;
+
+    @Autowired
+    public FirestoreGateway(@Value("${hunter.firestore.simulated-latency-millis:0}") long latencyMillis,
+                            @Value("${hunter.firestore.simulated-jitter-millis:0}") long jitterMillis,
+                            @Value("${hunter.firestore.measure-bytes:false}") boolean measureBytes) {
+        this.latencyNanos = TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+        this.jitterNanos = TimeUnit.MILLISECONDS.toNanos(jitterMillis);
+        this.measureBytes = measureBytes;
+    }
+
+    public FirestoreGateway() {
+        this(0, 0, false);
+    }
+
+    public Firestore db() {
+        return FirestoreClient.getFirestore(FirebaseConfig.awaitReady());
+    }
+
+    public CollectionReference collection(String name) {
+        return db().collection(name);
+    }
+
+    /**
+     * Issues a Firestore call, waits for it and records it. Bytes are estimated from the
+     * result (snapshots) for reads; use the overload taking the written data for writes.
+     */
+    public <T> T await(String collection, String operation, Supplier<ApiFuture<T>> call)
+            throws ExecutionException, InterruptedException {
+        return await(collection, operation, null, call);
+    }
+
+    public <T> T await(String collection, String operation, Object writtenData, Supplier<ApiFuture<T>> call)
+            throws ExecutionException, InterruptedException {
+        long start = System.nanoTime();
+        T result = null;
+        inFlight.incrementAndGet();
+        try {
+            long delay = simulatedDelayNanos();
+            if (delay > 0) {
+                Thread.sleep(Duration.ofNanos(delay));
+            }
+            result = call.get().get();
+            return result;
+        } finally {
+            inFlight.decrementAndGet();
+            long nanos = System.nanoTime() - start;
+            int documents = countDocuments(result);
+            long bytes = writtenData != null ? measure(writtenData) : measureResult(result);
+            record(collection, operation, nanos, documents, bytes);
+        }
+    }
+
+    /**
+     * Non-blocking variant of await() for code that must not park its thread.
+     * The call is recorded when it completes; completion runs on the Firestore callback
+     * thread, so callers should hop to their own executor before doing real work.
+     */
+    public <T> CompletableFuture<T> async(String collection, String operation, Supplier<ApiFuture<T>> call) {
+        long start = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        inFlight.incrementAndGet();
+        long delay = simulatedDelayNanos();
+        Executor issuer = delay > 0 ? CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS) : Runnable::run;
+        issuer.execute(() -> {
+            ApiFuture<T> future;
+            try {
+                future = call.get();
+            } catch (RuntimeException e) {
+                inFlight.decrementAndGet();
+                result.completeExceptionally(e);
+                return;
+            }
+            ApiFutures.addCallback(future, new ApiFutureCallback<T>() {
+                @Override
+                public void onSuccess(T value) {
+                    inFlight.decrementAndGet();
+                    record(collection, operation, System.nanoTime() - start, countDocuments(value), measureResult(value));
+                    result.complete(value);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    inFlight.decrementAndGet();
+                    record(collection, operation, System.nanoTime() - start, 0, 0);
+                    result.completeExceptionally(t);
+                }
+            }, Runnable::run);
+        });
+        return result;
+    }
+
+    /**
+     * Firestore calls currently waited on; a growing number means Firestore is the bottleneck.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Records a call whose result was consumed elsewhere, e.g. a streamed query.
+     */
+    public void record(String collection, String operation, long nanos, int documents, long bytes) {
+        stats.computeIfAbsent(collection + " " + operation, k -> new OperationStats())
+                .add(nanos, documents, bytes);
+
+        FirestoreRequestStats current = FirestoreRequestStats.current();
+        if (current != null) {
+            current.add(collection, operation, nanos, documents, bytes);
+        }
+    }
+
+    /**
+     * Observer for StreamingQueryResponse; records the whole stream as one "stream" call.
+     * Streams finish after the handler returned, so they only count towards the global stats.
+     */
+    public StreamingQueryResponse.QueryObserver observeStream(String collection) {
+        return new StreamingQueryResponse.QueryObserver() {
+            private int documents;
+            private long bytes;
+
+            @Override
+            public void onDocument(DocumentSnapshot doc) {
+                documents++;
+                bytes += measure(doc);
+            }
+
+            @Override
+            public void onComplete(long nanos) {
+                record(collection, "stream", nanos, documents, bytes);
+            }
+        };
+    }
+
+    /**
+     * Per-operation totals since startup, for GET /api/metrics/firestore.
+     */
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        stats.forEach((key, s) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("calls", s.latency.count());
+            entry.put("documents", s.documents.sum());
+            entry.put("bytes", s.bytes.sum());
+            entry.put("p50", s.latency.percentileNanos(50) / 1_000_000.0);
+            entry.put("p99", s.latency.percentileNanos(99) / 1_000_000.0);
+            entry.put("max", s.latency.maxNanos() / 1_000_000.0);
+            result.put(key, entry);
+        });
+        return result;
+    }
+
+    private long simulatedDelayNanos() {
+        if (jitterNanos > 0) {
+            return latencyNanos + ThreadLocalRandom.current().nextLong(jitterNanos + 1);
+        }
+        return latencyNanos;
+    }
+
+    /**
+     * True if a failed call (or a batch containing it) was rejected because a document it
+     * updates does not exist, e.g. it was deleted in the meantime. Retrying cannot help.
+     */
+    public static boolean isNotFound(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof ApiException api && api.getStatusCode().getCode() == StatusCode.Code.NOT_FOUND) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * True if a failed call may succeed when sent again as is: Firestore was unavailable,
+     * overloaded or too slow, or the call was interrupted. Anything else (an invalid
+     * argument, a missing document, a denied permission) will fail the same way again.
+     */
+    public static boolean isTransient(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof InterruptedException) {
+                return true;
+            }
+            if (t instanceof ApiException api) {
+                StatusCode.Code code = api.getStatusCode().getCode();
+                return api.isRetryable() || code == StatusCode.Code.UNAVAILABLE
+                        || code == StatusCode.Code.DEADLINE_EXCEEDED || code == StatusCode.Code.RESOURCE_EXHAUSTED
+                        || code == StatusCode.Code.ABORTED;
+            }
+        }
+        return false;
+    }
+
+    // ----------- size estimation -----------
+
+    private static int countDocuments(Object result) {
+        if (result instanceof QuerySnapshot q) return q.size();
+        if (result instanceof DocumentSnapshot d) return d.exists() ? 1 : 0;
+        if (result instanceof Collection<?> c) return c.size();
+        return result != null ? 1 : 0;
+    }
+
+    /**
+     * approximateSize(value), or 0 unless hunter.firestore.measure-bytes is on.
+     */
+    public long measure(Object value) {
+        return measureBytes ? approximateSize(value) : 0;
+    }
+
+    private long measureResult(Object result) {
+        return measureBytes ? approximateResultSize(result) : 0;
+    }
+
+    private static long approximateResultSize(Object result) {
+        if (result instanceof QuerySnapshot q) {
+            long total = 0;
+            for (DocumentSnapshot doc : q.getDocuments()) total += approximateSize(doc);
+            return total;
+        }
+        if (result instanceof DocumentSnapshot d) return approximateSize(d);
+        return 0;
+    }
+
+    /**
+     * Rough Firestore-style size: string lengths, 8 bytes per number/timestamp,
+     * field names included. Good enough to tell a 200 B read from a 200 KB one.
+     */
+    public static long approximateSize(Object value) {
+        if (value == null || value instanceof Boolean) return 1;
+        if (value instanceof Number || value instanceof Timestamp) return 8;
+        if (value instanceof String s) return s.length() + 1;
+        if (value instanceof DocumentSnapshot d) {
+            return d.exists() ? d.getReference().getPath().length() + 16 + approximateSize(d.getData()) : 0;
+        }
+        if (value instanceof DocumentReference r) return r.getPath().length() + 1;
+        if (value instanceof Map<?, ?> m) {
+            long total = 32;
+            for (Map.Entry<?, ?> e : m.entrySet()) {
+                total += String.valueOf(e.getKey()).length() + 1 + approximateSize(e.getValue());
+            }
+            return total;
+        }
+        if (value instanceof List<?> l) {
+            long total = 0;
+            for (Object item : l) total += approximateSize(item);
+            return total;
+        }
+        // POJOs are not walked; they are counted as documents only
+        return 0;
+    }
+
+    private static final class OperationStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder documents = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+
+        void add(long nanos, int docs, long size) {
+            latency.record(nanos);
+            documents.add(docs);
+            bytes.add(size);
+        }
+    }
+}
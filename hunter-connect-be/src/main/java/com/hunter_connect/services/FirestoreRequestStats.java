@@ -0,0 +1,70 @@
+package com.hunter_connect.services;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Firestore totals for the request currently being handled on this thread.
+ * Bound by FirestoreTimingFilter around each handler call.
+ */
+public final class FirestoreRequestStats {
+
+    private static final ThreadLocal<FirestoreRequestStats> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, long[]> byOperation = new LinkedHashMap<>(); // {calls, nanos, docs, bytes}
+    private long calls;
+    private long nanos;
+    private long documents;
+    private long bytes;
+
+    public static FirestoreRequestStats current() {
+        return CURRENT.get();
+    }
+
+    public static FirestoreRequestStats begin() {
+        FirestoreRequestStats stats = new FirestoreRequestStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    synchronized void add(String collection, String operation, long callNanos, int docs, long size) {
+        calls++;
+        nanos += callNanos;
+        documents += docs;
+        bytes += size;
+
+        long[] entry = byOperation.computeIfAbsent(collection + "-" + operation, k -> new long[4]);
+        entry[0]++;
+        entry[1] += callNanos;
+        entry[2] += docs;
+        entry[3] += size;
+    }
+
+    public synchronized long getCalls() {
+        return calls;
+    }
+
+    /**
+     * Server-Timing value, e.g.
+     * fs;dur=12.40;desc="2 calls, 3 docs, 1840 B", fs-users-get;dur=4.10, fs-events-set;dur=8.30
+     */
+    public synchronized String toServerTiming() {
+        StringBuilder header = new StringBuilder();
+        header.append("fs;dur=").append(millis(nanos))
+                .append(";desc=\"").append(calls).append(" calls, ")
+                .append(documents).append(" docs, ")
+                .append(bytes).append(" B\"");
+        byOperation.forEach((name, entry) ->
+                header.append(", fs-").append(name).append(";dur=").append(millis(entry[1])));
+        return header.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,254 @@
+package com.hunter_connect.services;
+
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compact in-memory copy of the friendship graph stored in users/{uid}.friends.
+ *
+ * UIDs are mapped to dense ints and each user's friends are kept as a sorted int[],
+ * so mutual-friend and suggestion queries are array intersections instead of
+ * Firestore reads.
+ *
+ * The frontend edits friend lists directly in Firestore as well as through
+ * PUT /api/users, so the graph follows the shared users listener (CollectionListeners);
+ * UserHandler also pushes its own writes in immediately. The same snapshots drop
+ * profiles edited elsewhere from UserProfileCache.
+ */
+@Component
+public class FriendGraph {
+
+    private static final int[] NO_FRIENDS = new int[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> idByUid = new HashMap<>();
+    private final List<String> uidById = new ArrayList<>();
+    private int[][] friends = new int[1024][];
+
+    // Only touched on the listener thread
+    private boolean loaded;
+
+    private final UserProfileCache profiles;
+
+    public FriendGraph(CollectionListeners listeners, UserProfileCache profiles) {
+        this.profiles = profiles;
+        listeners.add("users", this::onSnapshot);
+    }
+
+    /**
+     * The baseline loads the whole graph, later snapshots only carry the changed documents.
+     */
+    private void onSnapshot(QuerySnapshot snapshot, boolean baseline) {
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            QueryDocumentSnapshot doc = change.getDocument();
+            // The first snapshot lists every user; nothing is stale yet
+            if (loaded) {
+                profiles.invalidate(doc.getId());
+            }
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                setFriends(doc.getId(), List.of());
+            } else {
+                Object value = doc.get("friends");
+                setFriends(doc.getId(), value instanceof List<?> list ? toStrings(list) : List.of());
+            }
+        }
+        loaded = true;
+    }
+
+    /**
+     * Replaces the friend list of one user.
+     */
+    public void setFriends(String uid, Collection<String> friendUids) {
+        lock.writeLock().lock();
+        try {
+            int id = idFor(uid);
+            int[] adjacency = new int[friendUids.size()];
+            int n = 0;
+            for (String friendUid : friendUids) {
+                if (friendUid != null && !friendUid.equals(uid)) {
+                    adjacency[n++] = idFor(friendUid);
+                }
+            }
+            adjacency = Arrays.copyOf(adjacency, n);
+            Arrays.sort(adjacency);
+            friends[id] = dedupe(adjacency);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * UIDs that are friends of both users.
+     */
+    public List<String> mutualFriends(String uidA, String uidB) {
+        lock.readLock().lock();
+        try {
+            int[] a = adjacency(uidA);
+            int[] b = adjacency(uidB);
+            List<String> result = new ArrayList<>();
+            int i = 0, j = 0;
+            while (i < a.length && j < b.length) {
+                if (a[i] < b[j]) i++;
+                else if (a[i] > b[j]) j++;
+                else {
+                    result.add(uidById.get(a[i]));
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int mutualFriendCount(String uidA, String uidB) {
+        lock.readLock().lock();
+        try {
+            return intersectionSize(adjacency(uidA), adjacency(uidB));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Friends-of-friends who are not already friends, ranked by number of mutual friends.
+     */
+    public List<Suggestion> suggestions(String uid, int limit) {
+        lock.readLock().lock();
+        try {
+            Integer self = idByUid.get(uid);
+            if (self == null) {
+                return List.of();
+            }
+            int[] direct = friends[self] != null ? friends[self] : NO_FRIENDS;
+
+            // Concatenate the friends of every friend; after sorting, run length = mutual count
+            int total = 0;
+            for (int f : direct) total += adjacencyOf(f).length;
+            int[] candidates = new int[total];
+            int n = 0;
+            for (int f : direct) {
+                int[] next = adjacencyOf(f);
+                System.arraycopy(next, 0, candidates, n, next.length);
+                n += next.length;
+            }
+            Arrays.sort(candidates);
+
+            PriorityQueue<int[]> top = new PriorityQueue<>(limit + 1, (x, y) -> Integer.compare(x[1], y[1]));
+            for (int i = 0; i < candidates.length; ) {
+                int candidate = candidates[i];
+                int j = i;
+                while (j < candidates.length && candidates[j] == candidate) j++;
+                int mutual = j - i;
+                i = j;
+
+                if (candidate == self || Arrays.binarySearch(direct, candidate) >= 0) continue;
+                top.offer(new int[]{candidate, mutual});
+                if (top.size() > limit) top.poll();
+            }
+
+            List<Suggestion> result = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                int[] entry = top.poll();
+                result.add(new Suggestion(uidById.get(entry[0]), entry[1]));
+            }
+            return result.reversed();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The subset of attendees who are friends of the user.
+     */
+    public List<String> friendsAmong(String uid, Collection<String> attendeeUids) {
+        lock.readLock().lock();
+        try {
+            int[] direct = adjacency(uid);
+            List<String> result = new ArrayList<>();
+            for (String attendee : attendeeUids) {
+                Integer id = idByUid.get(attendee);
+                if (id != null && Arrays.binarySearch(direct, id) >= 0) {
+                    result.add(attendee);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public record Suggestion(String uid, int mutualFriends) {}
+
+    // ----------- internals (callers hold the lock) -----------
+
+    private int idFor(String uid) {
+        Integer existing = idByUid.get(uid);
+        if (existing != null) {
+            return existing;
+        }
+        int id = uidById.size();
+        uidById.add(uid);
+        idByUid.put(uid, id);
+        if (id == friends.length) {
+            friends = Arrays.copyOf(friends, id * 2);
+        }
+        return id;
+    }
+
+    private int[] adjacency(String uid) {
+        Integer id = idByUid.get(uid);
+        return id == null ? NO_FRIENDS : adjacencyOf(id);
+    }
+
+    private int[] adjacencyOf(int id) {
+        int[] adjacency = friends[id];
+        return adjacency != null ? adjacency : NO_FRIENDS;
+    }
+
+    private static int intersectionSize(int[] a, int[] b) {
+        int count = 0;
+        int i = 0, j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    private static int[] dedupe(int[] sorted) {
+        if (sorted.length < 2) return sorted;
+        int n = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] != sorted[n - 1]) sorted[n++] = sorted[i];
+        }
+        return n == sorted.length ? sorted : Arrays.copyOf(sorted, n);
+    }
+
+    private static List<String> toStrings(List<?> values) {
+        List<String> result = new ArrayList<>(values.size());
+        for (Object value : values) {
+            if (value instanceof String s) result.add(s);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,341 @@
+package com.hunter_connect.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Server-Sent Events feed of document changes, one channel per collection.
+ *
+ * Each channel is a consumer of the collection's shared snapshot listener
+ * (CollectionListeners), attached when the first client subscribes and kept until shutdown;
+ * the listener runs for the other consumers anyway. Every change is serialized once and
+ * offered to all subscribers, so N clients cost no extra listener instead of N polling
+ * queries.
+ *
+ * Backpressure: every subscriber has a bounded queue drained by its own virtual
+ * thread. A client that lets the queue fill up is disconnected rather than slowing
+ * the listener down. EventSource reconnects on its own and sends Last-Event-ID.
+ *
+ * Resume: the newest hunter.live.replay-size events are kept per channel, also while no
+ * client is connected. A client reconnecting with a Last-Event-ID still in that window
+ * gets the events it missed, even if it was the only subscriber. Otherwise it gets a
+ * "reset" event and should re-fetch the list.
+ *
+ * Event IDs are "<epoch>-<seq>"; the epoch changes only when the channel is first
+ * attached and when its listener fails, since changes may have been missed then.
+ */
+@Component
+public class LiveFeed {
+
+    private static final long KEEPALIVE_SECONDS = 25;
+
+    private final CollectionListeners listeners;
+    private final ObjectMapper objectMapper;
+    private final int replaySize;
+    private final int queueSize;
+    private final Duration timeout;
+
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("live-", 0).factory());
+
+    public LiveFeed(CollectionListeners listeners, ObjectMapper objectMapper,
+                    @Value("${hunter.live.replay-size:1024}") int replaySize,
+                    @Value("${hunter.live.queue-size:256}") int queueSize,
+                    @Value("${hunter.live.timeout-minutes:30}") long timeoutMinutes) {
+        this.listeners = listeners;
+        this.objectMapper = objectMapper;
+        this.replaySize = replaySize;
+        this.queueSize = queueSize;
+        this.timeout = Duration.ofMinutes(timeoutMinutes);
+    }
+
+    /**
+     * Opens an SSE stream of changes to the collection. mapper turns a document into the
+     * object sent to clients (the same shape as the list endpoint returns); it may return
+     * null for documents that should not be sent. The first subscriber's mapper is used.
+     */
+    public ServerResponse subscribe(ServerRequest request, String collection,
+                                    Function<DocumentSnapshot, Object> mapper) {
+        String lastEventId = request.headers().firstHeader("Last-Event-ID");
+        if (lastEventId == null) {
+            lastEventId = request.param("lastEventId").orElse(null);
+        }
+        String resumeFrom = lastEventId;
+        Channel channel = channels.computeIfAbsent(collection, name -> new Channel(name, mapper));
+
+        return ServerResponse.sse(sse -> {
+            Subscriber subscriber = new Subscriber(sse, new ArrayBlockingQueue<>(queueSize));
+            List<LiveEvent> backlog = channel.join(subscriber, resumeFrom);
+
+            sse.onTimeout(() -> channel.leave(subscriber));
+            sse.onError(e -> channel.leave(subscriber));
+            sse.onComplete(() -> channel.leave(subscriber));
+
+            executor.execute(() -> drain(channel, subscriber, backlog));
+        }, timeout);
+    }
+
+    /**
+     * Subscribers per collection, for metrics and tests.
+     */
+    public Map<String, Integer> getSubscribers() {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        channels.forEach((name, channel) -> result.put(name, channel.subscribers.size()));
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        channels.values().forEach(Channel::stop);
+        executor.shutdownNow();
+    }
+
+    // ----------- delivery -----------
+
+    /**
+     * Writes the replayed events, then everything that arrives on the subscriber's queue.
+     * Runs until the client goes away, the queue overflows or the server shuts down.
+     */
+    private void drain(Channel channel, Subscriber subscriber, List<LiveEvent> backlog) {
+        try {
+            for (LiveEvent event : backlog) {
+                write(subscriber, event);
+            }
+            while (!subscriber.closed) {
+                LiveEvent event = subscriber.queue.poll(KEEPALIVE_SECONDS, TimeUnit.SECONDS);
+                if (event == null) {
+                    // Keeps proxies and load balancers from closing an idle stream
+                    subscriber.sse.comment("keepalive").send();
+                } else if (event == LiveEvent.CLOSE) {
+                    break;
+                } else {
+                    write(subscriber, event);
+                }
+            }
+        } catch (Exception e) {
+            // Client disconnected or the thread was interrupted on shutdown
+        } finally {
+            channel.leave(subscriber);
+            subscriber.sse.complete();
+        }
+    }
+
+    private static void write(Subscriber subscriber, LiveEvent event) throws Exception {
+        if (event.id != null) {
+            subscriber.sse.id(event.id);
+        }
+        subscriber.sse.event(event.type).data(event.data);
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not serialize live event", e);
+        }
+    }
+
+    // ----------- channels -----------
+
+    /**
+     * One collection: the replay window and the connected subscribers.
+     */
+    private final class Channel implements CollectionListeners.Consumer {
+        final String collection;
+        final Function<DocumentSnapshot, Object> mapper;
+        final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+        // Guarded by this
+        final ArrayDeque<LiveEvent> replay = new ArrayDeque<>();
+        boolean attached;
+        long epoch;
+        long seq;
+
+        Channel(String collection, Function<DocumentSnapshot, Object> mapper) {
+            this.collection = collection;
+            this.mapper = mapper;
+        }
+
+        /**
+         * Registers the subscriber and returns the events it has to catch up on. Both
+         * happen under the channel lock, so no event falls between replay and live delivery.
+         */
+        synchronized List<LiveEvent> join(Subscriber subscriber, String lastEventId) {
+            if (!attached) {
+                attach();
+            }
+            subscribers.add(subscriber);
+
+            List<LiveEvent> backlog = new ArrayList<>();
+            if (lastEventId == null) {
+                // Gives the client an ID to resume from even if no change arrives before it drops
+                backlog.add(new LiveEvent(currentId(), seq, "ready", "{}"));
+                return backlog;
+            }
+            long resumeSeq = parseSeq(lastEventId);
+            LiveEvent oldest = replay.peekFirst();
+            long oldestSeq = oldest != null ? oldest.seq : seq + 1;
+            if (resumeSeq < 0 || resumeSeq > seq || resumeSeq < oldestSeq - 1) {
+                // Unknown epoch or too far behind: the client has to reload
+                backlog.add(new LiveEvent(currentId(), seq, "reset", "{}"));
+                return backlog;
+            }
+            for (LiveEvent event : replay) {
+                if (event.seq > resumeSeq) {
+                    backlog.add(event);
+                }
+            }
+            return backlog;
+        }
+
+        /**
+         * Removes the subscriber. The channel stays attached with its epoch and replay
+         * window, so a client that was the last to leave can still resume.
+         */
+        synchronized void leave(Subscriber subscriber) {
+            subscriber.closed = true;
+            subscribers.remove(subscriber);
+        }
+
+        private void attach() {
+            resetEpoch();
+            attached = true;
+            listeners.add(collection, this);
+        }
+
+        synchronized void stop() {
+            if (attached) {
+                listeners.remove(collection, this);
+                attached = false;
+            }
+        }
+
+        private void resetEpoch() {
+            epoch = System.currentTimeMillis();
+            seq = 0;
+            replay.clear();
+        }
+
+        /**
+         * Changes may be lost until the listener is back. Subscribers are told to reload and
+         * disconnected; they resume against a new epoch. The channel stays attached, since
+         * CollectionListeners restarts the listener for its consumers.
+         */
+        @Override
+        public synchronized void onError() {
+            System.out.println("Live feed for " + collection + " lost its listener");
+            resetEpoch();
+            LiveEvent reset = new LiveEvent(null, 0, "reset", "{}");
+            for (Subscriber subscriber : subscribers) {
+                subscribers.remove(subscriber);
+                if (!subscriber.queue.offer(reset)) {
+                    subscriber.queue.clear();
+                    subscriber.queue.offer(reset);
+                }
+                subscriber.queue.offer(LiveEvent.CLOSE);
+            }
+        }
+
+        @Override
+        public synchronized void onSnapshot(QuerySnapshot snapshot, boolean baseline) {
+            // A baseline lists the whole collection; clients already have it from the GET
+            if (baseline) {
+                return;
+            }
+
+            for (DocumentChange change : snapshot.getDocumentChanges()) {
+                DocumentSnapshot doc = change.getDocument();
+                String type = switch (change.getType()) {
+                    case ADDED -> "added";
+                    case MODIFIED -> "modified";
+                    case REMOVED -> "removed";
+                };
+                Map<String, Object> payload = new LinkedHashMap<>();
+                payload.put("id", doc.getId());
+                if (change.getType() != DocumentChange.Type.REMOVED) {
+                    Object value = mapper.apply(doc);
+                    if (value == null) {
+                        continue;
+                    }
+                    payload.put("data", value);
+                }
+                seq++;
+                publishLocked(new LiveEvent(currentId(), seq, type, toJson(payload)));
+            }
+        }
+
+        private void publishLocked(LiveEvent event) {
+            replay.addLast(event);
+            if (replay.size() > replaySize) {
+                replay.removeFirst();
+            }
+            for (Subscriber subscriber : subscribers) {
+                if (!subscriber.queue.offer(event)) {
+                    // Too slow: drop it; it can resume from the replay window after reconnecting
+                    leave(subscriber);
+                    subscriber.queue.clear();
+                    subscriber.queue.offer(LiveEvent.CLOSE);
+                }
+            }
+        }
+
+        private String currentId() {
+            return epoch + "-" + seq;
+        }
+
+        /**
+         * The sequence number of an ID from this epoch, or -1.
+         */
+        private long parseSeq(String eventId) {
+            int dash = eventId.indexOf('-');
+            try {
+                if (dash > 0 && Long.parseLong(eventId.substring(0, dash)) == epoch) {
+                    return Long.parseLong(eventId.substring(dash + 1));
+                }
+            } catch (NumberFormatException e) {
+                // Not one of ours
+            }
+            return -1;
+        }
+    }
+
+    private static final class Subscriber {
+        final ServerResponse.SseBuilder sse;
+        final BlockingQueue<LiveEvent> queue;
+        volatile boolean closed;
+
+        Subscriber(ServerResponse.SseBuilder sse, BlockingQueue<LiveEvent> queue) {
+            this.sse = sse;
+            this.queue = queue;
+        }
+    }
+
+    /**
+     * One change, already serialized.
+     */
+    private record LiveEvent(String id, long seq, String type, String data) {
+        static final LiveEvent CLOSE = new LiveEvent(null, -1, "close", "");
+    }
+}
@@ -0,0 +1,399 @@
+package com.hunter_connect.services;
+
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.hunter_connect.models.Post;
+import com.hunter_connect.models.User;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index from post tag to post, used to build the personalized feed.
+ *
+ * Every post gets a dense int ID; postings are plain int arrays per tag. A feed request
+ * only touches the postings for the caller's preferences, so its cost follows the number
+ * of matching posts rather than the size of the collection.
+ *
+ * Tag namespaces: post tags.courses are matched against Preferences.courses, post
+ * tags.general against Preferences.interests and Preferences.skills.
+ * The index is loaded from the baseline of the shared posts listener (CollectionListeners)
+ * and follows its changes, including posts the frontend writes directly and writes made
+ * on other instances; PostHandler also indexes its own writes right away. Posts that
+ * age out of the window are evicted every hour.
+ */
+@Component
+public class PostFeedIndex {
+
+    private static final String COURSE_PREFIX = "c:";
+    private static final String GENERAL_PREFIX = "g:";
+
+    private final long windowSeconds;
+    private final double halfLifeHours;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Dense ID -> post data; removed posts leave a null and Long.MIN_VALUE until compaction
+    private final List<Post> posts = new ArrayList<>();
+    private final List<Set<String>> tagsById = new ArrayList<>();
+    private long[] timestamps = new long[1024];
+
+    private final Map<String, Integer> idByPostId = new HashMap<>();
+    private final Map<String, IntList> postings = new HashMap<>();
+
+    private final ScheduledExecutorService janitor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "feed-index-janitor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public PostFeedIndex(CollectionListeners listeners,
+                         @Value("${hunter.feed.window-days:30}") long windowDays,
+                         @Value("${hunter.feed.half-life-hours:48}") double halfLifeHours) {
+        this.windowSeconds = TimeUnit.DAYS.toSeconds(windowDays);
+        this.halfLifeHours = halfLifeHours;
+        listeners.add("posts", this::onSnapshot);
+        janitor.scheduleWithFixedDelay(this::compact, 1, 1, TimeUnit.HOURS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        janitor.shutdownNow();
+    }
+
+    /**
+     * Applies a snapshot of the shared posts listener. A baseline lists every post, so
+     * indexed posts missing from it were deleted while no listener was running.
+     * Posts older than the feed window are not indexed.
+     */
+    private void onSnapshot(QuerySnapshot snapshot, boolean baseline) {
+        // Decoded before taking the lock; null means removed
+        Map<String, Post> changed = new LinkedHashMap<>();
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            QueryDocumentSnapshot doc = change.getDocument();
+            Post post = null;
+            if (change.getType() != DocumentChange.Type.REMOVED) {
+                post = doc.toObject(Post.class);
+                if (post.getPostID() == null) {
+                    post.setPostID(doc.getId());
+                }
+            }
+            changed.put(doc.getId(), post);
+        }
+        Set<String> present = null;
+        if (baseline) {
+            present = new HashSet<>();
+            for (QueryDocumentSnapshot doc : snapshot.getDocuments()) {
+                present.add(doc.getId());
+            }
+        }
+
+        long oldest = nowSeconds() - windowSeconds;
+        lock.writeLock().lock();
+        try {
+            if (present != null) {
+                List<String> gone = new ArrayList<>();
+                for (String postId : idByPostId.keySet()) {
+                    if (!present.contains(postId)) {
+                        gone.add(postId);
+                    }
+                }
+                gone.forEach(this::removeLocked);
+            }
+            changed.forEach((postId, post) -> {
+                if (post == null || (post.getTimestamp() != null && post.getTimestamp().getSeconds() < oldest)) {
+                    removeLocked(postId);
+                } else {
+                    indexLocked(post);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (baseline) {
+            System.out.println("Feed index loaded with " + size() + " posts");
+        }
+    }
+
+    /**
+     * Drops posts that aged out of the feed window and renumbers the rest in timestamp
+     * order, so removed posts stop taking space. Runs every hour under the write lock; it
+     * only touches memory.
+     */
+    void compact() {
+        lock.writeLock().lock();
+        try {
+            long oldest = nowSeconds() - windowSeconds;
+            List<Integer> live = new ArrayList<>(idByPostId.values());
+            live.removeIf(id -> timestamps[id] < oldest);
+            live.sort(Comparator.comparingLong(id -> timestamps[id]));
+
+            List<Post> kept = new ArrayList<>(live.size());
+            long[] keptTimes = new long[live.size()];
+            for (int i = 0; i < live.size(); i++) {
+                kept.add(posts.get(live.get(i)));
+                keptTimes[i] = timestamps[live.get(i)];
+            }
+            posts.clear();
+            tagsById.clear();
+            idByPostId.clear();
+            postings.clear();
+            timestamps = new long[Math.max(1024, kept.size())];
+            kept.forEach(this::indexLocked);
+            // Posts without a timestamp keep the time they were first indexed
+            System.arraycopy(keptTimes, 0, timestamps, 0, keptTimes.length);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a new post or replaces the indexed copy of an existing one.
+     */
+    public void index(Post post) {
+        if (post == null || post.getPostID() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            indexLocked(post);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to limit posts ranked by tag overlap with the user's preferences,
+     * discounted by age. Topped up with the newest posts if too few match.
+     */
+    public List<Post> feed(User.Preferences preferences, int limit) {
+        Set<String> wanted = preferenceKeys(preferences);
+        long now = nowSeconds();
+        long oldest = now - windowSeconds;
+
+        lock.readLock().lock();
+        try {
+            // 1. Gather matched postings and count overlaps by sorting the concatenation
+            int total = 0;
+            List<IntList> matched = new ArrayList<>(wanted.size());
+            for (String key : wanted) {
+                IntList list = postings.get(key);
+                if (list != null) {
+                    matched.add(list);
+                    total += list.size;
+                }
+            }
+            int[] hits = new int[total];
+            int n = 0;
+            for (IntList list : matched) {
+                System.arraycopy(list.values, 0, hits, n, list.size);
+                n += list.size;
+            }
+            Arrays.sort(hits);
+
+            // 2. Keep the best `limit` by score (min-heap on score)
+            PriorityQueue<double[]> top = new PriorityQueue<>(limit + 1, (a, b) -> Double.compare(a[0], b[0]));
+            for (int i = 0; i < hits.length; ) {
+                int id = hits[i];
+                int j = i;
+                while (j < hits.length && hits[j] == id) j++;
+                int overlap = j - i;
+                i = j;
+
+                if (timestamps[id] < oldest) continue;
+                double score = overlap * decay(now - timestamps[id]);
+                top.offer(new double[]{score, id});
+                if (top.size() > limit) top.poll();
+            }
+
+            List<Post> result = new ArrayList<>(limit);
+            Set<Integer> seen = new HashSet<>();
+            double[][] ranked = top.toArray(new double[0][]);
+            Arrays.sort(ranked, (a, b) -> Double.compare(b[0], a[0]));
+            for (double[] entry : ranked) {
+                int id = (int) entry[1];
+                result.add(posts.get(id));
+                seen.add(id);
+            }
+
+            // 3. Not enough matches: fill with the newest posts
+            if (result.size() < limit) {
+                for (int id : newest(limit * 2)) {
+                    if (result.size() >= limit) break;
+                    if (timestamps[id] >= oldest && seen.add(id)) {
+                        result.add(posts.get(id));
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return idByPostId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ----------- internals (callers hold the lock) -----------
+
+    private void indexLocked(Post post) {
+        Set<String> newTags = postKeys(post);
+        Integer existing = idByPostId.get(post.getPostID());
+
+        int id;
+        if (existing == null) {
+            id = posts.size();
+            posts.add(post);
+            tagsById.add(newTags);
+            idByPostId.put(post.getPostID(), id);
+            if (id == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, id * 2);
+            }
+            for (String key : newTags) {
+                postings.computeIfAbsent(key, k -> new IntList()).add(id);
+            }
+        } else {
+            id = existing;
+            Set<String> oldTags = tagsById.get(id);
+            for (String key : oldTags) {
+                if (!newTags.contains(key)) {
+                    IntList list = postings.get(key);
+                    list.remove(id);
+                    if (list.size == 0) postings.remove(key);
+                }
+            }
+            for (String key : newTags) {
+                if (!oldTags.contains(key)) {
+                    postings.computeIfAbsent(key, k -> new IntList()).add(id);
+                }
+            }
+            posts.set(id, post);
+            tagsById.set(id, newTags);
+        }
+        timestamps[id] = post.getTimestamp() != null ? post.getTimestamp().getSeconds() : nowSeconds();
+    }
+
+    private void removeLocked(String postId) {
+        Integer id = idByPostId.remove(postId);
+        if (id == null) {
+            return;
+        }
+        for (String key : tagsById.get(id)) {
+            IntList list = postings.get(key);
+            list.remove(id);
+            if (list.size == 0) postings.remove(key);
+        }
+        posts.set(id, null);
+        tagsById.set(id, Set.of());
+        // Never inside the window, so feed() and newest() skip the slot
+        timestamps[id] = Long.MIN_VALUE;
+    }
+
+    /**
+     * The newest `count` posts, newest first. Selected by timestamp over every slot: dense
+     * IDs follow load order, and the baseline arrives in document-ID order, not post time.
+     */
+    private int[] newest(int count) {
+        // Min-heap on timestamp holding the best `count` seen so far
+        PriorityQueue<Integer> top = new PriorityQueue<>(count + 1, Comparator.comparingLong(id -> timestamps[id]));
+        for (int id = 0; id < posts.size(); id++) {
+            if (posts.get(id) == null) continue;
+            if (top.size() < count) {
+                top.offer(id);
+            } else if (timestamps[id] > timestamps[top.peek()]) {
+                top.poll();
+                top.offer(id);
+            }
+        }
+        int[] result = new int[top.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = top.poll();
+        }
+        return result;
+    }
+
+    private double decay(long ageSeconds) {
+        double ageHours = Math.max(0, ageSeconds) / 3600.0;
+        return Math.pow(0.5, ageHours / halfLifeHours);
+    }
+
+    private static Set<String> postKeys(Post post) {
+        Set<String> keys = new HashSet<>();
+        if (post.getTags() != null) {
+            addKeys(keys, COURSE_PREFIX, post.getTags().getCourses());
+            addKeys(keys, GENERAL_PREFIX, post.getTags().getGeneral());
+        }
+        return keys;
+    }
+
+    private static Set<String> preferenceKeys(User.Preferences preferences) {
+        Set<String> keys = new HashSet<>();
+        if (preferences != null) {
+            addKeys(keys, COURSE_PREFIX, preferences.getCourses());
+            addKeys(keys, GENERAL_PREFIX, preferences.getInterests());
+            addKeys(keys, GENERAL_PREFIX, preferences.getSkills());
+        }
+        return keys;
+    }
+
+    private static void addKeys(Set<String> keys, String prefix, List<String> values) {
+        if (values == null) return;
+        for (String value : values) {
+            if (value != null && !value.isBlank()) {
+                keys.add(prefix + value.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+
+    private static long nowSeconds() {
+        return System.currentTimeMillis() / 1000L;
+    }
+
+    /**
+     * Growable primitive int array, so postings don't box every ID.
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void remove(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    values[i] = values[--size];
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.hunter_connect.services;
+
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.WriteBatch;
+import com.hunter_connect.models.Post;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Buffers post likes in memory and writes them to Firestore in periodic batches.
+ *
+ * Each post that has been liked recently gets a PostLikes entry holding the persisted
+ * likedBy set, the per-user changes not yet flushed, and a LongAdder with the pending
+ * change to 'likes'. A like is one map update and one adder increment; every
+ * flushIntervalMillis the pending changes of all posts are written in batches of up to
+ * MAX_POSTS_PER_BATCH posts, as blind transforms: FieldValue.increment on 'likes' and
+ * arrayUnion/arrayRemove on 'likedBy'. Nothing is read back, so a hot post does not make
+ * the flush contend or retry. Likes are de-duplicated against the in-memory likedBy,
+ * loaded when the post is first liked; a like stored in the meantime by the frontend or
+ * another instance is kept once in likedBy but counted twice in 'likes'. A batch that
+ * fails is retried post by post, so one bad post cannot hold up the others; likes of
+ * deleted posts are dropped.
+ *
+ * Reads add the unflushed changes on top of the stored document via applyPending().
+ */
+@Component
+public class PostLikeCounter {
+
+    private static final String COLLECTION_NAME = "posts";
+    // Up to two writes per post, within Firestore's 500 writes per batch
+    private static final int MAX_POSTS_PER_BATCH = 250;
+
+    private final FirestoreGateway firestore;
+    private final Map<String, PostLikes> states = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "like-flusher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public PostLikeCounter(FirestoreGateway firestore,
+                           @Value("${hunter.likes.flush-interval-millis:1000}") long flushIntervalMillis) {
+        this.firestore = firestore;
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Result of a like/unlike: whether the user now likes the post and the current count.
+     */
+    public record LikeState(boolean liked, long likes) {}
+
+    /**
+     * Likes (liked=true) or unlikes the post for the user. Repeating the same call is a no-op.
+     * @throws IllegalArgumentException if the post does not exist
+     */
+    public LikeState setLiked(String postId, String uid, boolean liked) throws Exception {
+        while (true) {
+            PostLikes state = states.get(postId);
+            if (state == null) {
+                state = load(postId);
+                PostLikes raced = states.putIfAbsent(postId, state);
+                if (raced != null) state = raced;
+            }
+
+            state.lock.readLock().lock();
+            try {
+                // Flush dropped this entry between get() and lock(); look it up again
+                if (state.retired) {
+                    continue;
+                }
+                final PostLikes s = state;
+                s.pending.compute(uid, (key, current) -> {
+                    // State once the flush in progress (if any) lands
+                    Boolean inFlight = s.inFlight.get(uid);
+                    boolean stored = inFlight != null ? inFlight : s.persistedLikedBy.contains(uid);
+                    boolean likedNow = current != null ? current : stored;
+                    if (likedNow == liked) {
+                        return current;
+                    }
+                    s.delta.add(liked ? 1 : -1);
+                    // Back to what Firestore has (or is about to have): nothing left to write for this user
+                    return liked == stored ? null : liked;
+                });
+                return new LikeState(liked, s.count());
+            } finally {
+                state.lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the post with unflushed likes applied. The argument is not modified
+     * (posts from the feed index are shared), a copy is returned when something changes.
+     */
+    public Post applyPending(Post post) {
+        if (post == null || post.getPostID() == null) {
+            return post;
+        }
+        PostLikes state = states.get(post.getPostID());
+        if (state == null) {
+            return post;
+        }
+
+        state.lock.readLock().lock();
+        try {
+            long delta = state.delta.sum() + state.inFlightDelta;
+            if (delta == 0 && state.pending.isEmpty() && state.inFlight.isEmpty()) {
+                return post;
+            }
+            Set<String> likedBy = new HashSet<>(post.getLikedBy() != null ? post.getLikedBy() : List.of());
+            state.inFlight.forEach((uid, liked) -> { if (liked) likedBy.add(uid); else likedBy.remove(uid); });
+            state.pending.forEach((uid, liked) -> { if (liked) likedBy.add(uid); else likedBy.remove(uid); });
+
+            Post copy = new Post(post.getPostID(), post.getUserID(), post.getCreatorName(), post.getTitle(),
+                    post.getContent(), post.getLocation(), (int) Math.max(0, post.getLikes() + delta),
+                    post.getTimestamp(), post.getTags());
+            copy.setLikedBy(new ArrayList<>(likedBy));
+            return copy;
+        } finally {
+            state.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes all pending likes. Runs on the flusher thread and once more at shutdown.
+     */
+    public synchronized void flush() throws Exception {
+        Map<String, Drained> drained = new HashMap<>();
+
+        // 1. Move pending changes to in-flight, post by post
+        for (Map.Entry<String, PostLikes> entry : states.entrySet()) {
+            PostLikes state = entry.getValue();
+            state.lock.writeLock().lock();
+            try {
+                long delta = state.delta.sumThenReset();
+                if (delta == 0 && state.pending.isEmpty()) {
+                    // Nothing happened since the last flush: forget the post to bound memory
+                    state.retired = true;
+                    states.remove(entry.getKey(), state);
+                    continue;
+                }
+                state.inFlight = new HashMap<>(state.pending);
+                state.inFlightDelta = delta;
+                state.pending.clear();
+                drained.put(entry.getKey(), new Drained(state, delta, state.inFlight));
+            } finally {
+                state.lock.writeLock().unlock();
+            }
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+
+        // 2. A batch per chunk of posts; a failed chunk is retried post by post
+        List<Map.Entry<String, Drained>> entries = new ArrayList<>(drained.entrySet());
+        Exception failure = null;
+        for (int from = 0; from < entries.size(); from += MAX_POSTS_PER_BATCH) {
+            List<Map.Entry<String, Drained>> chunk =
+                    entries.subList(from, Math.min(entries.size(), from + MAX_POSTS_PER_BATCH));
+            try {
+                write(chunk);
+                chunk.forEach(entry -> applyStored(entry.getValue()));
+            } catch (Exception e) {
+                for (Map.Entry<String, Drained> entry : chunk) {
+                    try {
+                        write(List.of(entry));
+                        applyStored(entry.getValue());
+                    } catch (Exception single) {
+                        if (FirestoreGateway.isNotFound(single)) {
+                            drop(entry.getKey(), entry.getValue().state);
+                        } else {
+                            restore(entry.getValue());
+                            failure = single;
+                        }
+                    }
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws Exception {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+    }
+
+    // ----------- internals -----------
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            System.out.println("Like flush failed, will retry: " + e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private PostLikes load(String postId) throws Exception {
+        DocumentSnapshot doc = firestore.await(COLLECTION_NAME, "get",
+                () -> firestore.collection(COLLECTION_NAME).document(postId).get());
+        if (!doc.exists()) {
+            throw new IllegalArgumentException("Post not found");
+        }
+        List<String> likedBy = (List<String>) doc.get("likedBy");
+        Long likes = doc.getLong("likes");
+        return new PostLikes(likedBy != null ? likedBy : List.of(), likes != null ? likes : 0L);
+    }
+
+    /**
+     * Writes a chunk of posts in one batch. The changes were de-duplicated against the
+     * in-memory likedBy when they were made, so they are applied without reading.
+     * arrayUnion and arrayRemove can't share one update, so each gets its own write.
+     */
+    private void write(List<Map.Entry<String, Drained>> chunk) throws Exception {
+        Firestore db = firestore.db();
+        WriteBatch batch = db.batch();
+        for (Map.Entry<String, Drained> entry : chunk) {
+            DocumentReference ref = db.collection(COLLECTION_NAME).document(entry.getKey());
+            Drained d = entry.getValue();
+            List<String> added = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            d.changes.forEach((uid, liked) -> (liked ? added : removed).add(uid));
+
+            if (!added.isEmpty() || d.delta != 0) {
+                Map<String, Object> update = new HashMap<>();
+                update.put("likes", FieldValue.increment(d.delta));
+                if (!added.isEmpty()) {
+                    update.put("likedBy", FieldValue.arrayUnion(added.toArray()));
+                }
+                batch.update(ref, update);
+            }
+            if (!removed.isEmpty()) {
+                batch.update(ref, "likedBy", FieldValue.arrayRemove(removed.toArray()));
+            }
+        }
+        firestore.await(COLLECTION_NAME, "batch", batch::commit);
+    }
+
+    /**
+     * The writes are durable: the in-flight changes become the persisted view.
+     */
+    private static void applyStored(Drained d) {
+        d.state.lock.writeLock().lock();
+        try {
+            d.changes.forEach((uid, liked) -> {
+                if (liked) d.state.persistedLikedBy.add(uid); else d.state.persistedLikedBy.remove(uid);
+            });
+            d.state.persistedLikes += d.delta;
+            d.state.inFlight = Map.of();
+            d.state.inFlightDelta = 0;
+        } finally {
+            d.state.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The post was deleted: forgets it along with its pending likes.
+     */
+    private void drop(String postId, PostLikes state) {
+        System.out.println("Dropping likes of deleted post " + postId);
+        state.lock.writeLock().lock();
+        try {
+            state.retired = true;
+            states.remove(postId, state);
+        } finally {
+            state.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Puts the changes of a failed write back so the next flush retries them.
+     */
+    private static void restore(Drained d) {
+        d.state.lock.writeLock().lock();
+        try {
+            d.state.delta.add(d.delta);
+            d.changes.forEach(d.state.pending::putIfAbsent);
+            d.state.inFlight = Map.of();
+            d.state.inFlightDelta = 0;
+        } finally {
+            d.state.lock.writeLock().unlock();
+        }
+    }
+
+    private record Drained(PostLikes state, long delta, Map<String, Boolean> changes) {}
+
+    private static final class PostLikes {
+        // Read lock for likes and reads, write lock for the flusher
+        final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        final Set<String> persistedLikedBy;
+        long persistedLikes;
+
+        // uid -> liked, not yet sent to Firestore
+        final Map<String, Boolean> pending = new ConcurrentHashMap<>();
+        final LongAdder delta = new LongAdder();
+
+        // Being written by the current flush
+        volatile Map<String, Boolean> inFlight = Map.of();
+        volatile long inFlightDelta;
+
+        volatile boolean retired;
+
+        PostLikes(List<String> likedBy, long likes) {
+            this.persistedLikedBy = new HashSet<>(likedBy);
+            this.persistedLikes = likes;
+        }
+
+        long count() {
+            return Math.max(0, persistedLikes + inFlightDelta + delta.sum());
+        }
+    }
+}
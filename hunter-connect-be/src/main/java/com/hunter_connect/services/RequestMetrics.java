@@ -0,0 +1,77 @@
+package com.hunter_connect.services;
+
+import com.hunter_connect.util.AccessLogRing;
+import com.hunter_connect.util.LatencyHistogram;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-route latency histograms plus the asynchronous access log.
+ *
+ * Routes are keyed by HTTP method and route template ("GET /api/events/{id}"), not by
+ * raw URI, so the number of histograms stays fixed no matter how many IDs are requested.
+ */
+@Component
+public class RequestMetrics {
+
+    // Requests that matched no route share one bucket instead of one per URI
+    public static final String UNMATCHED_ROUTE = "UNMATCHED";
+
+    // route template -> method -> histogram; two lookups, no key concatenation per request
+    private final Map<String, Map<String, LatencyHistogram>> histograms = new ConcurrentHashMap<>();
+    private final AccessLogRing accessLog;
+
+    public RequestMetrics(@Value("${hunter.access-log.enabled:true}") boolean accessLogEnabled,
+                          @Value("${hunter.access-log.capacity:8192}") int accessLogCapacity) {
+        this.accessLog = accessLogEnabled ? new AccessLogRing(accessLogCapacity, System.out) : null;
+    }
+
+    public void record(String method, String route, String uri, int status, long durationNanos) {
+        histograms
+                .computeIfAbsent(route, r -> new ConcurrentHashMap<>())
+                .computeIfAbsent(method, m -> new LatencyHistogram())
+                .record(durationNanos);
+
+        if (accessLog != null) {
+            accessLog.publish(method, route, uri, status, durationNanos);
+        }
+    }
+
+    /**
+     * Snapshot of every route: count and p50/p90/p99/max in milliseconds.
+     */
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        histograms.forEach((route, byMethod) -> byMethod.forEach((method, histogram) -> {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("count", histogram.count());
+            stats.put("p50", toMillis(histogram.percentileNanos(50)));
+            stats.put("p90", toMillis(histogram.percentileNanos(90)));
+            stats.put("p99", toMillis(histogram.percentileNanos(99)));
+            stats.put("max", toMillis(histogram.maxNanos()));
+            result.put(method + " " + route, stats);
+        }));
+        return result;
+    }
+
+    public long getDroppedLogLines() {
+        return accessLog != null ? accessLog.getDropped() : 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (accessLog != null) {
+            accessLog.close();
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
@@ -0,0 +1,178 @@
+package com.hunter_connect.services;
+
+import com.hunter_connect.util.StreamingQueryResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.Principal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Already-serialized bodies of the hot list routes (GET /api/posts, GET /api/events).
+ *
+ * A list is written once through StreamingQueryResponse, which hands a copy of the bytes
+ * to fill(); later requests for the same query are answered from that byte array (and a
+ * gzipped copy, if the client accepts it) with no Firestore read, no toObject mapping
+ * and no Jackson pass.
+ *
+ * Entries are keyed by collection + query string and stamped with the ETag from
+ * CollectionVersions. Any create/update handler or listener change moves the version
+ * on, so a stale entry simply stops matching and is replaced on the next miss.
+ */
+@Component
+public class ResponseCache {
+
+    // Small bodies are not worth a Content-Encoding round trip
+    private static final int MIN_GZIP_BYTES = 1024;
+
+    private final int maxEntries;
+    private final int maxBodyBytes;
+    private final boolean gzip;
+
+    // Access-ordered so removeEldestEntry drops the least recently used body
+    private final Map<String, Entry> entries;
+
+    private long hits;
+    private long misses;
+
+    public ResponseCache(@Value("${hunter.cache.responses.max-entries:64}") int maxEntries,
+                         @Value("${hunter.cache.responses.max-body-bytes:2097152}") int maxBodyBytes,
+                         @Value("${hunter.cache.responses.gzip:true}") boolean gzip) {
+        this.maxEntries = maxEntries;
+        this.maxBodyBytes = maxBodyBytes;
+        this.gzip = gzip;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > ResponseCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Cache key for a list request. perCaller when the result depends on who asks.
+     */
+    public static String key(String collection, ServerRequest request, boolean perCaller) {
+        String query = request.uri().getRawQuery();
+        String key = collection + "?" + (query != null ? query : "");
+        return perCaller ? key + "|" + request.principal().map(Principal::getName).orElse("") : key;
+    }
+
+    /**
+     * The cached body as a response, or null on a miss (also when eTag is null,
+     * i.e. the collection's version is not known).
+     */
+    public ServerResponse get(String key, String eTag, ServerRequest request) {
+        if (eTag == null) {
+            return null;
+        }
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry == null || !entry.eTag.equals(eTag)) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+
+        boolean gzipped = entry.gzip != null && acceptsGzip(request);
+        byte[] body = gzipped ? entry.gzip : entry.json;
+        ServerResponse.BodyBuilder builder = ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(eTag)
+                .contentLength(body.length)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzipped) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return builder.build((req, res) -> {
+            res.getOutputStream().write(body);
+            return null;
+        });
+    }
+
+    /**
+     * Capture for StreamingQueryResponse that stores the written body under key,
+     * or null if the response cannot be cached.
+     */
+    public StreamingQueryResponse.BodyCapture fill(String key, String eTag) {
+        if (eTag == null) {
+            return null;
+        }
+        return new StreamingQueryResponse.BodyCapture() {
+            @Override
+            public int maxBytes() {
+                return maxBodyBytes;
+            }
+
+            @Override
+            public void onBody(byte[] body) {
+                Entry entry = new Entry(eTag, body, gzip && body.length >= MIN_GZIP_BYTES ? gzip(body) : null);
+                synchronized (entries) {
+                    entries.put(key, entry);
+                }
+            }
+        };
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        synchronized (entries) {
+            return hits;
+        }
+    }
+
+    public long getMisses() {
+        synchronized (entries) {
+            return misses;
+        }
+    }
+
+    public long getBytes() {
+        synchronized (entries) {
+            long total = 0;
+            for (Entry entry : entries.values()) {
+                total += entry.json.length + (entry.gzip != null ? entry.gzip.length : 0);
+            }
+            return total;
+        }
+    }
+
+    // ----------- internals -----------
+
+    private static boolean acceptsGzip(ServerRequest request) {
+        for (String value : request.headers().header(HttpHeaders.ACCEPT_ENCODING)) {
+            if (value.toLowerCase().contains("gzip")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private record Entry(String eTag, byte[] json, byte[] gzip) {}
+}
@@ -0,0 +1,467 @@
+package com.hunter_connect.services;
+
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.hunter_connect.models.Event;
+import com.hunter_connect.models.Post;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory full-text index over posts (title, content, location) and events
+ * (title, description, location), ranked with BM25.
+ *
+ * Every post/event gets a dense int ID. A term's postings are a sorted int[] of those
+ * IDs plus a parallel float[] of field-weighted term frequencies (title counts more
+ * than body text, location less), so a query only touches the postings of its terms.
+ * Query terms also match indexed terms they are a prefix of ("calc" finds "calculus"),
+ * with a lower weight than an exact match.
+ *
+ * The index is loaded from the baseline of the shared posts and events listeners
+ * (CollectionListeners) and follows their changes, which include documents the frontend
+ * writes directly and writes made on other instances. PostHandler and EventHandler also
+ * index their own writes right away.
+ *
+ * Only the terms are kept, not the posts and events themselves, so the index grows with
+ * the vocabulary and the number of documents rather than with their size. Hits carry
+ * the document ID; SearchHandler reads the documents of the returned page.
+ */
+@Component
+public class SearchIndex {
+
+    public enum Kind { POST, EVENT }
+
+    /**
+     * One ranked result.
+     */
+    public record Hit(Kind kind, String id, double score) {}
+
+    // BM25 parameters (the usual defaults)
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final float TITLE_WEIGHT = 2.0f;
+    private static final float BODY_WEIGHT = 1.0f;
+    private static final float LOCATION_WEIGHT = 0.5f;
+
+    // Prefix expansions: score factor and how many indexed terms one query term may expand to
+    private static final double PREFIX_FACTOR = 0.7;
+    private static final int MAX_EXPANSIONS = 32;
+
+    private static final Pattern SPLIT = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it",
+            "of", "on", "or", "the", "to", "with");
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Dense ID -> document, and its field-weighted length (kept apart for the scoring loop)
+    private final List<Doc> docs = new ArrayList<>();
+    private float[] lengths = new float[1024];
+    private final Map<String, Integer> idByKey = new HashMap<>();
+    // IDs of removed documents, reused before the ID space grows
+    private final ArrayDeque<Integer> freeIds = new ArrayDeque<>();
+
+    // Score buffers, grown with the index; only the touched slots are reset. Pooled rather
+    // than per thread, since request threads may be virtual and used only once
+    private final BlockingQueue<Scratch> scratchPool =
+            new ArrayBlockingQueue<>(Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+    // Sorted, so prefix expansion is a subMap() range
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+    private double totalLength;
+
+    public SearchIndex(CollectionListeners listeners) {
+        listeners.add("posts", (snapshot, baseline) -> onSnapshot(Kind.POST, snapshot, baseline));
+        listeners.add("events", (snapshot, baseline) -> onSnapshot(Kind.EVENT, snapshot, baseline));
+    }
+
+    /**
+     * Applies a listener snapshot. A baseline lists the whole collection, so indexed
+     * documents missing from it were deleted while no listener was running.
+     */
+    private void onSnapshot(Kind kind, QuerySnapshot snapshot, boolean baseline) {
+        // Decoded before taking the lock; null means removed
+        Map<String, Text> changed = new LinkedHashMap<>();
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            QueryDocumentSnapshot doc = change.getDocument();
+            changed.put(doc.getId(), change.getType() == DocumentChange.Type.REMOVED ? null : toText(kind, doc));
+        }
+        Set<String> present = null;
+        if (baseline) {
+            present = new HashSet<>();
+            for (QueryDocumentSnapshot doc : snapshot.getDocuments()) {
+                present.add(doc.getId());
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (present != null) {
+                List<String> gone = new ArrayList<>();
+                for (Doc doc : docs) {
+                    if (doc != null && doc.kind == kind && !present.contains(doc.id)) {
+                        gone.add(doc.id);
+                    }
+                }
+                gone.forEach(id -> removeLocked(kind, id));
+            }
+            changed.forEach((id, text) -> {
+                if (text == null) {
+                    removeLocked(kind, id);
+                } else {
+                    indexLocked(kind, id, text);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (baseline) {
+            System.out.println("Search index loaded " + changed.size() + " " + (kind == Kind.POST ? "posts" : "events"));
+        }
+    }
+
+    /**
+     * Adds a post or replaces the indexed copy.
+     */
+    public void index(Post post) {
+        if (post == null || post.getPostID() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            indexLocked(Kind.POST, post.getPostID(), new Text(post.getTitle(), post.getContent(), post.getLocation()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds an event or replaces the indexed copy.
+     */
+    public void index(Event event) {
+        if (event == null || event.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            indexLocked(Kind.EVENT, event.getId(), new Text(event.getTitle(), event.getDescription(), event.getLocation()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Best matches for the query, highest score first. kind limits the results to posts
+     * or events (null for both).
+     */
+    public List<Hit> search(String query, Kind kind, int limit) {
+        List<String> terms = new ArrayList<>(tokenize(query));
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            int n = idByKey.size();
+            if (n == 0) {
+                return List.of();
+            }
+            double avgLength = totalLength / n;
+            Scratch buf = scratchPool.poll();
+            if (buf == null) {
+                buf = new Scratch();
+            }
+            buf.ensure(docs.size());
+
+            // Per query term: the best (exact or prefix) contribution for each doc, then summed
+            int matched = 0;
+            for (String term : terms) {
+                int touched = 0;
+
+                Postings exact = postings.get(term);
+                if (exact != null) {
+                    touched = accumulate(exact, 1.0, n, avgLength, buf, touched);
+                }
+                NavigableMap<String, Postings> expansions = postings.subMap(term, false, term + Character.MAX_VALUE, false);
+                int expanded = 0;
+                for (Postings p : expansions.values()) {
+                    if (expanded++ == MAX_EXPANSIONS) break;
+                    touched = accumulate(p, PREFIX_FACTOR, n, avgLength, buf, touched);
+                }
+
+                for (int i = 0; i < touched; i++) {
+                    int doc = buf.touched[i];
+                    if (buf.scores[doc] == 0) {
+                        buf.hits[matched++] = doc;
+                    }
+                    buf.scores[doc] += buf.termScores[doc];
+                    buf.termScores[doc] = 0;
+                }
+            }
+
+            // Top `limit` by score (min-heap on score)
+            float[] scores = buf.scores;
+            PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1, (a, b) -> Float.compare(scores[a], scores[b]));
+            for (int i = 0; i < matched; i++) {
+                int doc = buf.hits[i];
+                if (kind != null && docs.get(doc).kind != kind) continue;
+                if (top.size() < limit) {
+                    top.offer(doc);
+                } else if (scores[doc] > scores[top.peek()]) {
+                    top.poll();
+                    top.offer(doc);
+                }
+            }
+
+            Hit[] ranked = new Hit[top.size()];
+            for (int i = ranked.length - 1; i >= 0; i--) {
+                int id = top.poll();
+                Doc doc = docs.get(id);
+                ranked[i] = new Hit(doc.kind, doc.id, scores[id]);
+            }
+            for (int i = 0; i < matched; i++) {
+                scores[buf.hits[i]] = 0;
+            }
+            // Only clean buffers go back; when the pool is full this one is dropped
+            scratchPool.offer(buf);
+            return Arrays.asList(ranked);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return idByKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int terms() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ----------- internals (callers hold the lock) -----------
+
+    /**
+     * Adds the BM25 contribution of one postings list, keeping the larger value where a
+     * doc was already scored for the current query term (exact match vs. expansions).
+     */
+    private int accumulate(Postings p, double factor, int n, double avgLength, Scratch buf, int touched) {
+        double idf = Math.log(1 + (n - p.size + 0.5) / (p.size + 0.5));
+        float[] termScores = buf.termScores;
+        for (int i = 0; i < p.size; i++) {
+            int doc = p.docs[i];
+            double tf = p.weights[i];
+            double norm = K1 * (1 - B + B * lengths[doc] / avgLength);
+            float score = (float) (factor * idf * tf * (K1 + 1) / (tf + norm));
+            if (termScores[doc] == 0) {
+                buf.touched[touched++] = doc;
+                termScores[doc] = score;
+            } else if (score > termScores[doc]) {
+                termScores[doc] = score;
+            }
+        }
+        return touched;
+    }
+
+    private void indexLocked(Kind kind, String id, Text text) {
+        Map<String, Float> weights = new HashMap<>();
+        float length = addTerms(weights, text.title, TITLE_WEIGHT)
+                + addTerms(weights, text.body, BODY_WEIGHT)
+                + addTerms(weights, text.location, LOCATION_WEIGHT);
+
+        String key = key(kind, id);
+        Integer existing = idByKey.get(key);
+        int docId;
+        if (existing != null) {
+            docId = existing;
+            unlinkLocked(docId);
+        } else if (!freeIds.isEmpty()) {
+            docId = freeIds.pop();
+            idByKey.put(key, docId);
+        } else {
+            docId = docs.size();
+            docs.add(null);
+            idByKey.put(key, docId);
+            if (docId == lengths.length) {
+                lengths = Arrays.copyOf(lengths, docId * 2);
+            }
+        }
+
+        String[] terms = weights.keySet().toArray(new String[0]);
+        for (String term : terms) {
+            postings.computeIfAbsent(term, t -> new Postings()).put(docId, weights.get(term));
+        }
+        docs.set(docId, new Doc(kind, id, terms, length));
+        lengths[docId] = length;
+        totalLength += length;
+    }
+
+    private void removeLocked(Kind kind, String id) {
+        Integer docId = idByKey.remove(key(kind, id));
+        if (docId == null) {
+            return;
+        }
+        unlinkLocked(docId);
+        docs.set(docId, null);
+        lengths[docId] = 0;
+        freeIds.push(docId);
+    }
+
+    /**
+     * Takes the document's terms out of the postings and its length out of the total.
+     */
+    private void unlinkLocked(int docId) {
+        Doc old = docs.get(docId);
+        totalLength -= old.length;
+        for (String term : old.terms) {
+            Postings p = postings.get(term);
+            p.remove(docId);
+            if (p.size == 0) postings.remove(term);
+        }
+    }
+
+    /**
+     * Reads just the indexed fields, without mapping the whole document.
+     */
+    private static Text toText(Kind kind, QueryDocumentSnapshot doc) {
+        return new Text(string(doc, "title"), string(doc, kind == Kind.POST ? "content" : "description"),
+                string(doc, "location"));
+    }
+
+    private static String string(QueryDocumentSnapshot doc, String field) {
+        return doc.get(field) instanceof String value ? value : null;
+    }
+
+    private static float addTerms(Map<String, Float> weights, String text, float weight) {
+        if (text == null) return 0;
+        int count = 0;
+        for (String token : tokenizeAll(text)) {
+            weights.merge(token, weight, Float::sum);
+            count++;
+        }
+        return count * weight;
+    }
+
+    private static String key(Kind kind, String id) {
+        return (kind == Kind.POST ? "p:" : "e:") + id;
+    }
+
+    /**
+     * Distinct query terms, in order.
+     */
+    static Set<String> tokenize(String text) {
+        return new LinkedHashSet<>(tokenizeAll(text));
+    }
+
+    /**
+     * Lowercased, accent-free words of at least two characters, stop words removed.
+     */
+    static List<String> tokenizeAll(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        for (String token : SPLIT.split(folded)) {
+            if (token.length() >= 2 && !STOP_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private record Doc(Kind kind, String id, String[] terms, float length) {}
+
+    /**
+     * The indexed fields of a post (title, content, location) or event (title, description, location).
+     */
+    private record Text(String title, String body, String location) {}
+
+    /**
+     * Score buffers indexed by doc ID. Every slot is zero between queries.
+     */
+    private static final class Scratch {
+        float[] scores = new float[0];
+        float[] termScores = new float[0];
+        int[] touched = new int[0];
+        int[] hits = new int[0];
+
+        void ensure(int n) {
+            if (scores.length < n) {
+                int size = Math.max(n, scores.length * 2);
+                scores = new float[size];
+                termScores = new float[size];
+                touched = new int[size];
+                hits = new int[size];
+            }
+        }
+    }
+
+    /**
+     * Doc IDs in ascending order with their field-weighted term frequency.
+     */
+    private static final class Postings {
+        private int[] docs = new int[2];
+        private float[] weights = new float[2];
+        private int size;
+
+        void put(int doc, float weight) {
+            int i = Arrays.binarySearch(docs, 0, size, doc);
+            if (i >= 0) {
+                weights[i] = weight;
+                return;
+            }
+            i = -i - 1;
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            System.arraycopy(docs, i, docs, i + 1, size - i);
+            System.arraycopy(weights, i, weights, i + 1, size - i);
+            docs[i] = doc;
+            weights[i] = weight;
+            size++;
+        }
+
+        void remove(int doc) {
+            int i = Arrays.binarySearch(docs, 0, size, doc);
+            if (i < 0) return;
+            System.arraycopy(docs, i + 1, docs, i, size - i - 1);
+            System.arraycopy(weights, i + 1, weights, i, size - i - 1);
+            size--;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.hunter_connect.services;
+
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.hunter_connect.models.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process cache of user profiles (users/{uid} documents).
+ *
+ * Bounded by entry count (least recently used goes first) and by a TTL, so a profile
+ * edited outside this server is picked up again after at most ttl-seconds.
+ * Cached User objects are shared between requests and must not be modified by callers.
+ * Updates not yet written by UserUpdateCoalescer are applied to what get()/getAll() return.
+ */
+@Component
+public class UserProfileCache {
+
+    private static final String COLLECTION_NAME = "users";
+
+    /** The profile with unwritten updates applied, or null if the UID has none. */
+    @FunctionalInterface
+    public interface PendingUpdates {
+        User overlay(String uid, User stored);
+    }
+
+    private final FirestoreGateway firestore;
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    // Access-ordered so removeEldestEntry drops the least recently used profile
+    private final Map<String, Entry> entries;
+
+    // Bumped on every invalidation so a load that raced with a write is not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private volatile PendingUpdates pendingUpdates = (uid, stored) -> null;
+
+    public UserProfileCache(FirestoreGateway firestore,
+                            @Value("${hunter.cache.users.max-entries:5000}") int maxEntries,
+                            @Value("${hunter.cache.users.ttl-seconds:300}") long ttlSeconds) {
+        this.firestore = firestore;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > UserProfileCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the profile for the UID, reading Firestore only on a miss or after the TTL.
+     * Empty if the user document does not exist.
+     */
+    public Optional<User> get(String uid) throws ExecutionException, InterruptedException {
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry cached = entries.get(uid);
+            if (cached != null && now - cached.loadedAtNanos < ttlNanos) {
+                hits.increment();
+                return withPending(uid, cached.user);
+            }
+        }
+        misses.increment();
+
+        long generation = invalidations.get();
+        DocumentSnapshot doc = firestore.await(COLLECTION_NAME, "get",
+                () -> firestore.collection(COLLECTION_NAME).document(uid).get());
+
+        User user = doc.exists() ? doc.toObject(User.class) : null;
+        if (user == null) {
+            return withPending(uid, null);
+        }
+
+        synchronized (entries) {
+            if (invalidations.get() == generation) {
+                entries.put(uid, new Entry(user, System.nanoTime()));
+            }
+        }
+        return withPending(uid, user);
+    }
+
+    /**
+     * Profiles for several UIDs. Cached ones are returned as they are; all misses are read
+     * with a single getAll() round trip. UIDs without a user document are left out.
+     */
+    public Map<String, User> getAll(Collection<String> uids) throws ExecutionException, InterruptedException {
+        Map<String, User> result = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        long now = System.nanoTime();
+        synchronized (entries) {
+            for (String uid : uids) {
+                Entry cached = entries.get(uid);
+                if (cached != null && now - cached.loadedAtNanos < ttlNanos) {
+                    result.put(uid, cached.user);
+                } else {
+                    missing.add(uid);
+                }
+            }
+        }
+        hits.add(result.size());
+        misses.add(missing.size());
+        if (missing.isEmpty()) {
+            return withPending(uids, result);
+        }
+
+        long generation = invalidations.get();
+        DocumentReference[] refs = new DocumentReference[missing.size()];
+        for (int i = 0; i < refs.length; i++) {
+            refs[i] = firestore.collection(COLLECTION_NAME).document(missing.get(i));
+        }
+        List<DocumentSnapshot> docs = firestore.await(COLLECTION_NAME, "getAll", () -> firestore.db().getAll(refs));
+
+        Map<String, User> loaded = new LinkedHashMap<>();
+        for (DocumentSnapshot doc : docs) {
+            User user = doc.exists() ? doc.toObject(User.class) : null;
+            if (user != null) {
+                loaded.put(doc.getId(), user);
+            }
+        }
+        result.putAll(loaded);
+
+        synchronized (entries) {
+            if (invalidations.get() == generation) {
+                long loadedAt = System.nanoTime();
+                loaded.forEach((uid, user) -> entries.put(uid, new Entry(user, loadedAt)));
+            }
+        }
+        return withPending(uids, result);
+    }
+
+    /**
+     * Builds the "First Last" display name used on events, or "Unknown".
+     */
+    public String getDisplayName(String uid) throws ExecutionException, InterruptedException {
+        return get(uid)
+                .map(user -> {
+                    String first = user.getFirstName();
+                    String last = user.getLastName();
+                    return ((first != null ? first : "") + " " + (last != null ? last : "")).trim();
+                })
+                .orElse("Unknown");
+    }
+
+    /**
+     * Stores a profile we just wrote in full (e.g. createUser).
+     */
+    public void put(User user) {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.put(user.getUid(), new Entry(user, System.nanoTime()));
+        }
+    }
+
+    /**
+     * Drops the cached profile after a partial (merge) update.
+     */
+    public void invalidate(String uid) {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.remove(uid);
+        }
+    }
+
+    /**
+     * Registered by UserUpdateCoalescer.
+     */
+    public void setPendingUpdates(PendingUpdates pendingUpdates) {
+        this.pendingUpdates = pendingUpdates;
+    }
+
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private Optional<User> withPending(String uid, User stored) {
+        User pending = pendingUpdates.overlay(uid, stored);
+        return Optional.ofNullable(pending != null ? pending : stored);
+    }
+
+    private Map<String, User> withPending(Collection<String> uids, Map<String, User> stored) {
+        for (String uid : uids) {
+            User pending = pendingUpdates.overlay(uid, stored.get(uid));
+            if (pending != null) {
+                stored.put(uid, pending);
+            }
+        }
+        return stored;
+    }
+
+    private record Entry(User user, long loadedAtNanos) {}
+}
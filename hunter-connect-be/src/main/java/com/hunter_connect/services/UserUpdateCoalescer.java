@@ -0,0 +1,353 @@
+package com.hunter_connect.services;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.WriteBatch;
+import com.google.cloud.firestore.WriteResult;
+import com.hunter_connect.models.User;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind for PUT /api/users (opt-in, hunter.users.write-behind.enabled).
+ *
+ * The app sends a profile update on nearly every preference toggle, each one a blocking
+ * set(..., merge()) on the same document. With write-behind the fields are merged into a
+ * pending map per UID (later values win, as they would in Firestore) and the request
+ * returns at once. Every windowMillis the pending merges are committed, one set-merge per
+ * UID, in WriteBatches.
+ *
+ * Until a merge is committed, UserProfileCache lays it over the stored profile, so every
+ * read by UID (GET /api/users/{id}, ?ids=, the feed, display names) sees it. A failed
+ * commit is put back under newer updates and retried in the next window. If Firestore
+ * rejected it (rather than being unavailable) it is first retried user by user, so one
+ * bad merge does not hold up the others; a user's merge rejected in MAX_ATTEMPTS flushes
+ * is dropped and logged, and the cached profile invalidated, so reads stop showing a
+ * write that will never land. On shutdown the remaining merges are written before the context closes, retrying with backoff for up
+ * to SHUTDOWN_DEADLINE_MILLIS; whatever is still unwritten after that is lost (and logged).
+ */
+@Component
+public class UserUpdateCoalescer {
+
+    private static final String COLLECTION_NAME = "users";
+    private static final int MAX_BATCH_WRITES = 500;
+    private static final long SHUTDOWN_DEADLINE_MILLIS = 15_000;
+    private static final long SHUTDOWN_MAX_BACKOFF_MILLIS = 2_000;
+    private static final long DISCARD_TIMEOUT_MILLIS = 10_000;
+    private static final int MAX_ATTEMPTS = 5;
+
+    private final FirestoreGateway firestore;
+    private final UserProfileCache profiles;
+    private final CollectionVersions versions;
+    private final long windowMillis;
+    private final boolean enabled;
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "user-update-flusher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Object lock = new Object();
+    // uid -> fields to merge in the next flush
+    private Map<String, Map<String, Object>> pending = new HashMap<>();
+    // the flush currently being written, still visible to readers
+    private Map<String, Map<String, Object>> inFlight = Map.of();
+    // in-flight UIDs whose merge must not be retried, see discard()
+    private final Set<String> discarded = new HashSet<>();
+    // uid -> flushes whose write of the user's merge Firestore rejected
+    private final Map<String, Integer> failures = new HashMap<>();
+    private boolean flushScheduled;
+
+    private final LongAdder merged = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public UserUpdateCoalescer(FirestoreGateway firestore, UserProfileCache profiles, CollectionVersions versions,
+                               @Value("${hunter.users.write-behind.window-millis:250}") long windowMillis,
+                               @Value("${hunter.users.write-behind.enabled:false}") boolean enabled) {
+        this.firestore = firestore;
+        this.profiles = profiles;
+        this.versions = versions;
+        this.windowMillis = windowMillis;
+        this.enabled = enabled;
+        profiles.setPendingUpdates(this::overlay);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues fields for a set(..., merge()) on users/{uid}.
+     */
+    public void merge(String uid, Map<String, Object> fields) {
+        synchronized (lock) {
+            pending.computeIfAbsent(uid, k -> new LinkedHashMap<>()).putAll(fields);
+            scheduleLocked();
+        }
+        merged.increment();
+        // No update time until the flush; bump the version so ETags change now
+        versions.changed(COLLECTION_NAME, uid, null);
+    }
+
+    /**
+     * Drops queued merges for a user whose document is being replaced in full (createUser).
+     * If a merge for the user is being written right now, waits for that flush to end so
+     * it cannot land after the full write, and makes sure it is not retried.
+     *
+     * @throws IllegalStateException if the flush does not end within DISCARD_TIMEOUT_MILLIS
+     */
+    public void discard(String uid) throws InterruptedException {
+        synchronized (lock) {
+            pending.remove(uid);
+            if (!inFlight.containsKey(uid)) {
+                return;
+            }
+            discarded.add(uid);
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DISCARD_TIMEOUT_MILLIS);
+            while (inFlight.containsKey(uid)) {
+                long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (left <= 0) {
+                    throw new IllegalStateException("A profile update for this user is still being written, try again");
+                }
+                lock.wait(left);
+            }
+            // A newer flush may have picked up merges queued while waiting; they predate the full write too
+            pending.remove(uid);
+        }
+    }
+
+    /**
+     * Queued and in-flight merges / documents written / failed flushes / merges given up
+     * on, for GET /api/metrics/caches.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        synchronized (lock) {
+            stats.put("pendingUsers", pending.size() + inFlight.size());
+        }
+        stats.put("merged", merged.sum());
+        stats.put("written", written.sum());
+        stats.put("failedFlushes", failedFlushes.sum());
+        stats.put("dropped", dropped.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Let a scheduled flush finish, then write out anything still queued (retrying a
+        // failed commit with backoff until the deadline) before the JVM goes away
+        synchronized (lock) {
+            flusher.shutdown();
+        }
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SHUTDOWN_DEADLINE_MILLIS);
+        long backoffMillis = 100;
+        while (true) {
+            synchronized (lock) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+            }
+            flush();
+            synchronized (lock) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+            }
+            long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (left <= 0) {
+                break;
+            }
+            Thread.sleep(Math.min(backoffMillis, left));
+            backoffMillis = Math.min(backoffMillis * 2, SHUTDOWN_MAX_BACKOFF_MILLIS);
+        }
+        synchronized (lock) {
+            if (!pending.isEmpty()) {
+                System.out.println("Lost " + pending.size() + " unwritten user updates at shutdown");
+            }
+        }
+    }
+
+    // ----------- internals -----------
+
+    /**
+     * The stored profile with the unwritten merges applied, or null if there are none.
+     * Called by UserProfileCache; stored may be null if the document does not exist yet.
+     */
+    private User overlay(String uid, User stored) {
+        Map<String, Object> fields;
+        synchronized (lock) {
+            Map<String, Object> writing = inFlight.get(uid);
+            Map<String, Object> queued = pending.get(uid);
+            if (writing == null && queued == null) {
+                return null;
+            }
+            fields = new HashMap<>();
+            if (writing != null) fields.putAll(writing);
+            if (queued != null) fields.putAll(queued);
+        }
+        return apply(uid, stored, fields);
+    }
+
+    private void scheduleLocked() {
+        // After shutdown() started, its own flush loop picks up what is pending
+        if (!flushScheduled && !flusher.isShutdown()) {
+            flushScheduled = true;
+            flusher.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        Map<String, Map<String, Object>> batch;
+        synchronized (lock) {
+            batch = pending;
+            pending = new HashMap<>();
+            inFlight = batch;
+            flushScheduled = false;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Map<String, Timestamp> updateTimes = new HashMap<>();
+        Map<String, Exception> failed = new LinkedHashMap<>();
+        try {
+            write(batch, updateTimes);
+        } catch (Exception e) {
+            failedFlushes.increment();
+            System.out.println("User update flush failed, retrying: " + e.getMessage());
+            batch.forEach((uid, fields) -> {
+                // Already committed in an earlier chunk
+                if (updateTimes.containsKey(uid)) {
+                    return;
+                }
+                if (FirestoreGateway.isTransient(e)) {
+                    failed.put(uid, e);
+                    return;
+                }
+                // Find the merges Firestore rejects
+                try {
+                    write(Map.of(uid, fields), updateTimes);
+                } catch (Exception single) {
+                    failed.put(uid, single);
+                }
+            });
+        }
+
+        // The cached profile may predate the merge; drop it before the overlay goes away
+        updateTimes.forEach((uid, updateTime) -> {
+            profiles.invalidate(uid);
+            versions.changed(COLLECTION_NAME, uid, updateTime);
+        });
+        List<String> givenUp = new ArrayList<>();
+        synchronized (lock) {
+            updateTimes.keySet().forEach(failures::remove);
+            failed.forEach((uid, error) -> {
+                if (discarded.contains(uid)) {
+                    failures.remove(uid);
+                    return;
+                }
+                int attempts = FirestoreGateway.isTransient(error)
+                        ? failures.getOrDefault(uid, 0)
+                        : failures.merge(uid, 1, Integer::sum);
+                if (attempts >= MAX_ATTEMPTS) {
+                    failures.remove(uid);
+                    givenUp.add(uid);
+                    System.out.println("Dropping profile update for user " + uid + " after " + attempts
+                            + " failed writes: " + error.getMessage());
+                    return;
+                }
+                // Newer updates win over the ones that failed to write
+                Map<String, Object> retry = new LinkedHashMap<>(batch.get(uid));
+                Map<String, Object> newer = pending.get(uid);
+                if (newer != null) retry.putAll(newer);
+                pending.put(uid, retry);
+            });
+            inFlight = Map.of();
+            discarded.clear();
+            lock.notifyAll();
+            if (!failed.isEmpty()) {
+                scheduleLocked();
+            }
+        }
+        // Reads fall back to the stored profile; make sure no cached copy outlives the overlay
+        givenUp.forEach(uid -> {
+            profiles.invalidate(uid);
+            versions.changed(COLLECTION_NAME, uid, null);
+        });
+        written.add(updateTimes.size());
+        dropped.add(givenUp.size());
+    }
+
+    /**
+     * Commits the merges in WriteBatches of at most MAX_BATCH_WRITES. If a later batch
+     * fails the earlier ones are written again on retry, which is harmless for merges.
+     */
+    private void write(Map<String, Map<String, Object>> batch, Map<String, Timestamp> updateTimes) throws Exception {
+        Firestore db = firestore.db();
+        List<String> uids = new ArrayList<>(batch.keySet());
+        for (int from = 0; from < uids.size(); from += MAX_BATCH_WRITES) {
+            List<String> chunk = uids.subList(from, Math.min(from + MAX_BATCH_WRITES, uids.size()));
+            WriteBatch writeBatch = db.batch();
+            for (String uid : chunk) {
+                writeBatch.set(db.collection(COLLECTION_NAME).document(uid), batch.get(uid), SetOptions.merge());
+            }
+            List<WriteResult> results = firestore.await(COLLECTION_NAME, "batch", writeBatch::commit);
+            for (int i = 0; i < chunk.size(); i++) {
+                updateTimes.put(chunk.get(i), results.get(i).getUpdateTime());
+            }
+        }
+    }
+
+    /**
+     * Applies the fields UserHandler.updateUser merges to a copy of the profile.
+     */
+    @SuppressWarnings("unchecked")
+    private static User apply(String uid, User stored, Map<String, Object> fields) {
+        User user = new User();
+        if (stored != null) {
+            user.setUid(stored.getUid());
+            user.setFirstName(stored.getFirstName());
+            user.setLastName(stored.getLastName());
+            user.setEmail(stored.getEmail());
+            user.setUsername(stored.getUsername());
+            user.setIncomingRequests(stored.getIncomingRequests());
+            user.setOutgoingRequests(stored.getOutgoingRequests());
+            user.setFriends(stored.getFriends());
+            user.setPreferences(stored.getPreferences());
+        } else {
+            user.setUid(uid);
+        }
+        fields.forEach((field, value) -> {
+            switch (field) {
+                case "firstName" -> user.setFirstName((String) value);
+                case "lastName" -> user.setLastName((String) value);
+                case "email" -> user.setEmail((String) value);
+                case "preferences" -> user.setPreferences((User.Preferences) value);
+                case "incomingRequests" -> user.setIncomingRequests((List<String>) value);
+                case "outgoingRequests" -> user.setOutgoingRequests((List<String>) value);
+                case "friends" -> user.setFriends((List<String>) value);
+                default -> { }
+            }
+        });
+        return user;
+    }
+}
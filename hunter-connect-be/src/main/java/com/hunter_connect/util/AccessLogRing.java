@@ -0,0 +1,124 @@
+package com.hunter_connect.util;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed-size ring of access-log entries written by request threads and printed by a
+ * single background thread, so request threads never format strings or touch stdout.
+ *
+ * Slots are preallocated and reused. Producers claim a slot with a CAS; when the printer
+ * falls a full ring behind, new entries are dropped (and counted) instead of blocking
+ * the request.
+ */
+public final class AccessLogRing {
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();   // next sequence to claim
+    private final AtomicLong tail = new AtomicLong();   // next sequence to print
+    private final LongAdder dropped = new LongAdder();
+    private final PrintStream out;
+    private final Thread printer;
+    private volatile boolean running = true;
+
+    /**
+     * @param capacity number of slots, rounded up to a power of two
+     */
+    public AccessLogRing(int capacity, PrintStream out) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+            slots[i].sequence = i - size; // "not yet published" for the first lap
+        }
+        this.mask = size - 1;
+        this.out = out;
+        this.printer = new Thread(this::drainLoop, "access-log");
+        this.printer.setDaemon(true);
+        this.printer.start();
+    }
+
+    /**
+     * Queues one access-log line. Never blocks.
+     */
+    public void publish(String method, String route, String uri, int status, long durationNanos) {
+        long sequence;
+        do {
+            sequence = head.get();
+            if (sequence - tail.get() >= slots.length) {
+                dropped.increment();
+                return;
+            }
+        } while (!head.compareAndSet(sequence, sequence + 1));
+
+        Slot slot = slots[(int) (sequence & mask)];
+        slot.epochMillis = System.currentTimeMillis();
+        slot.method = method;
+        slot.route = route;
+        slot.uri = uri;
+        slot.status = status;
+        slot.durationNanos = durationNanos;
+        slot.sequence = sequence; // volatile write publishes the fields above
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public void close() {
+        running = false;
+        LockSupport.unpark(printer);
+        try {
+            printer.join(TimeUnit.SECONDS.toMillis(2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainLoop() {
+        StringBuilder line = new StringBuilder(160);
+        while (true) {
+            boolean printedAny = false;
+            long next = tail.get();
+            Slot slot = slots[(int) (next & mask)];
+            while (slot.sequence == next) {
+                // Format: LOG: [METHOD] /path (/route/{template}) | Status: 200 | Time: 1.234ms
+                line.setLength(0);
+                line.append("LOG: ").append(Instant.ofEpochMilli(slot.epochMillis))
+                        .append(" [").append(slot.method).append("] ").append(slot.uri)
+                        .append(" (").append(slot.route).append(')')
+                        .append(" | Status: ").append(slot.status)
+                        .append(" | Time: ").append(slot.durationNanos / 1_000_000).append('.')
+                        .append(String.format("%03d", (slot.durationNanos / 1_000) % 1_000)).append("ms");
+                slot.method = null;
+                slot.route = null;
+                slot.uri = null;
+                tail.lazySet(++next);
+                out.println(line);
+                printedAny = true;
+                slot = slots[(int) (next & mask)];
+            }
+            if (!printedAny) {
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+            }
+        }
+    }
+
+    private static final class Slot {
+        volatile long sequence;
+        long epochMillis;
+        String method;
+        String route;
+        String uri;
+        int status;
+        long durationNanos;
+    }
+}
@@ -0,0 +1,164 @@
+package com.hunter_connect.util;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.Query;
+import com.hunter_connect.models.Event;
+import org.springframework.web.servlet.function.ServerRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Query parameters accepted by GET /api/events:
+ *   from, to      - ISO-8601 timestamp or epoch millis; keeps events whose
+ *                   [startTime, endTime] overlaps the range
+ *   course        - value in tags.courses
+ *   tag           - value in tags.general
+ *   createdBy     - creator UID
+ *   attending=me  - events the caller is in 'attendees' for
+ *
+ * plan() pushes as much as possible into the Firestore query and returns the rest as
+ * an in-memory predicate. Firestore allows only one array-contains per query, and a
+ * range filter next to other filters (or document-ID paging) needs a composite index,
+ * so those parts are evaluated in memory instead. 'from' is always evaluated in memory:
+ * endTime is optional and an event without one counts as ending at its startTime, which
+ * a Firestore filter on endTime would silently drop.
+ *
+ * With paging, the residual predicate runs on each page Firestore returns, so a page can
+ * hold fewer than pageSize events, or none, while nextCursor still points further on.
+ * Clients keep following nextCursor until it is null.
+ */
+public final class EventFilter {
+
+    private final Timestamp from;
+    private final Timestamp to;
+    private final String course;
+    private final String tag;
+    private final String createdBy;
+    private final String attendee;
+
+    private EventFilter(Timestamp from, Timestamp to, String course, String tag, String createdBy, String attendee) {
+        this.from = from;
+        this.to = to;
+        this.course = course;
+        this.tag = tag;
+        this.createdBy = createdBy;
+        this.attendee = attendee;
+    }
+
+    /**
+     * @param callerUid authenticated UID, used for attending=me (may be null)
+     * @throws IllegalArgumentException on malformed parameters
+     */
+    public static EventFilter fromRequest(ServerRequest request, String callerUid) {
+        Timestamp from = request.param("from").map(EventFilter::parseTime).orElse(null);
+        Timestamp to = request.param("to").map(EventFilter::parseTime).orElse(null);
+        if (from != null && to != null && from.compareTo(to) > 0) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+
+        String attendee = null;
+        String attending = request.param("attending").orElse(null);
+        if (attending != null) {
+            if (!"me".equals(attending)) {
+                throw new IllegalArgumentException("attending only supports 'me'");
+            }
+            if (callerUid == null) {
+                throw new SecurityException("No auth token found");
+            }
+            attendee = callerUid;
+        }
+
+        return new EventFilter(
+                from,
+                to,
+                request.param("course").orElse(null),
+                request.param("tag").orElse(null),
+                request.param("createdBy").orElse(null),
+                attendee);
+    }
+
+    public boolean isEmpty() {
+        return from == null && to == null && course == null && tag == null && createdBy == null && attendee == null;
+    }
+
+    /**
+     * The Firestore query to run and the predicate still to apply to each result.
+     */
+    public record Plan(Query query, Predicate<Event> residual) {}
+
+    public Plan plan(Query base, boolean paged) {
+        Query query = base;
+        List<Predicate<Event>> residual = new ArrayList<>();
+        boolean pushedDown = false;
+
+        // Equality filters are served by Firestore's automatic single-field indexes
+        if (createdBy != null) {
+            query = query.whereEqualTo("createdBy", createdBy);
+            pushedDown = true;
+        }
+
+        // Only one array-contains per query: push the most selective one
+        boolean arrayFilterUsed = false;
+        if (attendee != null) {
+            query = query.whereArrayContains("attendees", attendee);
+            arrayFilterUsed = true;
+            pushedDown = true;
+        }
+        if (course != null) {
+            if (!arrayFilterUsed) {
+                query = query.whereArrayContains("tags.courses", course);
+                arrayFilterUsed = true;
+                pushedDown = true;
+            } else {
+                residual.add(e -> e.getTags() != null && contains(e.getTags().getCourses(), course));
+            }
+        }
+        if (tag != null) {
+            if (!arrayFilterUsed) {
+                query = query.whereArrayContains("tags.general", tag);
+                pushedDown = true;
+            } else {
+                residual.add(e -> e.getTags() != null && contains(e.getTags().getGeneral(), tag));
+            }
+        }
+
+        // A lone range filter on one field needs no composite index
+        if (to != null) {
+            if (!pushedDown && !paged) {
+                query = query.whereLessThanOrEqualTo("startTime", to);
+            } else {
+                residual.add(e -> e.getStartTime() != null && e.getStartTime().compareTo(to) <= 0);
+            }
+        }
+        if (from != null) {
+            residual.add(e -> {
+                Timestamp end = e.getEndTime() != null ? e.getEndTime() : e.getStartTime();
+                return end != null && end.compareTo(from) >= 0;
+            });
+        }
+
+        Predicate<Event> combined = residual.stream().reduce(e -> true, Predicate::and);
+        return new Plan(query, combined);
+    }
+
+    /**
+     * Accepts ISO-8601 ("2025-03-01T15:00:00Z") or epoch milliseconds.
+     */
+    public static Timestamp parseTime(String value) {
+        try {
+            if (!value.isEmpty() && value.chars().allMatch(Character::isDigit)) {
+                long millis = Long.parseLong(value);
+                return Timestamp.ofTimeMicroseconds(millis * 1000L);
+            }
+            return Timestamp.parseTimestamp(value);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid timestamp: " + value);
+        }
+    }
+
+    private static boolean contains(List<String> values, String value) {
+        return values != null && values.contains(value);
+    }
+}
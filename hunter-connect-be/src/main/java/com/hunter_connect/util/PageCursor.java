@@ -0,0 +1,37 @@
+package com.hunter_connect.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque pagination cursor handed to clients by the list endpoints.
+ * Wraps the ID of the last document on a page so the next request can resume
+ * with startAfter() without the client knowing anything about Firestore.
+ */
+public final class PageCursor {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private PageCursor() {}
+
+    public static String encode(String lastDocumentId) {
+        return ENCODER.encodeToString(lastDocumentId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the document ID wrapped by the cursor.
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encode(String)}
+     */
+    public static String decode(String cursor) {
+        try {
+            String documentId = new String(DECODER.decode(cursor), StandardCharsets.UTF_8);
+            if (documentId.isEmpty() || documentId.contains("/")) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return documentId;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
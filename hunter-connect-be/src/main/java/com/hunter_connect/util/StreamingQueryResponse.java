@@ -0,0 +1,336 @@
+package com.hunter_connect.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.api.core.ApiFuture;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Writes the result of a Firestore query to the response as the documents arrive,
+ * instead of collecting the whole QuerySnapshot and serializing a List in one go.
+ * The query is read in chunks of READ_SIZE documents; the next chunk is requested only
+ * after the previous one was written, so a slow client slows the reads down instead of
+ * documents piling up in memory, and no Firestore thread ever waits for the client.
+ *
+ * Two response shapes are supported:
+ *   - Legacy (no "pageSize"/"cursor" query params): a plain JSON array, same as before.
+ *   - Paged: { "items": [...], "nextCursor": "..." } ordered by document ID.
+ *     nextCursor is null on the last page and is passed back as ?cursor= for the next one.
+ *
+ * A converter that returns null skips the document. Handlers use this for filters Firestore
+ * cannot evaluate; a filtered page may then hold fewer than pageSize items, but the cursor
+ * still points past every document scanned so paging stays correct.
+ *
+ * The QueryObserver sees every document Firestore returned (including skipped ones) and
+ * the stream's total duration; FirestoreGateway uses it to record the streamed read.
+ *
+ * An optional BodyCapture receives a copy of the complete body once it was written
+ * successfully (ResponseCache uses it to keep the serialized bytes).
+ *
+ * A read that fails (or takes longer than READ_TIMEOUT_SECONDS) before any of the body
+ * reached the client fails the request as usual. Once the 200 is on its way, the body
+ * is closed with an error marker instead of being cut off: a final {"error": "..."}
+ * element in the legacy array, an "error" field (and a null nextCursor) in the paged
+ * envelope.
+ *
+ * This keeps a list request's memory flat; it does not bound the process as a whole,
+ * since the shared collection listeners hold every document (see CollectionListeners).
+ */
+public final class StreamingQueryResponse {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // Documents read per Firestore round trip, and how long one read may take
+    private static final int READ_SIZE = 200;
+    private static final long READ_TIMEOUT_SECONDS = 30;
+
+    private StreamingQueryResponse() {}
+
+    /**
+     * Builds the response for a list endpoint.
+     *
+     * @param baseQuery   collection (optionally filtered) to read from
+     * @param legacyLimit cap applied when the client does not ask for paging, 0 for none
+     * @param converter   maps each document to the object that gets serialized, or null to skip it
+     * @param observer    notified of each streamed document and of the stream's duration
+     * @param eTag        ETag header for the response, or null for none
+     * @param capture     receives the written body, or null
+     * @throws IllegalArgumentException if pageSize or cursor are malformed
+     */
+    public static ServerResponse of(ServerRequest request,
+                                    ObjectMapper objectMapper,
+                                    Query baseQuery,
+                                    int legacyLimit,
+                                    Function<DocumentSnapshot, ?> converter,
+                                    QueryObserver observer,
+                                    String eTag,
+                                    BodyCapture capture) {
+
+        String pageSizeParam = request.param("pageSize").orElse(null);
+        String cursorParam = request.param("cursor").orElse(null);
+
+        // ----- LEGACY: plain array -----
+        if (pageSizeParam == null && cursorParam == null) {
+            return ok(eTag)
+                    .build((req, res) -> {
+                        CapturingOutputStream out = new CapturingOutputStream(res.getOutputStream(), capture);
+                        JsonGenerator gen = objectMapper.getFactory().createGenerator(out);
+                        gen.writeStartArray();
+                        try {
+                            stream(baseQuery, legacyLimit, observer, doc -> {
+                                Object item = converter.apply(doc);
+                                if (item != null) {
+                                    objectMapper.writeValue(gen, item);
+                                }
+                            });
+                        } catch (Exception e) {
+                            failMidStream(res, e);
+                            gen.writeStartObject();
+                            gen.writeStringField("error", e.getMessage());
+                            gen.writeEndObject();
+                            gen.writeEndArray();
+                            gen.close();
+                            return null;
+                        }
+                        gen.writeEndArray();
+                        gen.close();
+                        out.complete();
+                        return null;
+                    });
+        }
+
+        // ----- PAGED: envelope with cursor -----
+        int pageSize = parsePageSize(pageSizeParam);
+
+        Query query = baseQuery.orderBy(FieldPath.documentId());
+        if (cursorParam != null) {
+            query = query.startAfter(PageCursor.decode(cursorParam));
+        }
+        Query pageQuery = query;
+
+        return ok(eTag)
+                .build((req, res) -> {
+                    CapturingOutputStream out = new CapturingOutputStream(res.getOutputStream(), capture);
+                    JsonGenerator gen = objectMapper.getFactory().createGenerator(out);
+                    String[] lastId = new String[1];
+                    int[] scanned = new int[1];
+                    boolean[] hasMore = new boolean[1];
+
+                    gen.writeStartObject();
+                    gen.writeArrayFieldStart("items");
+                    try {
+                        // Read one extra document so we know whether another page exists
+                        stream(pageQuery, pageSize + 1, observer, doc -> {
+                            if (scanned[0] == pageSize) {
+                                hasMore[0] = true;
+                                return;
+                            }
+                            Object item = converter.apply(doc);
+                            if (item != null) {
+                                objectMapper.writeValue(gen, item);
+                            }
+                            lastId[0] = doc.getId();
+                            scanned[0]++;
+                        });
+                    } catch (Exception e) {
+                        failMidStream(res, e);
+                        gen.writeEndArray();
+                        gen.writeStringField("error", e.getMessage());
+                        gen.writeNullField("nextCursor");
+                        gen.writeEndObject();
+                        gen.close();
+                        return null;
+                    }
+                    gen.writeEndArray();
+
+                    if (hasMore[0]) {
+                        gen.writeStringField("nextCursor", PageCursor.encode(lastId[0]));
+                    } else {
+                        gen.writeNullField("nextCursor");
+                    }
+                    gen.writeEndObject();
+                    gen.close();
+                    out.complete();
+                    return null;
+                });
+    }
+
+    /**
+     * Rethrows the failure if nothing reached the client yet, so the request fails with
+     * an error status. Otherwise the caller ends the body with an error marker.
+     */
+    private static void failMidStream(HttpServletResponse res, Exception e) throws Exception {
+        if (!res.isCommitted()) {
+            res.resetBuffer();
+            throw e;
+        }
+        System.out.println("Streamed response cut short, ending it with an error marker: " + e.getMessage());
+    }
+
+    private static ServerResponse.BodyBuilder ok(String eTag) {
+        ServerResponse.BodyBuilder builder = ServerResponse.ok().contentType(MediaType.APPLICATION_JSON);
+        return eTag != null ? builder.eTag(eTag) : builder;
+    }
+
+    /**
+     * True when the client asked for the paged envelope rather than the legacy array.
+     */
+    public static boolean isPaged(ServerRequest request) {
+        return request.param("pageSize").isPresent() || request.param("cursor").isPresent();
+    }
+
+    private static int parsePageSize(String pageSizeParam) {
+        if (pageSizeParam == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        int pageSize;
+        try {
+            pageSize = Integer.parseInt(pageSizeParam);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("pageSize must be a number");
+        }
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("pageSize must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return pageSize;
+    }
+
+    /**
+     * Reads the query READ_SIZE documents at a time and hands each document to the sink
+     * on the calling thread; the next chunk starts after the last document of the
+     * previous one and is only requested once the sink has taken them all.
+     *
+     * @param limit maximum number of documents to read, 0 for all
+     * @throws IllegalStateException if a read fails or takes longer than READ_TIMEOUT_SECONDS
+     */
+    private static void stream(Query query, int limit, QueryObserver observer, DocumentSink sink) throws Exception {
+        long start = System.nanoTime();
+        try {
+            DocumentSnapshot last = null;
+            int read = 0;
+            while (true) {
+                int size = limit > 0 ? Math.min(READ_SIZE, limit - read) : READ_SIZE;
+                if (size <= 0) {
+                    return;
+                }
+                Query chunk = (last != null ? query.startAfter(last) : query).limit(size);
+                List<QueryDocumentSnapshot> docs = read(chunk);
+                for (QueryDocumentSnapshot doc : docs) {
+                    observer.onDocument(doc);
+                    sink.accept(doc);
+                }
+                read += docs.size();
+                if (docs.size() < size) {
+                    return;
+                }
+                last = docs.get(docs.size() - 1);
+            }
+        } finally {
+            observer.onComplete(System.nanoTime() - start);
+        }
+    }
+
+    private static List<QueryDocumentSnapshot> read(Query chunk) throws InterruptedException {
+        ApiFuture<QuerySnapshot> future = chunk.get();
+        try {
+            return future.get(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS).getDocuments();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new IllegalStateException("Firestore read failed: " + cause.getMessage(), cause);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new IllegalStateException("Firestore read timed out after " + READ_TIMEOUT_SECONDS + " s");
+        }
+    }
+
+    /**
+     * Callback for instrumenting a streamed query. Called on the servlet thread.
+     */
+    public interface QueryObserver {
+        void onDocument(DocumentSnapshot doc);
+
+        void onComplete(long nanos);
+    }
+
+    /**
+     * Receives a copy of a response body. Bodies larger than maxBytes() are not captured.
+     */
+    public interface BodyCapture {
+        int maxBytes();
+
+        void onBody(byte[] body);
+    }
+
+    /**
+     * Passes everything through and keeps a copy for the BodyCapture, if any,
+     * until the body grows past its limit.
+     */
+    private static final class CapturingOutputStream extends FilterOutputStream {
+        private final BodyCapture capture;
+        private ByteArrayOutputStream copy;
+
+        CapturingOutputStream(OutputStream out, BodyCapture capture) {
+            super(out);
+            this.capture = capture;
+            this.copy = capture != null ? new ByteArrayOutputStream(8192) : null;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (copy != null) {
+                copy.write(b);
+                checkLimit();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            // FilterOutputStream would write byte by byte
+            out.write(b, off, len);
+            if (copy != null) {
+                copy.write(b, off, len);
+                checkLimit();
+            }
+        }
+
+        private void checkLimit() {
+            if (copy.size() > capture.maxBytes()) {
+                copy = null;
+            }
+        }
+
+        /**
+         * Called after the body was written without errors.
+         */
+        void complete() {
+            if (copy != null) {
+                capture.onBody(copy.toByteArray());
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface DocumentSink {
+        void accept(DocumentSnapshot doc) throws Exception;
+    }
+}
@@ -0,0 +1,96 @@
+package com.hunter_connect.config;
+
+import com.hunter_connect.services.FirestoreGateway;
+import com.hunter_connect.services.RequestMetrics;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request overhead of RequestLoggingFilter + FirebaseSecurityFilter + RateLimitFilter
+ * in front of a handler that does nothing.
+ *
+ * VerifiedTokenCache gets a stub verifier and the token is verified once in setUp, so
+ * this measures the warm path (hash + lookup) that almost every authenticated request
+ * takes; a cold verifyIdToken() needs a Firebase project and is not covered. The access log is
+ * disabled so the printer thread does not flood the benchmark output. The rate-limited
+ * write mostly measures the 429 path, since one caller exhausts its budget at once.
+ *
+ * Run with: ./mvnw test -Pbenchmark -Djmh.include=FilterChain
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterChainBenchmark {
+
+    private static final String TOKEN = "benchmark.id.token";
+
+    private RequestLoggingFilter loggingFilter;
+    private FirebaseSecurityFilter securityFilter;
+    private RateLimitFilter rateLimitFilter;
+    private final HttpServlet handler = new HttpServlet() {
+        @Override
+        protected void service(HttpServletRequest request, HttpServletResponse response) {
+            response.setStatus(200);
+        }
+    };
+
+    @Setup
+    public void setUp() throws Exception {
+        VerifiedTokenCache tokenCache = new VerifiedTokenCache(10_000, token -> new VerifiedTokenCache.VerifiedToken(
+                "benchmark-uid", System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)));
+        tokenCache.verify(TOKEN);
+
+        loggingFilter = new RequestLoggingFilter(new RequestMetrics(false, 0));
+        securityFilter = new FirebaseSecurityFilter(tokenCache);
+        rateLimitFilter = new SecurityConfig().rateLimitFilter(new FirestoreGateway(), 64, 256);
+    }
+
+    @Benchmark
+    public int authenticatedRequest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/events/abc");
+        request.addHeader("Authorization", "Bearer " + TOKEN);
+        return run(request);
+    }
+
+    @Benchmark
+    public int rateLimitedWrite() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/events/abc/subscribe");
+        request.addHeader("Authorization", "Bearer " + TOKEN);
+        return run(request);
+    }
+
+    @Benchmark
+    public int anonymousRequest() throws Exception {
+        return run(new MockHttpServletRequest("GET", "/api/events"));
+    }
+
+    private int run(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            new MockFilterChain(handler, loggingFilter, securityFilter, rateLimitFilter).doFilter(request, response);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        return response.getStatus();
+    }
+}
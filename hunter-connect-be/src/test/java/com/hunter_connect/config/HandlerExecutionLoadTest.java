@@ -0,0 +1,158 @@
+package com.hunter_connect.config;
+
+import com.google.cloud.Timestamp;
+import com.hunter_connect.HunterConnectBeApplication;
+import com.hunter_connect.services.FirestoreGateway;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.FirestoreEmulatorContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares request throughput of the two handler execution modes as the number of
+ * concurrent clients grows, against the full application on Tomcat.
+ *
+ * The application is started once per mode (hunter.handlers.execution-mode) with
+ * Tomcat's default 200 worker threads, backed by the Firestore emulator with
+ * FIRESTORE_LATENCY_MS of simulated latency per call. Clients hit GET /api/events/{id},
+ * which waits on one Firestore read per request, with tokens accepted by LoadTestAuth.
+ * Only 200 responses count.
+ *
+ * Needs Docker (skipped without it). Excluded from the normal build by its tag; run with: ./mvnw test -Pload-test
+ */
+@Tag("load")
+@Testcontainers(disabledWithoutDocker = true)
+class HandlerExecutionLoadTest {
+
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final long FIRESTORE_LATENCY_MS = 50;
+    private static final long WARMUP_MILLIS = 2_000;
+    private static final long RUN_MILLIS = 5_000;
+    private static final int[] CONCURRENT_CLIENTS = {50, 200, 800, 2_000};
+    private static final int USERS = 100;
+    private static final int EVENTS = 20;
+
+    @Container
+    static final FirestoreEmulatorContainer FIRESTORE = new FirestoreEmulatorContainer(
+            DockerImageName.parse("gcr.io/google.com/cloudsdktool/google-cloud-cli:emulators"));
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    @Test
+    void throughputScalesWithConcurrentClients() throws Exception {
+        double[] blocking = measureMode("blocking");
+        double[] virtual = measureMode("virtual");
+
+        System.out.printf("%-10s %15s %15s%n", "clients", "blocking req/s", "virtual req/s");
+        for (int i = 0; i < CONCURRENT_CLIENTS.length; i++) {
+            System.out.printf("%-10d %15.0f %15.0f%n", CONCURRENT_CLIENTS[i], blocking[i], virtual[i]);
+        }
+
+        // Once clients outnumber Tomcat threads, blocking mode is capped at
+        // TOMCAT_MAX_THREADS / latency while virtual mode keeps scaling.
+        int last = CONCURRENT_CLIENTS.length - 1;
+        assertTrue(virtual[last] > blocking[last],
+                "virtual mode should out-scale blocking mode at " + CONCURRENT_CLIENTS[last] + " clients");
+    }
+
+    /**
+     * Starts the application in the given mode and measures req/s at each client count.
+     */
+    private double[] measureMode(String mode) throws Exception {
+        try (ConfigurableApplicationContext app = new SpringApplicationBuilder(HunterConnectBeApplication.class, LoadTestAuth.class)
+                .properties(
+                        "server.port=0",
+                        "server.tomcat.threads.max=" + TOMCAT_MAX_THREADS,
+                        "hunter.handlers.execution-mode=" + mode,
+                        "hunter.firebase.warmup=false",
+                        "hunter.firestore.emulator-host=" + FIRESTORE.getEmulatorEndpoint(),
+                        "hunter.firestore.simulated-latency-millis=" + FIRESTORE_LATENCY_MS)
+                .run()) {
+            int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+            List<String> paths = seed(app.getBean(FirestoreGateway.class));
+
+            measure(port, paths, CONCURRENT_CLIENTS[0], WARMUP_MILLIS);
+            double[] throughput = new double[CONCURRENT_CLIENTS.length];
+            for (int i = 0; i < CONCURRENT_CLIENTS.length; i++) {
+                throughput[i] = measure(port, paths, CONCURRENT_CLIENTS[i], RUN_MILLIS);
+            }
+            return throughput;
+        }
+    }
+
+    /**
+     * Writes the events straight to the emulator; both runs share them.
+     */
+    private static List<String> seed(FirestoreGateway firestore) throws Exception {
+        List<String> paths = new ArrayList<>();
+        for (int e = 0; e < EVENTS; e++) {
+            String id = "load-event-" + e;
+            firestore.collection("events").document(id).set(Map.of(
+                    "title", "Load event " + e,
+                    "description", "Handler execution load test",
+                    "location", "Hunter North",
+                    "createdBy", LoadTestAuth.uid(0),
+                    "attendees", List.of(),
+                    "startTime", Timestamp.now())).get();
+            paths.add("/api/events/" + id);
+        }
+        return paths;
+    }
+
+    private double measure(int port, List<String> paths, int clients, long millis) throws Exception {
+        LongAdder completed = new LongAdder();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+
+        try (ExecutorService clientPool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                int client = c;
+                clientPool.submit(() -> {
+                    String token = LoadTestAuth.token(client % USERS);
+                    int next = client;
+                    while (System.nanoTime() < deadline) {
+                        HttpRequest request = HttpRequest.newBuilder(
+                                        URI.create("http://localhost:" + port + paths.get(next++ % paths.size())))
+                                .header("Authorization", "Bearer " + token)
+                                .timeout(Duration.ofSeconds(30))
+                                .GET()
+                                .build();
+                        try {
+                            HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() == 200 && System.nanoTime() < deadline) {
+                                completed.increment();
+                            }
+                        } catch (Exception e) {
+                            // Timed out or refused: not completed
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+
+        return completed.sum() * 1000.0 / millis;
+    }
+}
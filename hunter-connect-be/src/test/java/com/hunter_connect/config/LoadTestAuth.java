@@ -0,0 +1,35 @@
+package com.hunter_connect.config;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token verification for the load tests: "load-token-N" is accepted as user "load-user-N"
+ * for two hours, so no Firebase Auth project is involved. The stub sits behind the real
+ * VerifiedTokenCache, so tokens are verified once and then served from the cache as in
+ * production.
+ */
+@TestConfiguration
+public class LoadTestAuth {
+
+    private static final String TOKEN_PREFIX = "load-token-";
+
+    public static String token(int user) {
+        return TOKEN_PREFIX + user;
+    }
+
+    public static String uid(int user) {
+        return "load-user-" + user;
+    }
+
+    @Bean
+    @Primary
+    VerifiedTokenCache loadTestTokenCache() {
+        return new VerifiedTokenCache(10_000, token -> new VerifiedTokenCache.VerifiedToken(
+                uid(Integer.parseInt(token.substring(TOKEN_PREFIX.length()))),
+                System.currentTimeMillis() + TimeUnit.HOURS.toMillis(2)));
+    }
+}
@@ -0,0 +1,126 @@
+package com.hunter_connect.config;
+
+import com.hunter_connect.services.FirestoreGateway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Token buckets and Retry-After of RateLimitFilter. Nothing is in flight on the gateway,
+ * so no request is shed.
+ */
+class RateLimitFilterTest {
+
+    private final RateLimitFilter filter = new RateLimitFilter(new FirestoreGateway(), 64, 256)
+            .limit(HttpMethod.POST, "/api/posts", 1, Duration.ofMinutes(1), 3)
+            .limit(HttpMethod.POST, "/api/posts/{id}/like", 10, Duration.ofSeconds(1), 1);
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void allowsTheBurstThenRejectsWithRetryAfter() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, post("/api/posts", "10.0.0.1").getStatus());
+        }
+
+        MockHttpServletResponse rejected = post("/api/posts", "10.0.0.1");
+        assertEquals(429, rejected.getStatus());
+        // One permit per minute: the next token is a minute away, rounded up
+        assertEquals("60", rejected.getHeader("Retry-After"));
+    }
+
+    @Test
+    void tokensRefillOverTime() throws Exception {
+        assertEquals(200, post("/api/posts/p1/like", "10.0.0.1").getStatus());
+        MockHttpServletResponse rejected = post("/api/posts/p1/like", "10.0.0.1");
+        assertEquals(429, rejected.getStatus());
+        // Less than a second away still asks for a whole second
+        assertEquals("1", rejected.getHeader("Retry-After"));
+
+        Thread.sleep(150);
+        assertEquals(200, post("/api/posts/p1/like", "10.0.0.1").getStatus());
+    }
+
+    @Test
+    void callersHaveSeparateBuckets() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            post("/api/posts", "10.0.0.1");
+        }
+        assertEquals(429, post("/api/posts", "10.0.0.1").getStatus());
+        assertEquals(200, post("/api/posts", "10.0.0.2").getStatus());
+
+        // A signed-in caller is keyed on the UID, not the shared address
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("user-1", null, List.of()));
+        assertEquals(200, post("/api/posts", "10.0.0.1").getStatus());
+    }
+
+    @Test
+    void routesHaveSeparateBuckets() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            post("/api/posts", "10.0.0.1");
+        }
+        assertEquals(429, post("/api/posts", "10.0.0.1").getStatus());
+        assertEquals(200, post("/api/posts/p1/like", "10.0.0.1").getStatus());
+    }
+
+    @Test
+    void unlimitedRoutesPassThrough() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(new MockHttpServletRequest("GET", "/api/posts"), response, new MockFilterChain());
+            assertEquals(200, response.getStatus());
+            assertNull(response.getHeader("Retry-After"));
+        }
+    }
+
+    @Test
+    void sweepKeepsBucketsInUse() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            post("/api/posts", "10.0.0.1");
+        }
+        // Enough new callers to run the sweep, whose buckets are not full any more
+        for (int i = 0; i < 1100; i++) {
+            post("/api/posts", "10.1." + (i / 256) + "." + (i % 256));
+        }
+
+        assertEquals(429, post("/api/posts", "10.0.0.1").getStatus());
+        assertEquals(200, post("/api/posts", "10.1.0.0").getStatus());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void snapshotCountsAllowedAndLimited() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            post("/api/posts", "10.0.0.1");
+        }
+
+        Map<String, Object> limits = (Map<String, Object>) filter.snapshot().get("limits");
+        Map<String, Object> posts = (Map<String, Object>) limits.get("POST /api/posts");
+        assertEquals(3L, posts.get("allowed"));
+        assertEquals(2L, posts.get("limited"));
+    }
+
+    private MockHttpServletResponse post(String path, String remoteAddr) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setRemoteAddr(remoteAddr);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
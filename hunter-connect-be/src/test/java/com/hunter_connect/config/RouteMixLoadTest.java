@@ -0,0 +1,364 @@
+package com.hunter_connect.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hunter_connect.util.LatencyHistogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.FirestoreEmulatorContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Replays a mix of the routes in RouterFunctionConfig against the full application,
+ * backed by the Firestore emulator with simulated production latency, and reports
+ * throughput and latency percentiles per route.
+ *
+ * The mix is weighted like the mobile client: mostly list, feed and profile reads, some
+ * likes, subscribes, profile edits and new posts. Callers are synthetic users whose ID
+ * tokens are accepted by a stub verifier (LoadTestAuth), so no Firebase Auth is involved.
+ * 429 (rate limited) and 503 (shed) are counted but are not failures; any other
+ * non-2xx response is.
+ *
+ * Needs Docker (skipped without it). Excluded from the normal build by its tag; run with: ./mvnw test -Pload-test
+ * and tune with -Dload.clients=, -Dload.seconds=, -Dload.users=
+ */
+@Tag("load")
+@Testcontainers(disabledWithoutDocker = true)
+@Import(LoadTestAuth.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "hunter.firebase.warmup=false",
+        "hunter.firestore.simulated-latency-millis=20",
+        "hunter.firestore.simulated-jitter-millis=30"
+})
+class RouteMixLoadTest {
+
+    private static final int USERS = Integer.getInteger("load.users", 200);
+    private static final int CLIENTS = Integer.getInteger("load.clients", 100);
+    private static final long RUN_SECONDS = Long.getLong("load.seconds", 30);
+    private static final long WARMUP_SECONDS = 5;
+
+    private static final int POSTS_PER_USER = 2;
+    private static final int EVENTS = 50;
+    private static final int FRIENDS_PER_USER = 8;
+    private static final String[] WORDS = {
+            "algorithms", "study", "group", "hackathon", "chess", "robotics", "music", "career",
+            "fair", "calculus", "biology", "workshop", "coffee", "library", "soccer", "startup"
+    };
+
+    @Container
+    static final FirestoreEmulatorContainer FIRESTORE = new FirestoreEmulatorContainer(
+            DockerImageName.parse("gcr.io/google.com/cloudsdktool/google-cloud-cli:emulators"));
+
+    @DynamicPropertySource
+    static void firestore(DynamicPropertyRegistry registry) {
+        registry.add("hunter.firestore.emulator-host", FIRESTORE::getEmulatorEndpoint);
+    }
+
+    @LocalServerPort
+    private int port;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final List<String> postIds = new ArrayList<>();
+    private final List<String> eventIds = new ArrayList<>();
+
+    @Test
+    void routeMix() throws Exception {
+        long seedStart = System.nanoTime();
+        seed();
+        System.out.printf("Seeded %d users, %d posts, %d events in %d ms%n", USERS, postIds.size(), eventIds.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - seedStart));
+
+        List<Op> mix = mix();
+        int totalWeight = mix.stream().mapToInt(Op::weight).sum();
+
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+        long deadline = measureFrom + TimeUnit.SECONDS.toNanos(RUN_SECONDS);
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> running = new ArrayList<>();
+            for (int c = 0; c < CLIENTS; c++) {
+                running.add(clients.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        Op op = pick(mix, random.nextInt(totalWeight));
+                        int user = random.nextInt(USERS);
+                        HttpRequest request = op.request.apply(random)
+                                .header("Authorization", "Bearer " + token(user))
+                                .build();
+
+                        long start = System.nanoTime();
+                        int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        if (start >= measureFrom) {
+                            long nanos = System.nanoTime() - start;
+                            op.stats.record(status, nanos);
+                            total.record(nanos);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> client : running) {
+                client.get();
+            }
+        }
+
+        report(mix);
+
+        long ok = mix.stream().mapToLong(op -> op.stats.ok.sum()).sum();
+        long errors = mix.stream().mapToLong(op -> op.stats.errors.sum()).sum();
+        assertTrue(ok > 0, "no request succeeded");
+        assertEquals(0, errors, "requests failed with a status other than 2xx/304/429/503");
+    }
+
+    // ----------- the mix -----------
+
+    private List<Op> mix() {
+        List<Op> mix = new ArrayList<>();
+        mix.add(new Op("GET /api/posts", 15, r -> get("/api/posts?pageSize=20")));
+        mix.add(new Op("GET /api/posts/feed", 15, r -> get("/api/posts/feed")));
+        mix.add(new Op("GET /api/posts/{id}", 8, r -> get("/api/posts/" + any(postIds, r))));
+        mix.add(new Op("GET /api/events", 8, r -> get("/api/events?pageSize=20")));
+        mix.add(new Op("GET /api/events/now", 4, r -> get("/api/events/now?next=120")));
+        mix.add(new Op("GET /api/events/range", 2, r -> get("/api/events/range?from=" + Instant.now()
+                + "&to=" + Instant.now().plus(Duration.ofDays(7)))));
+        mix.add(new Op("GET /api/events/{id}", 5, r -> get("/api/events/" + any(eventIds, r))));
+        mix.add(new Op("GET /api/events/{id}/friends", 3, r -> get("/api/events/" + any(eventIds, r) + "/friends")));
+        mix.add(new Op("GET /api/users/{id}", 10, r -> get("/api/users/" + uid(r.nextInt(USERS)))));
+        mix.add(new Op("GET /api/users?ids=", 4, r -> get("/api/users?ids=" + uid(r.nextInt(USERS)) + ","
+                + uid(r.nextInt(USERS)) + "," + uid(r.nextInt(USERS)))));
+        mix.add(new Op("GET /api/users/suggestions", 3, r -> get("/api/users/suggestions")));
+        mix.add(new Op("GET /api/users/{id}/mutual", 2, r -> get("/api/users/" + uid(r.nextInt(USERS)) + "/mutual")));
+        mix.add(new Op("GET /api/search", 5, r -> get("/api/search?q=" + WORDS[r.nextInt(WORDS.length)])));
+        mix.add(new Op("POST /api/posts/{id}/like", 5, r -> send("POST", "/api/posts/" + any(postIds, r) + "/like", null)));
+        mix.add(new Op("POST /api/events/{id}/subscribe", 3, r ->
+                send("POST", "/api/events/" + any(eventIds, r) + "/subscribe?force=true", null)));
+        mix.add(new Op("PUT /api/users", 5, r -> send("PUT", "/api/users", preferences(r))));
+        mix.add(new Op("POST /api/posts", 3, r -> send("POST", "/api/posts", post(r))));
+        return mix;
+    }
+
+    private static Op pick(List<Op> mix, int ticket) {
+        for (Op op : mix) {
+            ticket -= op.weight;
+            if (ticket < 0) {
+                return op;
+            }
+        }
+        return mix.get(mix.size() - 1);
+    }
+
+    // ----------- seeding -----------
+
+    /**
+     * Creates users (with friends and preferences), their posts and some upcoming events
+     * through the API itself, so every index and cache is filled the way it is in production.
+     */
+    private void seed() throws Exception {
+        try (ExecutorService seeders = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<String>>> posts = new ArrayList<>();
+            for (int u = 0; u < USERS; u++) {
+                int user = u;
+                posts.add(seeders.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    expect(201, call(user, send("POST", "/api/users", profile(user, random))));
+                    List<String> ids = new ArrayList<>();
+                    for (int p = 0; p < POSTS_PER_USER; p++) {
+                        JsonNode created = expect(201, call(user, send("POST", "/api/posts", post(random))));
+                        ids.add(created.get("postID").asText());
+                    }
+                    return ids;
+                }));
+            }
+            for (Future<List<String>> ids : posts) {
+                postIds.addAll(ids.get());
+            }
+
+            List<Future<String>> events = new ArrayList<>();
+            for (int e = 0; e < EVENTS; e++) {
+                int creator = e % USERS;
+                events.add(seeders.submit(() -> {
+                    JsonNode created = expect(201, call(creator, send("POST", "/api/events", event(ThreadLocalRandom.current()))));
+                    return created.get("id").asText();
+                }));
+            }
+            for (Future<String> id : events) {
+                eventIds.add(id.get());
+            }
+        }
+    }
+
+    private HttpResponse<String> call(int user, HttpRequest.Builder request) throws Exception {
+        return http.send(request.header("Authorization", "Bearer " + token(user)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private JsonNode expect(int status, HttpResponse<String> response) throws Exception {
+        assertEquals(status, response.statusCode(), () -> response.request().uri() + ": " + response.body());
+        return mapper.readTree(response.body());
+    }
+
+    private Map<String, Object> profile(int user, ThreadLocalRandom random) {
+        List<String> friends = new ArrayList<>();
+        for (int f = 0; f < FRIENDS_PER_USER; f++) {
+            int friend = random.nextInt(USERS);
+            if (friend != user && !friends.contains(uid(friend))) {
+                friends.add(uid(friend));
+            }
+        }
+        Map<String, Object> profile = new LinkedHashMap<>();
+        profile.put("firstName", "Load");
+        profile.put("lastName", "User " + user);
+        profile.put("email", uid(user) + "@example.com");
+        profile.put("username", uid(user));
+        profile.put("friends", friends);
+        profile.put("preferences", preferences(random).get("preferences"));
+        return profile;
+    }
+
+    private Map<String, Object> preferences(ThreadLocalRandom random) {
+        return Map.of("preferences", Map.of(
+                "academicYear", "Junior",
+                "courses", List.of("CSCI " + (100 + random.nextInt(400))),
+                "interests", List.of(WORDS[random.nextInt(WORDS.length)], WORDS[random.nextInt(WORDS.length)]),
+                "skills", List.of("java")));
+    }
+
+    private Map<String, Object> post(ThreadLocalRandom random) {
+        return Map.of(
+                "title", sentence(random, 4),
+                "content", sentence(random, 20),
+                "location", "Hunter North",
+                "tags", Map.of("courses", List.of("CSCI " + (100 + random.nextInt(400))),
+                        "general", List.of(WORDS[random.nextInt(WORDS.length)])));
+    }
+
+    private Map<String, Object> event(ThreadLocalRandom random) {
+        Instant start = Instant.now().plus(Duration.ofMinutes(random.nextInt(7 * 24 * 60)));
+        return Map.of(
+                "title", sentence(random, 3),
+                "description", sentence(random, 15),
+                "location", "Room " + (100 + random.nextInt(900)),
+                "startTime", start.toString(),
+                "endTime", start.plus(Duration.ofMinutes(30 + random.nextInt(150))).toString());
+    }
+
+    // ----------- helpers -----------
+
+    private HttpRequest.Builder get(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET();
+    }
+
+    private HttpRequest.Builder send(String method, String path, Object body) {
+        try {
+            String json = body != null ? mapper.writeValueAsString(body) : "";
+            return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                    .header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(json));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String any(List<String> ids, ThreadLocalRandom random) {
+        return ids.get(random.nextInt(ids.size()));
+    }
+
+    private static String sentence(ThreadLocalRandom random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int w = 0; w < words; w++) {
+            if (w > 0) text.append(' ');
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    private static String uid(int user) {
+        return LoadTestAuth.uid(user);
+    }
+
+    private static String token(int user) {
+        return LoadTestAuth.token(user);
+    }
+
+    private void report(List<Op> mix) {
+        System.out.printf("%n%d clients, %d s (after %d s warm-up), Firestore emulator with 20-50 ms per call%n",
+                CLIENTS, RUN_SECONDS, WARMUP_SECONDS);
+        System.out.printf("%-34s %9s %9s %9s %9s %9s %9s %7s %7s %7s%n",
+                "route", "requests", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "429", "503", "errors");
+
+        long limited = 0;
+        long shed = 0;
+        long errors = 0;
+        for (Op op : mix) {
+            Stats s = op.stats;
+            System.out.printf("%-34s %9d %9.1f %9.1f %9.1f %9.1f %9.1f %7d %7d %7d%n",
+                    op.name, s.latency.count(), s.latency.count() / (double) RUN_SECONDS,
+                    s.latency.percentileNanos(50) / 1e6, s.latency.percentileNanos(95) / 1e6,
+                    s.latency.percentileNanos(99) / 1e6, s.latency.maxNanos() / 1e6,
+                    s.limited.sum(), s.shed.sum(), s.errors.sum());
+            limited += s.limited.sum();
+            shed += s.shed.sum();
+            errors += s.errors.sum();
+        }
+        System.out.printf("%-34s %9d %9.1f %9.1f %9.1f %9.1f %9.1f %7d %7d %7d%n%n",
+                "total", total.count(), total.count() / (double) RUN_SECONDS,
+                total.percentileNanos(50) / 1e6, total.percentileNanos(95) / 1e6,
+                total.percentileNanos(99) / 1e6, total.maxNanos() / 1e6, limited, shed, errors);
+    }
+
+    private record Op(String name, int weight, Function<ThreadLocalRandom, HttpRequest.Builder> request, Stats stats) {
+        Op(String name, int weight, Function<ThreadLocalRandom, HttpRequest.Builder> request) {
+            this(name, weight, request, new Stats());
+        }
+    }
+
+    private static final class Stats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder ok = new LongAdder();
+        final LongAdder limited = new LongAdder();
+        final LongAdder shed = new LongAdder();
+        final LongAdder errors = new LongAdder();
+
+        void record(int status, long nanos) {
+            latency.record(nanos);
+            if ((status >= 200 && status < 300) || status == 304) ok.increment();
+            else if (status == 429) limited.increment();
+            else if (status == 503) shed.increment();
+            else errors.increment();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.hunter_connect.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VerifiedTokenCacheTest {
+
+    private static final long HOUR_MILLIS = 3_600_000;
+
+    private final List<String> verified = new ArrayList<>();
+
+    @Test
+    void hitsSkipTheVerifier() throws Exception {
+        VerifiedTokenCache cache = cache(10, HOUR_MILLIS);
+
+        assertEquals("uid-a", cache.verify("a"));
+        assertEquals("uid-a", cache.verify("a"));
+
+        assertEquals(List.of("a"), verified);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void evictsTheOldestEntriesWhenFull() throws Exception {
+        VerifiedTokenCache cache = cache(2, HOUR_MILLIS);
+        cache.verify("a");
+        cache.verify("b");
+        cache.verify("c");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        cache.verify("c");
+        cache.verify("b");
+        assertEquals(List.of("a", "b", "c"), verified);
+        cache.verify("a");
+        assertEquals(List.of("a", "b", "c", "a"), verified);
+    }
+
+    @Test
+    void expiredTokensAreNotKept() throws Exception {
+        VerifiedTokenCache cache = cache(10, -1);
+        cache.verify("a");
+        cache.verify("a");
+
+        assertEquals(List.of("a", "a"), verified);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void reverifiedTokensDoNotCountTwice() throws Exception {
+        VerifiedTokenCache cache = cache(2, HOUR_MILLIS);
+        for (int i = 0; i < 100; i++) {
+            cache.verify("t" + (i % 3));
+        }
+
+        assertEquals(2, cache.size());
+    }
+
+    /**
+     * A cache whose verifier accepts every token, expiring expiresInMillis from now.
+     */
+    private VerifiedTokenCache cache(int maxEntries, long expiresInMillis) {
+        return new VerifiedTokenCache(maxEntries, token -> {
+            verified.add(token);
+            return new VerifiedTokenCache.VerifiedToken("uid-" + token, System.currentTimeMillis() + expiresInMillis);
+        });
+    }
+}
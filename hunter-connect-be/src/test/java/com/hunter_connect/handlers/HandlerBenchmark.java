@@ -0,0 +1,189 @@
+package com.hunter_connect.handlers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.Timestamp;
+import com.hunter_connect.models.Post;
+import com.hunter_connect.models.User;
+import com.hunter_connect.services.CollectionListeners;
+import com.hunter_connect.services.CollectionVersions;
+import com.hunter_connect.services.FirestoreGateway;
+import com.hunter_connect.services.FriendGraph;
+import com.hunter_connect.services.LiveFeed;
+import com.hunter_connect.services.PostFeedIndex;
+import com.hunter_connect.services.PostLikeCounter;
+import com.hunter_connect.services.ResponseCache;
+import com.hunter_connect.services.SearchIndex;
+import com.hunter_connect.services.UserProfileCache;
+import com.hunter_connect.services.UserUpdateCoalescer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.function.RouterFunctions;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handler logic end to end (request parsing, handler, JSON response) for the routes
+ * that are answered from in-memory state: the profile cache, the feed and search indexes
+ * and the friend graph stand in for Firestore and are seeded with a synthetic data set.
+ * No Firestore call is made. Search is measured on the index alone, since SearchHandler
+ * reads the documents of the returned page from Firestore.
+ *
+ * Run with: ./mvnw test -Pbenchmark -Djmh.include=HandlerBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandlerBenchmark {
+
+    private static final int USERS = 2_000;
+    private static final int FRIENDS_PER_USER = 40;
+    private static final int POSTS = 5_000;
+    private static final List<String> COURSES = List.of("CSCI 127", "CSCI 135", "CSCI 235", "CSCI 335", "CSCI 499");
+    private static final List<String> TOPICS = List.of("study", "help", "project", "event", "jobs", "clubs");
+
+    private List<HttpMessageConverter<?>> converters;
+    private ServerResponse.Context context;
+    private UserHandler userHandler;
+    private PostHandler postHandler;
+    private SearchIndex searchIndex;
+    private PostLikeCounter likeCounter;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        converters = List.of(new MappingJackson2HttpMessageConverter(objectMapper));
+        context = () -> converters;
+
+        FirestoreGateway firestore = new FirestoreGateway();
+        UserProfileCache profiles = new UserProfileCache(firestore, USERS, TimeUnit.HOURS.toSeconds(1));
+        CollectionVersions versions = new CollectionVersions();
+        // Never started, so no listener is opened
+        CollectionListeners listeners = new CollectionListeners(firestore, versions, 5_000);
+        FriendGraph friendGraph = new FriendGraph(listeners, profiles);
+        PostFeedIndex feedIndex = new PostFeedIndex(listeners, 30, 48);
+        searchIndex = new SearchIndex(listeners);
+        likeCounter = new PostLikeCounter(firestore, TimeUnit.HOURS.toMillis(1));
+
+        Random random = new Random(42);
+        for (int i = 0; i < USERS; i++) {
+            List<String> friends = new ArrayList<>(FRIENDS_PER_USER);
+            for (int f = 0; f < FRIENDS_PER_USER; f++) {
+                friends.add(uid(random.nextInt(USERS)));
+            }
+            User.Preferences preferences = new User.Preferences();
+            preferences.setCourses(List.of(pick(random, COURSES), pick(random, COURSES)));
+            preferences.setInterests(List.of(pick(random, TOPICS)));
+
+            User user = new User();
+            user.setUid(uid(i));
+            user.setFirstName("First" + i);
+            user.setLastName("Last" + i);
+            user.setFriends(friends);
+            user.setPreferences(preferences);
+
+            profiles.put(user);
+            friendGraph.setFriends(user.getUid(), friends);
+        }
+
+        long now = Timestamp.now().getSeconds();
+        for (int i = 0; i < POSTS; i++) {
+            Post post = new Post();
+            post.setPostID("post-" + i);
+            post.setUserID(uid(random.nextInt(USERS)));
+            post.setTitle("Post " + i);
+            String course = pick(random, COURSES);
+            String topic = pick(random, TOPICS);
+            post.setContent("Content of post " + i + ": looking for " + topic + " in " + course);
+            post.setLikedBy(List.of());
+            post.setTimestamp(Timestamp.ofTimeSecondsAndNanos(now - random.nextInt(20 * 24 * 3_600), 0));
+            post.setTags(new Post.Tags(List.of(course), List.of(topic)));
+            feedIndex.index(post);
+            searchIndex.index(post);
+        }
+
+        userHandler = new UserHandler(objectMapper, firestore, profiles, friendGraph, versions,
+                new UserUpdateCoalescer(firestore, profiles, versions, 250, false));
+        postHandler = new PostHandler(objectMapper, firestore, feedIndex, profiles, likeCounter,
+                new LiveFeed(listeners, objectMapper, 1024, 256, 30), versions,
+                new ResponseCache(64, 2 * 1024 * 1024, true), searchIndex);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        likeCounter.shutdown();
+    }
+
+    @Benchmark
+    public int getUserById() throws Exception {
+        MockHttpServletRequest request = request("/api/users/" + uid(7), uid(1));
+        request.setAttribute(RouterFunctions.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Map.of("id", uid(7)));
+        return write(request, userHandler.getUserById(ServerRequest.create(request, converters)));
+    }
+
+    @Benchmark
+    public int getFeed() throws Exception {
+        MockHttpServletRequest request = request("/api/posts/feed", uid(3));
+        return write(request, postHandler.getFeed(ServerRequest.create(request, converters)));
+    }
+
+    @Benchmark
+    public List<SearchIndex.Hit> search() {
+        return searchIndex.search("proj csci 335", null, 20);
+    }
+
+    @Benchmark
+    public int getMutualFriends() throws Exception {
+        MockHttpServletRequest request = request("/api/users/" + uid(11) + "/mutual", uid(5));
+        request.setAttribute(RouterFunctions.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Map.of("id", uid(11)));
+        return write(request, userHandler.getMutualFriends(ServerRequest.create(request, converters)));
+    }
+
+    @Benchmark
+    public int getFriendSuggestions() throws Exception {
+        MockHttpServletRequest request = request("/api/users/suggestions", uid(9));
+        return write(request, userHandler.getFriendSuggestions(ServerRequest.create(request, converters)));
+    }
+
+    private static MockHttpServletRequest request(String uri, String callerUid) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setUserPrincipal(() -> callerUid);
+        return request;
+    }
+
+    private int write(MockHttpServletRequest request, ServerResponse response) throws Exception {
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+        response.writeTo(request, servletResponse, context);
+        return servletResponse.getContentAsByteArray().length;
+    }
+
+    private static String uid(int i) {
+        return "uid-" + i;
+    }
+
+    private static <T> T pick(Random random, List<T> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+}
@@ -0,0 +1,88 @@
+package com.hunter_connect.models;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.Timestamp;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The timestamp shapes the clients send, read through Event.startTime as in a request body.
+ */
+class FirestoreTimestampDeserializerTest {
+
+    private static final long SECONDS = 1_760_020_200L; // 2025-10-09T14:30:00Z
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void readsJsSdkObject() throws Exception {
+        assertEquals(Timestamp.ofTimeSecondsAndNanos(SECONDS, 5),
+                startTime("{\"seconds\": 1760020200, \"nanoseconds\": 5}"));
+    }
+
+    @Test
+    void readsJavaSdkAndAdminShapesInAnyOrder() throws Exception {
+        assertEquals(Timestamp.ofTimeSecondsAndNanos(SECONDS, 7),
+                startTime("{\"nanos\": 7, \"seconds\": 1760020200}"));
+        assertEquals(Timestamp.ofTimeSecondsAndNanos(SECONDS, 9),
+                startTime("{\"_seconds\": 1760020200, \"_nanoseconds\": 9}"));
+    }
+
+    @Test
+    void skipsUnknownFieldsIncludingNestedOnes() throws Exception {
+        assertEquals(Timestamp.ofTimeSecondsAndNanos(SECONDS, 2),
+                startTime("{\"seconds\": 1760020200, \"extra\": {\"a\": [1, {\"b\": 2}]}, \"nanos\": 2}"));
+    }
+
+    @Test
+    void objectWithoutSecondsIsNull() throws Exception {
+        assertNull(startTime("{\"nanoseconds\": 5}"));
+        assertNull(startTime("{}"));
+    }
+
+    @Test
+    void readsIsoStrings() throws Exception {
+        assertEquals(Timestamp.ofTimeSecondsAndNanos(SECONDS, 0), startTime("\"2025-10-09T14:30:00Z\""));
+        assertEquals(Timestamp.ofTimeSecondsAndNanos(SECONDS, 250_000_000), startTime("\" 2025-10-09T14:30:00.25Z \""));
+        assertNull(startTime("\"  \""));
+    }
+
+    @Test
+    void readsEpochMillis() throws Exception {
+        assertEquals(Timestamp.ofTimeSecondsAndNanos(SECONDS, 123_000_000), startTime("1760020200123"));
+        // Before the epoch: seconds round down, nanos stay positive
+        assertEquals(Timestamp.ofTimeSecondsAndNanos(-1, 999_000_000), startTime("-1"));
+        assertEquals(Timestamp.ofTimeSecondsAndNanos(SECONDS, 123_500_000), startTime("1760020200123.5"));
+    }
+
+    @Test
+    void nullStaysNull() throws Exception {
+        assertNull(startTime("null"));
+    }
+
+    @Test
+    void rejectsUnparseableString() {
+        JsonMappingException e = assertThrows(JsonMappingException.class, () -> startTime("\"next tuesday\""));
+        assertTrue(e.getOriginalMessage().startsWith("Invalid timestamp"));
+    }
+
+    @Test
+    void rejectsOutOfRangeNanos() {
+        assertThrows(JsonMappingException.class, () -> startTime("{\"seconds\": 1, \"nanos\": 2000000000}"));
+    }
+
+    @Test
+    void rejectsOtherTokens() {
+        assertThrows(JsonMappingException.class, () -> startTime("true"));
+        assertThrows(JsonMappingException.class, () -> startTime("[1, 2]"));
+    }
+
+    private Timestamp startTime(String json) throws Exception {
+        return mapper.readValue("{\"startTime\": " + json + "}", Event.class).getStartTime();
+    }
+}
@@ -0,0 +1,105 @@
+package com.hunter_connect.models;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.cloud.Timestamp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson cost of the request and response bodies: Event/Post deserialization
+ * (including FirestoreTimestampDeserializer) and serialization of large event lists.
+ *
+ * The ObjectMapper is built the way Spring Boot builds its own, so module lookups
+ * and features match what the handlers see.
+ *
+ * Run with: ./mvnw test -Pbenchmark -Djmh.include=ModelJson
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelJsonBenchmark {
+
+    // Timestamps in the shape the frontend sends (Firestore Timestamp.toJSON())
+    private static final String EVENT_JSON = """
+            {"title":"CSCI 499 study group","description":"Reviewing sprint 3 before the demo",
+             "location":"Hunter North 1001",
+             "date":{"seconds":1760000000,"nanoseconds":0},
+             "startTime":{"seconds":1760004000,"nanoseconds":500000000},
+             "endTime":{"seconds":1760011200,"nanoseconds":0},
+             "tags":{"courses":["CSCI 499","CSCI 335"],"general":["study","project"]},
+             "attendees":["uid-1","uid-2","uid-3"]}
+            """;
+
+    private static final String POST_JSON = """
+            {"title":"Looking for a lab partner","content":"Anyone taking CSCI 335 this term?",
+             "location":"Library","timestamp":{"seconds":1760000000,"nanoseconds":123000000},
+             "tags":{"courses":["CSCI 335"],"general":["help"]}}
+            """;
+
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    /**
+     * A GET /api/events response body of listSize events.
+     */
+    @State(Scope.Benchmark)
+    public static class EventList {
+
+        @Param({"100", "1000"})
+        public int listSize;
+
+        ObjectWriter writer;
+        List<Event> events;
+
+        @Setup
+        public void setUp(ModelJsonBenchmark benchmark) {
+            ObjectMapper objectMapper = benchmark.objectMapper;
+            writer = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Event.class));
+
+            events = new ArrayList<>(listSize);
+            for (int i = 0; i < listSize; i++) {
+                Timestamp start = Timestamp.ofTimeSecondsAndNanos(1_760_000_000L + i * 3_600L, 0);
+                events.add(new Event("event-" + i, List.of("uid-1", "uid-2"), start, "uid-" + (i % 50), "Creator " + i,
+                        start, "Description for event " + i, Timestamp.ofTimeSecondsAndNanos(start.getSeconds() + 7_200L, 0),
+                        "Room " + (i % 20), start, new Event.Tags(List.of("CSCI 499"), List.of("study")), "Event " + i));
+            }
+        }
+    }
+
+    @Benchmark
+    public Event deserializeEvent() throws Exception {
+        return objectMapper.readValue(EVENT_JSON, Event.class);
+    }
+
+    @Benchmark
+    public Post deserializePost() throws Exception {
+        return objectMapper.readValue(POST_JSON, Post.class);
+    }
+
+    @Benchmark
+    public byte[] serializeEventList(EventList list) throws Exception {
+        return list.writer.writeValueAsBytes(list.events);
+    }
+}
@@ -0,0 +1,64 @@
+package com.hunter_connect.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Toggles of AttendanceCoalescer against an in-memory event store.
+ */
+class AttendanceCoalescerTest {
+
+    private final Map<String, List<String>> events = new HashMap<>();
+    private final List<Map<String, AttendanceCoalescer.Delta>> writes = new ArrayList<>();
+    private final AttendanceCoalescer coalescer = new AttendanceCoalescer(
+            this::read, this::write, 5);
+
+    @Test
+    void togglesAreWrittenByTheFlusher() throws Exception {
+        events.put("e1", new ArrayList<>(List.of("u2")));
+
+        var join = coalescer.toggle("e1", "u1");
+        var leave = coalescer.toggle("e1", "u2");
+
+        assertTrue(join.get());
+        assertEquals(false, leave.get());
+        assertEquals(List.of("u1"), events.get("e1"));
+        assertTrue(!writes.isEmpty());
+        coalescer.shutdown();
+    }
+
+    @Test
+    void togglesAfterShutdownAreWrittenThrough() throws Exception {
+        events.put("e1", new ArrayList<>());
+        coalescer.shutdown();
+
+        assertTrue(coalescer.toggle("e1", "u1").get());
+        assertEquals(List.of("u1"), events.get("e1"));
+        assertEquals(false, coalescer.toggle("e1", "u1").get());
+        assertEquals(List.of(), events.get("e1"));
+        assertNull(coalescer.toggle("e1", "u1", () -> false));
+        assertThrows(IllegalArgumentException.class, () -> coalescer.toggle("missing", "u1"));
+    }
+
+    private synchronized List<String> read(String eventId) {
+        return events.containsKey(eventId) ? List.copyOf(events.get(eventId)) : null;
+    }
+
+    private synchronized void write(Map<String, AttendanceCoalescer.Delta> deltas) {
+        writes.add(deltas);
+        deltas.forEach((eventId, delta) -> {
+            List<String> attendees = events.get(eventId);
+            delta.adds().forEach(uid -> { if (!attendees.contains(uid)) attendees.add(uid); });
+            attendees.removeAll(delta.removes());
+        });
+    }
+}
@@ -0,0 +1,118 @@
+package com.hunter_connect.services;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * N users subscribe to the same event at once, comparing:
+ *   - the old path: one transaction per toggle. Server-side Firestore transactions lock
+ *     the document from read to commit, so toggles run one after another.
+ *   - AttendanceCoalescer: parallel plain reads, one batched write per flush window.
+ *
+ * Firestore is simulated by a single document with RPC_MILLIS latency per round trip.
+ * Excluded from the normal build; run with: ./mvnw test -Pload-test
+ */
+@Tag("load")
+class AttendanceContentionLoadTest {
+
+    private static final long RPC_MILLIS = 10;
+    private static final int[] CONCURRENT_USERS = {10, 50, 200};
+
+    @Test
+    void coalescingBeatsPerRequestTransactions() throws Exception {
+        System.out.printf("%-8s %18s %10s %18s %10s%n", "users", "transaction ms", "writes", "coalesced ms", "writes");
+        for (int users : CONCURRENT_USERS) {
+            SimulatedEvent txDoc = new SimulatedEvent();
+            long txMillis = run(users, uid -> transactionalToggle(txDoc, uid));
+
+            SimulatedEvent coalescedDoc = new SimulatedEvent();
+            AttendanceCoalescer coalescer = new AttendanceCoalescer(
+                    eventId -> {
+                        Thread.sleep(RPC_MILLIS);
+                        return coalescedDoc.snapshot();
+                    },
+                    deltas -> {
+                        Thread.sleep(RPC_MILLIS);
+                        deltas.values().forEach(coalescedDoc::apply);
+                    },
+                    25);
+            long coalescedMillis = run(users, uid -> coalescer.toggle("event", uid).get());
+            coalescer.shutdown();
+
+            System.out.printf("%-8d %18d %10d %18d %10d%n",
+                    users, txMillis, txDoc.writes, coalescedMillis, coalescedDoc.writes);
+
+            assertEquals(users, txDoc.attendees.size());
+            assertEquals(users, coalescedDoc.attendees.size());
+            assertTrue(coalescedDoc.writes <= txDoc.writes);
+        }
+    }
+
+    private static void transactionalToggle(SimulatedEvent doc, String uid) throws InterruptedException {
+        doc.lock.lock();
+        try {
+            Thread.sleep(RPC_MILLIS); // transaction.get(eventRef)
+            boolean attending = doc.attendees.contains(uid);
+            Thread.sleep(RPC_MILLIS); // commit
+            if (attending) doc.attendees.remove(uid); else doc.attendees.add(uid);
+            doc.writes++;
+        } finally {
+            doc.lock.unlock();
+        }
+    }
+
+    private static long run(int users, Toggle toggle) throws Exception {
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < users; i++) {
+                String uid = "user-" + i;
+                futures.add(clients.submit(() -> {
+                    toggle.apply(uid);
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+            return (System.nanoTime() - start) / 1_000_000;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Toggle {
+        void apply(String uid) throws Exception;
+    }
+
+    private static final class SimulatedEvent {
+        final ReentrantLock lock = new ReentrantLock();
+        final Set<String> attendees = new HashSet<>();
+        int writes;
+
+        synchronized List<String> snapshot() {
+            return new ArrayList<>(attendees);
+        }
+
+        synchronized void apply(AttendanceCoalescer.Delta delta) {
+            // Each non-empty arrayUnion / arrayRemove is one document write
+            if (!delta.adds().isEmpty()) {
+                attendees.addAll(delta.adds());
+                writes++;
+            }
+            if (!delta.removes().isEmpty()) {
+                attendees.removeAll(delta.removes());
+                writes++;
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.hunter_connect.services;
+
+import com.google.cloud.Timestamp;
+import com.hunter_connect.models.Event;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Bucket walks and conflict checks of EventIntervalIndex. The listeners are never
+ * started, so events only arrive through index().
+ */
+class EventIntervalIndexTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toSeconds(1);
+    // Tomorrow, on an hour boundary, so events start exactly on a bucket edge
+    private static final long BASE = (System.currentTimeMillis() / 1000L / HOUR + 24) * HOUR;
+
+    private final EventIntervalIndex index = new EventIntervalIndex(
+            new CollectionListeners(new FirestoreGateway(), new CollectionVersions(), 5_000), 30);
+
+    @AfterEach
+    void shutdown() {
+        index.shutdown();
+    }
+
+    @Test
+    void multiHourEventIsListedOnce() {
+        index.index(event("long", BASE + HOUR / 2, BASE + 5 * HOUR, "u1"));
+
+        assertEquals(List.of("long"), ids(index.overlapping(at(BASE), at(BASE + 6 * HOUR))));
+        // A range starting in a later bucket of the event still finds it, once
+        assertEquals(List.of("long"), ids(index.overlapping(at(BASE + 3 * HOUR), at(BASE + 6 * HOUR))));
+    }
+
+    @Test
+    void overlappingIsOrderedByStartAndSkipsOtherEvents() {
+        index.index(event("late", BASE + 2 * HOUR, BASE + 3 * HOUR));
+        index.index(event("early", BASE, BASE + HOUR));
+        index.index(event("elsewhere", BASE + 10 * HOUR, BASE + 11 * HOUR));
+
+        assertEquals(List.of("early", "late"), ids(index.overlapping(at(BASE), at(BASE + 4 * HOUR))));
+    }
+
+    @Test
+    void backToBackEventsDoNotConflict() {
+        index.index(event("first", BASE, BASE + HOUR, "u1"));
+        index.index(event("second", BASE + HOUR, BASE + 2 * HOUR, "u1"));
+
+        assertEquals(List.of(), index.conflicts("first", "u1"));
+        assertEquals(List.of(), index.conflicts("second", "u1"));
+    }
+
+    @Test
+    void overlappingAttendedEventsConflict() {
+        index.index(event("first", BASE, BASE + HOUR, "u1"));
+        index.index(event("middle", BASE + HOUR / 2, BASE + 3 * HOUR / 2, "u1"));
+        index.index(event("notAttended", BASE, BASE + HOUR, "u2"));
+
+        assertEquals(List.of("middle"), ids(index.conflicts("first", "u1")));
+    }
+
+    @Test
+    void instantEventOnABoundaryConflicts() {
+        index.index(event("first", BASE, BASE + HOUR, "u1"));
+        index.index(event("instant", BASE + HOUR, null, "u1"));
+
+        assertEquals(List.of("instant"), ids(index.conflicts("first", "u1")));
+        assertEquals(List.of("first"), ids(index.conflicts("instant", "u1")));
+    }
+
+    @Test
+    void setAttendingIsSeenByConflicts() {
+        index.index(event("first", BASE, BASE + HOUR, "u1"));
+        index.index(event("second", BASE + HOUR / 2, BASE + 2 * HOUR));
+
+        assertEquals(List.of(), index.conflicts("first", "u1"));
+        index.setAttending("second", "u1", true);
+        assertEquals(List.of("second"), ids(index.conflicts("first", "u1")));
+        index.setAttending("second", "u1", false);
+        assertEquals(List.of(), index.conflicts("first", "u1"));
+    }
+
+    @Test
+    void reindexingMovesTheEvent() {
+        index.index(event("moved", BASE, BASE + HOUR));
+        index.index(event("moved", BASE + 10 * HOUR, BASE + 11 * HOUR));
+
+        assertEquals(List.of(), index.overlapping(at(BASE), at(BASE + 2 * HOUR)));
+        assertEquals(List.of("moved"), ids(index.overlapping(at(BASE + 10 * HOUR), at(BASE + 12 * HOUR))));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void eventsLongerThanAWeekAreFoundFromAnyRange() {
+        index.index(event("exhibition", BASE, BASE + TimeUnit.DAYS.toSeconds(14)));
+
+        assertEquals(List.of("exhibition"), ids(index.overlapping(at(BASE + 5 * 24 * HOUR), at(BASE + 5 * 24 * HOUR + HOUR))));
+        assertEquals(List.of(), index.overlapping(at(BASE + 15 * 24 * HOUR), at(BASE + 16 * 24 * HOUR)));
+    }
+
+    @Test
+    void archivedEventsAreNotIndexed() {
+        long now = System.currentTimeMillis() / 1000L;
+        index.index(event("old", now - TimeUnit.DAYS.toSeconds(40), now - TimeUnit.DAYS.toSeconds(39)));
+
+        assertEquals(0, index.size());
+        assertThrows(IllegalArgumentException.class,
+                () -> index.overlapping(at(now - TimeUnit.DAYS.toSeconds(40)), at(now)));
+    }
+
+    private static Event event(String id, long start, Long end, String... attendees) {
+        return new Event(id, List.of(attendees), null, "user", "User", null, null,
+                end != null ? at(end) : null, null, at(start), null, id);
+    }
+
+    private static Timestamp at(long seconds) {
+        return Timestamp.ofTimeSecondsAndNanos(seconds, 0);
+    }
+
+    private static List<String> ids(List<Event> events) {
+        return events.stream().map(Event::getId).toList();
+    }
+}
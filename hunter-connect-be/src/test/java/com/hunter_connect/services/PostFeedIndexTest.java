@@ -0,0 +1,91 @@
+package com.hunter_connect.services;
+
+import com.google.cloud.Timestamp;
+import com.hunter_connect.models.Post;
+import com.hunter_connect.models.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Feed ranking and the newest-posts top-up of PostFeedIndex. The listeners are never
+ * started, so posts only arrive through index().
+ */
+class PostFeedIndexTest {
+
+    private static final long HOUR = 3_600;
+    private static final long NOW = System.currentTimeMillis() / 1000L;
+
+    private final PostFeedIndex index = new PostFeedIndex(
+            new CollectionListeners(new FirestoreGateway(), new CollectionVersions(), 5_000), 30, 48);
+
+    @AfterEach
+    void shutdown() {
+        index.shutdown();
+    }
+
+    @Test
+    void topUpReturnsTheNewestPostsWhateverTheLoadOrder() {
+        // Loaded in document-ID order, as a baseline is, which is unrelated to post time
+        index.index(post("a", NOW - 5 * HOUR, null));
+        index.index(post("b", NOW - HOUR, null));
+        index.index(post("c", NOW - 9 * HOUR, null));
+        index.index(post("d", NOW - 2 * HOUR, null));
+        index.index(post("e", NOW - 7 * HOUR, null));
+        index.index(post("f", NOW - 3 * HOUR, null));
+
+        assertEquals(List.of("b", "d", "f"), ids(index.feed(null, 3)));
+    }
+
+    @Test
+    void matchesComeBeforeTheTopUp() {
+        index.index(post("match", NOW - 10 * HOUR, "csci499"));
+        index.index(post("newer", NOW - HOUR, null));
+        index.index(post("newest", NOW, null));
+
+        assertEquals(List.of("match", "newest", "newer"), ids(index.feed(preferences("CSCI499"), 3)));
+    }
+
+    @Test
+    void topUpSkipsRemovedAndAgedOutPosts() {
+        index.index(post("old", NOW - 40 * 24 * HOUR, null));
+        index.index(post("kept", NOW - HOUR, null));
+        index.index(post("replaced", NOW, null));
+        // Re-indexing keeps the dense ID but moves the post back in time
+        index.index(post("replaced", NOW - 2 * HOUR, null));
+
+        assertEquals(List.of("kept", "replaced"), ids(index.feed(null, 5)));
+    }
+
+    @Test
+    void compactionKeepsTheFeed() {
+        index.index(post("a", NOW - 3 * HOUR, null));
+        index.index(post("b", NOW - HOUR, null));
+        index.index(post("c", NOW - 2 * HOUR, null));
+        index.compact();
+
+        assertEquals(List.of("b", "c", "a"), ids(index.feed(null, 3)));
+        assertEquals(3, index.size());
+    }
+
+    private static Post post(String id, long seconds, String course) {
+        Post.Tags tags = new Post.Tags();
+        if (course != null) {
+            tags.setCourses(List.of(course));
+        }
+        return new Post(id, "user", "User", id, null, null, 0, Timestamp.ofTimeSecondsAndNanos(seconds, 0), tags);
+    }
+
+    private static User.Preferences preferences(String course) {
+        User.Preferences preferences = new User.Preferences();
+        preferences.setCourses(List.of(course));
+        return preferences;
+    }
+
+    private static List<String> ids(List<Post> posts) {
+        return posts.stream().map(Post::getPostID).toList();
+    }
+}
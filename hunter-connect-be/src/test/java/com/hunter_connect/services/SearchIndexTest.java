@@ -0,0 +1,113 @@
+package com.hunter_connect.services;
+
+import com.hunter_connect.models.Event;
+import com.hunter_connect.models.Post;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ranking and re-indexing of SearchIndex. The listeners are never started, so documents
+ * only arrive through index().
+ */
+class SearchIndexTest {
+
+    private final SearchIndex index = new SearchIndex(new CollectionListeners(new FirestoreGateway(), new CollectionVersions(), 5_000));
+
+    @Test
+    void titleMatchOutranksBodyMatch() {
+        index.index(post("body", "Weekly meetup", "We mostly do calculus problems"));
+        index.index(post("title", "Calculus study group", "We meet every week"));
+
+        assertEquals(List.of("title", "body"), ids(index.search("calculus", null, 10)));
+    }
+
+    @Test
+    void termFrequencyRaisesTheScore() {
+        index.index(post("once", "Soccer practice", null));
+        index.index(post("twice", "Soccer soccer", null));
+
+        assertEquals(List.of("twice", "once"), ids(index.search("soccer", null, 10)));
+    }
+
+    @Test
+    void matchingMoreTermsRanksHigher() {
+        index.index(post("one", "Chess tonight", null));
+        index.index(post("both", "Chess and robotics", null));
+
+        assertEquals("both", index.search("chess robotics", null, 10).get(0).id());
+    }
+
+    @Test
+    void prefixesMatchBelowExactTerms() {
+        index.index(post("prefix", "Calculus tutoring", null));
+        index.index(post("exact", "Calc tutoring", null));
+
+        List<SearchIndex.Hit> hits = index.search("calc", null, 10);
+        assertEquals(List.of("exact", "prefix"), ids(hits));
+        assertTrue(hits.get(0).score() > hits.get(1).score());
+    }
+
+    @Test
+    void ignoresCaseAccentsAndStopWords() {
+        index.index(post("cafe", "Café Night", null));
+
+        assertEquals(List.of("cafe"), ids(index.search("CAFE", null, 10)));
+        assertEquals(List.of(), index.search("the and of", null, 10));
+    }
+
+    @Test
+    void reindexingReplacesTheTerms() {
+        index.index(post("p1", "Robotics workshop", null));
+        index.index(post("p1", "Music workshop", null));
+
+        assertEquals(List.of(), index.search("robotics", null, 10));
+        assertEquals(List.of("p1"), ids(index.search("music", null, 10)));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void kindAndLimitFilterTheResults() {
+        index.index(post("post", "Hackathon team", null));
+        index.index(event("event", "Hackathon", "Build something in a weekend"));
+        index.index(event("other", "Hackathon kickoff", null));
+
+        List<SearchIndex.Hit> events = index.search("hackathon", SearchIndex.Kind.EVENT, 10);
+        assertEquals(2, events.size());
+        assertTrue(events.stream().allMatch(hit -> hit.kind() == SearchIndex.Kind.EVENT));
+
+        List<SearchIndex.Hit> top = index.search("hackathon", null, 2);
+        assertEquals(2, top.size());
+        assertTrue(top.get(0).score() >= top.get(1).score());
+    }
+
+    @Test
+    void searchingTheSameIndexTwiceGivesTheSameScores() {
+        // Scratch buffers are pooled; a reused one must come back clean
+        index.index(post("a", "Career fair", null));
+        index.index(post("b", "Career workshop fair", null));
+
+        List<SearchIndex.Hit> first = index.search("career fair", null, 10);
+        List<SearchIndex.Hit> second = index.search("career fair", null, 10);
+        assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.get(i).id(), second.get(i).id());
+            assertEquals(first.get(i).score(), second.get(i).score(), 1e-6);
+        }
+    }
+
+    private static Post post(String id, String title, String content) {
+        return new Post(id, "user", "User", title, content, null, 0, null, null);
+    }
+
+    private static Event event(String id, String title, String description) {
+        return new Event(id, List.of(), null, "user", "User", null, description, null, null, null, null, title);
+    }
+
+    private static List<String> ids(List<SearchIndex.Hit> hits) {
+        return hits.stream().map(SearchIndex.Hit::id).toList();
+    }
+}
@@ -0,0 +1,118 @@
+package com.hunter_connect.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentileNanos(99));
+        assertEquals(0, histogram.maxNanos());
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v = 1; v <= 10; v++) {
+            histogram.record(v);
+        }
+
+        assertEquals(10, histogram.count());
+        assertEquals(1, histogram.percentileNanos(0));
+        assertEquals(5, histogram.percentileNanos(50));
+        assertEquals(9, histogram.percentileNanos(90));
+        assertEquals(10, histogram.percentileNanos(100));
+    }
+
+    @Test
+    void bucketBoundsAreWithinASixteenth() {
+        for (long v = 0; v < 100_000; v++) {
+            assertWithinASixteenth(v);
+        }
+        for (long v = 100_000; v > 0 && v < Long.MAX_VALUE / 3; v = v * 3 + 7) {
+            assertWithinASixteenth(v);
+        }
+        assertWithinASixteenth(Long.MAX_VALUE);
+    }
+
+    @Test
+    void indicesGrowWithTheValue() {
+        int previous = -1;
+        for (long v = 0; v < 10_000; v++) {
+            int index = LatencyHistogram.indexOf(v);
+            assertTrue(index == previous || index == previous + 1, "gap at " + v);
+            previous = index;
+        }
+    }
+
+    @Test
+    void percentileIsCappedAtTheMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000);
+
+        // The bucket of 1000 reaches up to 1023
+        assertEquals(1_000, histogram.percentileNanos(99));
+        assertEquals(1_000, histogram.maxNanos());
+    }
+
+    @Test
+    void percentilesOfASkewedDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 990; i++) {
+            histogram.record(1_000_000); // 1 ms
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(200_000_000); // 200 ms
+        }
+
+        assertEquals(1_000_000, histogram.percentileNanos(50), 1_000_000 / 16.0);
+        assertEquals(1_000_000, histogram.percentileNanos(95), 1_000_000 / 16.0);
+        assertEquals(200_000_000, histogram.percentileNanos(100));
+    }
+
+    @Test
+    void negativeValuesCountAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+
+        assertEquals(1, histogram.count());
+        assertEquals(0, histogram.percentileNanos(100));
+    }
+
+    @Test
+    void concurrentRecordsAreAllCounted() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            long offset = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i * 100L + offset);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(80_000, histogram.count());
+        assertEquals(999_907, histogram.maxNanos());
+    }
+
+    private static void assertWithinASixteenth(long value) {
+        long upper = LatencyHistogram.upperBoundOf(LatencyHistogram.indexOf(value));
+        assertTrue(upper >= value, "bucket of " + value + " ends at " + upper);
+        assertTrue(upper - value <= value / 16, "bucket of " + value + " ends at " + upper);
+    }
+}
@@ -0,0 +1,40 @@
+package com.hunter_connect.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PageCursorTest {
+
+    @Test
+    void roundTripsDocumentIds() {
+        for (String id : new String[]{"abc", "x0PqR9sT2uVw3YzA4bCd", "event-42", "café ☕"}) {
+            assertEquals(id, PageCursor.decode(PageCursor.encode(id)));
+        }
+    }
+
+    @Test
+    void cursorIsUrlSafe() {
+        // "4K+/woA=" in plain Base64
+        assertEquals("4K-_woA", PageCursor.encode("\u0bff\u0080"));
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        assertInvalid("not a cursor!");
+        assertInvalid("a");
+    }
+
+    @Test
+    void rejectsCursorsThatDoNotWrapADocumentId() {
+        assertInvalid("");
+        // Document IDs never contain a slash
+        assertInvalid(PageCursor.encode("users/abc"));
+    }
+
+    private static void assertInvalid(String cursor) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(cursor));
+        assertEquals("Invalid cursor", e.getMessage());
+    }
+}
@@ -18,6 +18,7 @@ import {
 import React, { useEffect, useState } from "react";
 import {
   ActivityIndicator,
+  Alert,
   Modal,
   Platform,
   ScrollView,
@@ -209,21 +210,42 @@ export default function EventsScreen() {
   };
 
   /* ------------------ Subscribe / Unsubscribe ------------------ */
+  const confirmJoinAnyway = (titles: string[]) =>
+    new Promise<boolean>((resolve) => {
+      const message = `This event overlaps with: ${titles.join(", ")}. Join anyway?`;
+      if (Platform.OS === "web") {
+        resolve(window.confirm(message));
+        return;
+      }
+      Alert.alert("Schedule conflict", message, [
+        { text: "Cancel", style: "cancel", onPress: () => resolve(false) },
+        { text: "Join anyway", onPress: () => resolve(true) },
+      ]);
+    });
+
   const toggleSubscribe = async (event: EventInterface) => {
     if (!user) return;
 
     try {
       const bearerToken = await user?.getIdToken();
-      await subscribeToEvent(event.id, bearerToken);
+      let result = await subscribeToEvent(event.id, bearerToken);
+      if (result?.status === "Conflict") {
+        const titles = result.conflicts.map((e: EventInterface) => e.title);
+        if (!(await confirmJoinAnyway(titles))) return;
+        result = await subscribeToEvent(event.id, bearerToken, true);
+      }
+      if (!result) return;
 
+      // The server decides join vs. leave; the local list may be out of date
+      const subscribed = result.status === "Subscribed";
       setUpcomingEvents((prev) =>
         prev?.map((e) =>
           e.id === event.id
             ? {
                 ...e,
-                attendees: isSubscribed(event)
-                  ? e.attendees?.filter((a) => a !== user.uid)
-                  : [...(e.attendees ?? []), user.uid],
+                attendees: subscribed
+                  ? [...(e.attendees ?? []).filter((a) => a !== user.uid), user.uid]
+                  : e.attendees?.filter((a) => a !== user.uid),
               }
             : e
         )
@@ -162,8 +162,14 @@ const getAllEvents = async (bearerToken: string) => {
 /**
  * POST /api/events/{id}/subscribe
  * Toggles subscription status (join/leave event).
+ * Joining an event that overlaps one the user attends returns
+ * { status: "Conflict", conflicts } unless force is set.
  */
-const subscribeToEvent = async (id: string, bearerToken: string) => {
+const subscribeToEvent = async (
+  id: string,
+  bearerToken: string,
+  force: boolean = false
+) => {
   const requestConfig: RequestInit = {
     method: "POST",
     headers: {
@@ -178,7 +184,7 @@ const subscribeToEvent = async (id: string, bearerToken: string) => {
 
   try {
     const req = await fetch(
-      `${API_URL}/api/events/${id}/subscribe`,
+      `${API_URL}/api/events/${id}/subscribe${force ? "?force=true" : ""}`,
       requestConfig
     );
     const json = await req.json();
@@ -186,6 +192,8 @@ const subscribeToEvent = async (id: string, bearerToken: string) => {
     if (req.status === 200) {
       console.log("Subscription Toggled:", json);
       return json;
+    } else if (req.status === 409) {
+      return json;
     }
   } catch (error) {
     return Promise.reject(error);
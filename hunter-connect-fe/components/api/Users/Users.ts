@@ -142,4 +142,38 @@ const getAllUsers = async (bearerToken: string) => {
   }
 };
 
-export { UserInterface, createUser, updateUser, getUser, getAllUsers };
+/* ---------------- GET USERS BY UID ---------------- */
+// One request for up to 100 UIDs; returns a UID -> profile map (missing UIDs are left out).
+// `fields` limits each profile to those properties.
+const getUsers = async (
+  uids: string[],
+  bearerToken: string,
+  fields: string[] = []
+) => {
+  const getUsersRequest: RequestInit = {
+    method: "GET",
+    headers: {
+      "Content-Type": "application/json",
+      Authorization: `Bearer ${bearerToken}`,
+      Accept: "application/json",
+    },
+    mode: "cors",
+    credentials: "omit",
+    cache: "no-cache",
+    redirect: "follow",
+    referrerPolicy: "no-referrer-when-downgrade",
+  };
+
+  const params = new URLSearchParams({ ids: uids.join(",") });
+  if (fields.length > 0) params.set("fields", fields.join(","));
+
+  try {
+    const req = await fetch(`${API_URL}/api/users?${params}`, getUsersRequest);
+    const json: Record<string, Partial<UserInterface>> = await req.json();
+    return json;
+  } catch (error) {
+    return Promise.reject(error);
+  }
+};
+
+export { UserInterface, createUser, updateUser, getUser, getAllUsers, getUsers };
@@ -1,38 +1,50 @@
 import { auth } from "@/components/api/Firebase/firebaseConfig";
 
-import { getUser } from "./Users";
+import { getUsers } from "./Users";
+
+// Matches MAX_IDS in the backend's UserHandler
+const MAX_IDS_PER_REQUEST = 100;
 
 export const getUsersByUIDs = async (uids: string[]) => {
   if (!uids || uids.length === 0) return [];
 
   const token = (await auth.currentUser?.getIdToken()) ?? "";
 
-  return await Promise.all(
-    uids.map(async (id) => {
-      try {
-        const profile = await getUser(id, token);
-
-        if (!profile) {
-          return {
-            uid: id,
-            fullName: "Unknown User",
-            email: "",
-          };
-        }
-
-        return {
-          uid: id,
-          fullName: `${profile.firstName} ${profile.lastName}`,
-          email: profile.email,
-          username: profile.username,
-        };
-      } catch (error) {
-        return {
-          uid: id,
-          fullName: "Unknown User",
-          email: "",
-        };
-      }
-    })
+  const chunks: string[][] = [];
+  for (let i = 0; i < uids.length; i += MAX_IDS_PER_REQUEST) {
+    chunks.push(uids.slice(i, i + MAX_IDS_PER_REQUEST));
+  }
+
+  const profiles = Object.assign(
+    {},
+    ...(await Promise.all(
+      chunks.map((chunk) =>
+        getUsers(chunk, token, [
+          "firstName",
+          "lastName",
+          "email",
+          "username",
+        ]).catch(() => ({}))
+      )
+    ))
   );
+
+  return uids.map((id) => {
+    const profile = profiles[id];
+
+    if (!profile) {
+      return {
+        uid: id,
+        fullName: "Unknown User",
+        email: "",
+      };
+    }
+
+    return {
+      uid: id,
+      fullName: `${profile.firstName} ${profile.lastName}`,
+      email: profile.email,
+      username: profile.username,
+    };
+  });
 };